@@ -23,41 +23,80 @@
 
 package rex.palace.sequentialexecutor;
 
+import java.util.Arrays;
+import java.util.Objects;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 
 /**
  * An abstract implementation of a SequentialFuture.
  *
+ * <p>The state of the task is packed into a single int and the result or
+ * the exception share a single field, so a future is a single small object
+ * without a separate wrapper for its task.
+ *
  * @param <T> the type this future holds.
  */
 abstract class AbstractSequentialFuture<T> implements SequentialFuture<T> {
 
     /**
-     * Indicates if this task has been cancelled.
+     * The state of a task which has not been run yet.
+     */
+    private static final int NEW = 0;
+
+    /**
+     * The state of a task which has been run successfully.
+     */
+    private static final int RAN = 1;
+
+    /**
+     * The state of a task which threw an exception.
+     */
+    private static final int FAILED = 2;
+
+    /**
+     * The state of a task which got cancelled.
+     */
+    private static final int CANCELLED = 3;
+
+    /**
+     * The task to run.
+     */
+    private final Callable<T> callable;
+
+    /**
+     * The state of this task.
      */
-    protected boolean cancelled = false;
+    private int state = NEW;
 
     /**
-     * Indicates if this task has been run.
+     * The result or the Exception of the run depending on the state.
      */
-    protected boolean ran = false;
+    private Object outcome;
 
     /**
-     * The Exception which occurred during the run.
+     * The first listener to run when this task is completed or null if
+     * there is none.
      */
-    private Exception exception;
+    private Runnable completionActions;
 
     /**
-     * The result of the run.
+     * The Executor to run the first completion listener with.
      */
-    private T result;
+    private Executor completionExecutor;
 
     /**
-     * The CallableWrapper providing the run method.
+     * The further listeners and their Executors in registration order,
+     * stored alternately, or null if there are none.
      */
-    private final CallableWrapper<T> wrapper;
+    private Object[] moreCompletionActions;
+
+    /**
+     * The number of further listeners.
+     */
+    private int moreCompletionCount = 0;
 
     /**
      * Constructs a new AbstractSequentialFuture with the specified task.
@@ -66,7 +105,8 @@ abstract class AbstractSequentialFuture<T> implements SequentialFuture<T> {
      * @throws NullPointerException if callable is null
      */
     AbstractSequentialFuture(Callable<T> callable) {
-        wrapper = new CallableWrapper<>(this, callable);
+        this.callable = Objects.requireNonNull(callable,
+                "The callable must not be null.");
     }
 
     /**
@@ -85,7 +125,7 @@ abstract class AbstractSequentialFuture<T> implements SequentialFuture<T> {
      */
     @Override
     public T get() throws ExecutionException, InterruptedException {
-        if (cancelled) {
+        if (state == CANCELLED) {
             throw new CancellationException(
                     ExecutorServiceHelper.CANCELLATION_MESSAGE);
         }
@@ -96,37 +136,78 @@ abstract class AbstractSequentialFuture<T> implements SequentialFuture<T> {
         if (!hasRun()) {
             throw new IllegalStateException("Task has not run yet.");
         }
-        if (exception == null) {
-            return result;
+        if (state == FAILED) {
+            throw new ExecutionException((Exception) outcome);
         }
-        throw new ExecutionException(exception);
+        @SuppressWarnings("unchecked")
+        T result = (T) outcome;
+        return result;
     }
 
-
+    /**
+     * Runs the task and stores its result or exception.
+     *
+     * @throws CancellationException if this task is cancelled
+     */
     @Override
     public void run() {
-        wrapper.run();
-        ran = true;
+        if (state == CANCELLED) {
+            throw new CancellationException(
+                    ExecutorServiceHelper.CANCELLATION_MESSAGE);
+        }
+        try {
+            setResult(callable.call());
+        } catch (Exception e) {
+            setException(e);
+        }
+        if (isCompleted()) {
+            fireCompletion();
+        }
     }
 
     @Override
     public void setException(Exception exception) {
-        this.exception = exception;
+        outcome = exception;
+        state = FAILED;
     }
 
     @Override
     public void setResult(T result) {
-        this.result = result;
+        outcome = result;
+        state = RAN;
+    }
+
+    /**
+     * Returns the result or the exception of the last run.
+     *
+     * @return the outcome of the last run or null if this task has
+     *         not been run
+     */
+    protected final Object getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * Resets this task to the state before its first run.
+     *
+     * <p>Tasks, which are run several times, call this after a successful
+     * run.
+     */
+    protected final void resetRun() {
+        if (state == RAN) {
+            state = NEW;
+            outcome = null;
+        }
     }
 
     @Override
     public boolean isDone() {
-        return cancelled || ran;
+        return state != NEW;
     }
 
     @Override
     public boolean isCancelled() {
-        return cancelled;
+        return state == CANCELLED;
     }
 
     @Override
@@ -134,18 +215,92 @@ abstract class AbstractSequentialFuture<T> implements SequentialFuture<T> {
         if (isDone()) {
             return false;
         }
-        cancelled = true;
+        state = CANCELLED;
+        fireCompletion();
         return true;
     }
 
+    /**
+     * Returns if this task is completed, so its state will never change.
+     *
+     * <p>By default a task is completed if it is done. Subclasses which
+     * are run several times have to override it.
+     *
+     * @return true if and only if this task is completed
+     */
+    protected boolean isCompleted() {
+        return isDone();
+    }
+
+    /**
+     * Registers a listener, which is run by the executor as soon as this
+     * task is completed.
+     *
+     * <p>The first listener and its executor are stored in this future
+     * itself, so registering a single listener does not allocate. Further
+     * listeners are stored in an array. The listeners are run in
+     * registration order. An exception thrown by a listener is passed to
+     * the uncaught exception handler of the current Thread and does not
+     * keep the other listeners from running.
+     *
+     * @param listener the listener to run on completion
+     * @param executor the executor to run listener with
+     * @throws NullPointerException if listener or executor is null
+     */
+    @Override
+    public void addListener(Runnable listener, Executor executor) {
+        Objects.requireNonNull(listener, "The listener must not be null.");
+        Objects.requireNonNull(executor, "The executor must not be null.");
+        if (isCompleted()) {
+            ExecutorServiceHelper.runListener(listener, executor);
+            return;
+        }
+        if (completionActions == null) {
+            completionActions = listener;
+            completionExecutor = executor;
+            return;
+        }
+        int index = 2 * moreCompletionCount;
+        if (moreCompletionActions == null) {
+            moreCompletionActions = new Object[4];
+        } else if (index == moreCompletionActions.length) {
+            moreCompletionActions = Arrays.copyOf(
+                    moreCompletionActions, 2 * index);
+        }
+        moreCompletionActions[index] = listener;
+        moreCompletionActions[index + 1] = executor;
+        moreCompletionCount++;
+    }
+
+    /**
+     * Runs and forgets all listeners registered by addListener.
+     */
+    private void fireCompletion() {
+        Runnable listener = completionActions;
+        Executor executor = completionExecutor;
+        Object[] more = moreCompletionActions;
+        int count = moreCompletionCount;
+        completionActions = null;
+        completionExecutor = null;
+        moreCompletionActions = null;
+        moreCompletionCount = 0;
+        if (listener != null) {
+            ExecutorServiceHelper.runListener(listener, executor);
+        }
+        for (int i = 0; i < count; i++) {
+            ExecutorServiceHelper.runListener(
+                    (Runnable) more[2 * i], (Executor) more[2 * i + 1]);
+        }
+    }
+
     @Override
     public boolean hasRun() {
-        return ran;
+        return state == RAN || state == FAILED;
     }
 
     @Override
     public boolean isExceptionHappened() {
-        return exception != null;
+        return state == FAILED;
     }
 
     /**
@@ -154,17 +309,17 @@ abstract class AbstractSequentialFuture<T> implements SequentialFuture<T> {
      */
     protected String toStringHelper() {
         StringBuilder sb = new StringBuilder("task=")
-                .append(wrapper)
+                .append(callable)
                 .append(",state=");
-        if (cancelled) {
+        if (state == CANCELLED) {
             sb.append("cancelled");
         } else if (isDone()) {
             sb.append("done ");
             if (isExceptionHappened()) {
                 sb.append("failure: ")
-                        .append(exception.getClass().getName());
+                        .append(outcome.getClass().getName());
             } else {
-                sb.append("result: ").append(result);
+                sb.append("result: ").append(outcome);
             }
         } else {
             sb.append("running");
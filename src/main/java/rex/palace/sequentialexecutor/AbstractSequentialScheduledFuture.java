@@ -23,6 +23,7 @@
 
 package rex.palace.sequentialexecutor;
 
+import java.util.Collections;
 import java.util.Objects;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
@@ -54,7 +55,17 @@ abstract class AbstractSequentialScheduledFuture<T>
     protected final long initialDelay;
 
     /**
-     * Creates a new AbstractSequentialScheduledFuture.
+     * The TaskCost of a single run of this task.
+     */
+    private final TaskCost cost;
+
+    /**
+     * The simulated time in nanos the last run of this task took.
+     */
+    protected long lastCostNanos = 0L;
+
+    /**
+     * Creates a new AbstractSequentialScheduledFuture, whose runs take no time.
      *
      * @param callable the task teo perform
      * @param delay the delay before this task is performed
@@ -66,6 +77,24 @@ abstract class AbstractSequentialScheduledFuture<T>
     protected AbstractSequentialScheduledFuture(
             Callable<T> callable, long delay,
             TimeUnit unit, TimeController timeController) {
+        this(callable, delay, unit, timeController, TaskCosts.none());
+    }
+
+    /**
+     * Creates a new AbstractSequentialScheduledFuture.
+     *
+     * @param callable the task teo perform
+     * @param delay the delay before this task is performed
+     * @param unit the TimeUnit of delay
+     * @param timeController the TimeController to be registered to.
+     * @param cost the TaskCost of a single run
+     *
+     * @throws NullPointerException if callable, unit, timeController or cost
+     *         is null
+     */
+    protected AbstractSequentialScheduledFuture(
+            Callable<T> callable, long delay,
+            TimeUnit unit, TimeController timeController, TaskCost cost) {
         super(callable);
         if (delay <= 0L) {
             throw new IllegalArgumentException(
@@ -75,10 +104,30 @@ abstract class AbstractSequentialScheduledFuture<T>
                 unit, "The unit must not be null").toNanos(delay);
         this.timeController = Objects.requireNonNull(timeController,
                 "The timeController must not be null");
+        this.cost = Objects.requireNonNull(cost,
+                "The cost must not be null");
         initialDelay = remainingDelay;
         timeController.register(this);
     }
 
+    /**
+     * Runs this task and occupies the TimeController for the time
+     * this run takes.
+     *
+     * <p>If this task is run late, the time it is overdue has already passed
+     * and counts towards the time this run takes.
+     */
+    @Override
+    public void run() {
+        long overdue = Math.max(0L, -remainingDelay);
+        super.run();
+        lastCostNanos = cost.nextNanos();
+        if (lastCostNanos > overdue) {
+            timeController.occupy(
+                    lastCostNanos - overdue, TimeUnit.NANOSECONDS);
+        }
+    }
+
     @Override
     public long getDelay(TimeUnit unit) {
         return Objects.requireNonNull(unit).convert(
@@ -115,10 +164,13 @@ abstract class AbstractSequentialScheduledFuture<T>
      *
      * @throws ExecutionException if an Exception occurred running this task
      * @throws InterruptedException if the calling Thread is interrupted
+     * @throws IllegalStateException if the TimeController detects that this
+     *         future can never be done
      */
     @Override
     public T get() throws ExecutionException, InterruptedException {
-        timeController.letTimePassUntil(this::isDone);
+        timeController.letTimePassUntil(
+                new DoneCondition(Collections.singleton(this)));
         return super.get();
     }
 
@@ -137,7 +189,8 @@ abstract class AbstractSequentialScheduledFuture<T>
     @Override
     public T get(long timeout, TimeUnit unit)
             throws TimeoutException, ExecutionException, InterruptedException {
-        timeController.letTimePassUntil(this::isDone, timeout, unit);
+        timeController.letTimePassUntil(
+                new DoneCondition(Collections.singleton(this)), timeout, unit);
         return super.get(timeout, unit);
     }
 
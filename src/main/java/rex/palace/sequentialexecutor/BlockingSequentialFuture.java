@@ -0,0 +1,496 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A SequentialFuture, which can be waited for by other Threads.
+ *
+ * <p>The task is still run by a single Thread, usually the one driving the
+ * {@link SequentialExecutorService}. Other Threads calling {@link #get()}
+ * are parked until the task is completed instead of failing. The outcome
+ * is written before the volatile state, so it is safely published to
+ * every Thread seeing the task done.
+ *
+ * <p>Waiting Threads and completion actions are kept in a lock-free stack,
+ * which is released once when the task is completed.
+ *
+ * @param <T> the result type of this Future
+ */
+final class BlockingSequentialFuture<T> implements SequentialFuture<T> {
+
+    /**
+     * A waiting Thread or a completion action in the stack of waiters.
+     */
+    private static final class Waiter {
+
+        /**
+         * The waiting Thread or null if it stopped waiting or
+         * this is an action.
+         */
+        private volatile Thread thread;
+
+        /**
+         * The completion listener or null if this is a Thread.
+         */
+        private final Runnable action;
+
+        /**
+         * The Executor to run the completion listener with.
+         */
+        private final Executor executor;
+
+        /**
+         * The next Waiter in the stack.
+         */
+        private Waiter next;
+
+        /**
+         * Creates a new Waiter.
+         *
+         * @param thread the waiting Thread
+         * @param action the completion listener
+         * @param executor the Executor to run action with
+         */
+        private Waiter(Thread thread, Runnable action, Executor executor) {
+            this.thread = thread;
+            this.action = action;
+            this.executor = executor;
+        }
+
+    }
+
+    /**
+     * The state of a task which has not been run yet.
+     */
+    private static final int NEW = 0;
+
+    /**
+     * The state of a task which is being run.
+     */
+    private static final int RUNNING = 1;
+
+    /**
+     * The state of a task which has been run successfully.
+     */
+    private static final int RAN = 2;
+
+    /**
+     * The state of a task which threw an exception.
+     */
+    private static final int FAILED = 3;
+
+    /**
+     * The state of a task which got cancelled.
+     */
+    private static final int CANCELLED = 4;
+
+    /**
+     * The head of the stack after the waiters have been released.
+     */
+    private static final Waiter RELEASED = new Waiter(null, null, null);
+
+    /**
+     * Updates the state atomically.
+     */
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<BlockingSequentialFuture>
+            STATE = AtomicIntegerFieldUpdater.newUpdater(
+                    BlockingSequentialFuture.class, "state");
+
+    /**
+     * Updates the stack of waiters atomically.
+     */
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<
+            BlockingSequentialFuture, Waiter> WAITERS
+            = AtomicReferenceFieldUpdater.newUpdater(
+                    BlockingSequentialFuture.class, Waiter.class, "waiters");
+
+    /**
+     * The task to run.
+     */
+    private final Callable<T> callable;
+
+    /**
+     * The state of this task.
+     */
+    private volatile int state = NEW;
+
+    /**
+     * The result or the Exception of the run depending on the state.
+     *
+     * <p>It is published by the write to state.
+     */
+    private Object outcome;
+
+    /**
+     * The top of the stack of waiters.
+     */
+    private volatile Waiter waiters;
+
+    /**
+     * Constructs a new BlockingSequentialFuture.
+     *
+     * @param callable the task to run
+     * @throws NullPointerException if callable is null
+     */
+    BlockingSequentialFuture(Callable<T> callable) {
+        this.callable = Objects.requireNonNull(callable,
+                "The callable must not be null.");
+    }
+
+    /**
+     * Runs the task if it has not been run yet.
+     *
+     * @throws CancellationException if this task is cancelled
+     */
+    @Override
+    public void run() {
+        if (!STATE.compareAndSet(this, NEW, RUNNING)) {
+            if (state == CANCELLED) {
+                throw new CancellationException(
+                        ExecutorServiceHelper.CANCELLATION_MESSAGE);
+            }
+            return;
+        }
+        try {
+            complete(callable.call(), RAN);
+        } catch (Exception e) {
+            complete(e, FAILED);
+        }
+    }
+
+    @Override
+    public void setResult(T result) {
+        if (STATE.compareAndSet(this, NEW, RUNNING)) {
+            complete(result, RAN);
+        }
+    }
+
+    @Override
+    public void setException(Exception exception) {
+        if (STATE.compareAndSet(this, NEW, RUNNING)) {
+            complete(exception, FAILED);
+        }
+    }
+
+    /**
+     * Publishes the outcome and releases the waiters.
+     *
+     * @param value the result or the exception
+     * @param finalState the state to complete with
+     */
+    private void complete(Object value, int finalState) {
+        outcome = value;
+        state = finalState;
+        release();
+    }
+
+    /**
+     * Unparks the waiting Threads and then runs the completion listeners in
+     * registration order.
+     *
+     * <p>All Threads are unparked before any listener is run, and an
+     * exception thrown by a listener is passed to the uncaught exception
+     * handler, so a failing listener can neither strand waiting Threads
+     * nor keep later listeners from running. The released stack is not
+     * modified, since waiters may still be unlinking themselves from it.
+     */
+    private void release() {
+        Waiter actions = null;
+        for (Waiter waiter = WAITERS.getAndSet(this, RELEASED);
+                waiter != null; waiter = waiter.next) {
+            Thread thread = waiter.thread;
+            if (thread != null) {
+                waiter.thread = null;
+                LockSupport.unpark(thread);
+            } else if (waiter.action != null) {
+                Waiter action
+                        = new Waiter(null, waiter.action, waiter.executor);
+                action.next = actions;
+                actions = action;
+            }
+        }
+        for (; actions != null; actions = actions.next) {
+            ExecutorServiceHelper.runListener(actions.action, actions.executor);
+        }
+    }
+
+    /**
+     * Pushes a Waiter onto the stack unless it has been released.
+     *
+     * @param waiter the Waiter to push
+     * @return true if the Waiter has been pushed, false if the waiters
+     *         have already been released
+     */
+    private boolean push(Waiter waiter) {
+        Waiter head;
+        do {
+            head = waiters;
+            if (head == RELEASED) {
+                return false;
+            }
+            waiter.next = head;
+        } while (!WAITERS.compareAndSet(this, head, waiter));
+        return true;
+    }
+
+    /**
+     * Unlinks a waiting Thread, which timed out or got interrupted, and all
+     * other Threads, which stopped waiting, from the stack.
+     *
+     * <p>Like {@link java.util.concurrent.FutureTask} the traversal is
+     * restarted if it races with another unlinking Thread.
+     *
+     * @param waiter the Waiter of the Thread, which stopped waiting
+     */
+    private void removeWaiter(Waiter waiter) {
+        waiter.thread = null;
+        retry:
+        while (true) {
+            Waiter previous = null;
+            for (Waiter current = waiters, next; current != null;
+                    current = next) {
+                if (current == RELEASED) {
+                    return;
+                }
+                next = current.next;
+                if (current.thread != null || current.action != null) {
+                    previous = current;
+                } else if (previous != null) {
+                    previous.next = next;
+                    if (previous.thread == null && previous.action == null) {
+                        continue retry;
+                    }
+                } else if (!WAITERS.compareAndSet(this, current, next)) {
+                    continue retry;
+                }
+            }
+            return;
+        }
+    }
+
+    /**
+     * Returns the number of Waiters in the stack.
+     *
+     * @return the number of waiting Threads and completion listeners or 0
+     *         if the waiters have been released
+     */
+    int getWaiterCount() {
+        int count = 0;
+        for (Waiter current = waiters; current != null && current != RELEASED;
+                current = current.next) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the result of this task and waits for it if necessary.
+     *
+     * <p>The calling Thread is parked until another Thread completes this
+     * task. So this must not be called by the Thread, which is supposed to
+     * run it.
+     *
+     * @return the result of this task
+     * @throws ExecutionException if this task threw an Exception
+     * @throws InterruptedException if the current Thread is interrupted
+     *         while waiting
+     * @throws CancellationException if this task got cancelled
+     */
+    @Override
+    public T get() throws ExecutionException, InterruptedException {
+        int current = state;
+        if (current <= RUNNING) {
+            current = awaitDone(false, 0L);
+        }
+        return report(current);
+    }
+
+    /**
+     * Returns the result of this task and waits at most the specified
+     * real time for it if necessary.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the TimeUnit of timeout
+     * @return the result of this task
+     * @throws ExecutionException if this task threw an Exception
+     * @throws InterruptedException if the current Thread is interrupted
+     *         while waiting
+     * @throws TimeoutException if this task is not completed in time
+     * @throws CancellationException if this task got cancelled
+     */
+    @Override
+    public T get(long timeout, TimeUnit unit)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        long nanos = unit.toNanos(timeout);
+        int current = state;
+        if (current <= RUNNING) {
+            current = awaitDone(true, nanos);
+            if (current <= RUNNING) {
+                throw new TimeoutException("Task was not done in "
+                        + timeout + ' ' + unit + '.');
+            }
+        }
+        return report(current);
+    }
+
+    /**
+     * Parks the current Thread until this task is completed, it is
+     * interrupted or the time out occurs.
+     *
+     * @param timed if the time out applies
+     * @param nanos the time out in nanos
+     * @return the state after waiting
+     * @throws InterruptedException if the current Thread is interrupted
+     */
+    private int awaitDone(boolean timed, long nanos)
+            throws InterruptedException {
+        long deadline = timed ? System.nanoTime() + nanos : 0L;
+        Waiter waiter = null;
+        boolean queued = false;
+        while (true) {
+            int current = state;
+            if (current > RUNNING) {
+                if (waiter != null) {
+                    waiter.thread = null;
+                }
+                return current;
+            }
+            if (Thread.interrupted()) {
+                if (queued) {
+                    removeWaiter(waiter);
+                }
+                throw new InterruptedException(
+                        ExecutorServiceHelper.INTERUPPTED_MESSAGE);
+            }
+            if (waiter == null) {
+                waiter = new Waiter(Thread.currentThread(), null, null);
+            } else if (!queued) {
+                queued = push(waiter);
+            } else if (timed) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0L) {
+                    removeWaiter(waiter);
+                    return state;
+                }
+                LockSupport.parkNanos(this, remaining);
+            } else {
+                LockSupport.park(this);
+            }
+        }
+    }
+
+    /**
+     * Returns the result or throws the exception according to the state.
+     *
+     * @param current the completed state
+     * @return the result of this task
+     * @throws ExecutionException if this task threw an Exception
+     * @throws CancellationException if this task got cancelled
+     */
+    @SuppressWarnings("unchecked")
+    private T report(int current) throws ExecutionException {
+        if (current == CANCELLED) {
+            throw new CancellationException(
+                    ExecutorServiceHelper.CANCELLATION_MESSAGE);
+        }
+        if (current == FAILED) {
+            throw new ExecutionException((Exception) outcome);
+        }
+        return (T) outcome;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (!STATE.compareAndSet(this, NEW, CANCELLED)) {
+            return false;
+        }
+        release();
+        return true;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return state == CANCELLED;
+    }
+
+    @Override
+    public boolean isDone() {
+        return state > RUNNING;
+    }
+
+    @Override
+    public boolean hasRun() {
+        int current = state;
+        return current == RAN || current == FAILED;
+    }
+
+    @Override
+    public boolean isExceptionHappened() {
+        return state == FAILED;
+    }
+
+    @Override
+    public void addListener(Runnable listener, Executor executor) {
+        Objects.requireNonNull(listener, "The listener must not be null.");
+        Objects.requireNonNull(executor, "The executor must not be null.");
+        if (!push(new Waiter(null, listener, executor))) {
+            ExecutorServiceHelper.runListener(listener, executor);
+        }
+    }
+
+    @Override
+    public String toString() {
+        int current = state;
+        StringBuilder sb = new StringBuilder("BlockingSequentialFuture[task=")
+                .append(callable)
+                .append(",state=");
+        if (current == CANCELLED) {
+            sb.append("cancelled");
+        } else if (current == FAILED) {
+            sb.append("done failure: ")
+                    .append(outcome.getClass().getName());
+        } else if (current == RAN) {
+            sb.append("done result: ").append(outcome);
+        } else {
+            sb.append("running");
+        }
+        return sb.append(']').toString();
+    }
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
@@ -0,0 +1,85 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A TimeListener which expires after a simulated amount of time.
+ *
+ * <p>A Deadline is used to honor time outs of operations which are
+ * not bound to a single future, e.g.
+ * {@link SequentialScheduledExecutorService#invokeAll(java.util.Collection,
+ * long, TimeUnit)}.
+ */
+final class Deadline implements TimeListener {
+
+    /**
+     * The remaining time in nanos before this Deadline expires.
+     */
+    private long remainingNanos;
+
+    /**
+     * Creates a new Deadline.
+     *
+     * @param timeout the time after which this Deadline expires
+     * @param unit the TimeUnit of timeout
+     * @throws NullPointerException if unit is null
+     */
+    Deadline(long timeout, TimeUnit unit) {
+        remainingNanos = Objects.requireNonNull(unit,
+                "The unit must not be null").toNanos(timeout);
+    }
+
+    /**
+     * Returns if this Deadline has expired.
+     *
+     * @return true if and only if the time out has passed
+     */
+    boolean isExpired() {
+        return remainingNanos <= 0L;
+    }
+
+    /**
+     * Reduces the passed time from the remaining time.
+     *
+     * @param time the time that has passed
+     * @param unit the TimeUnit of time
+     * @return true if this Deadline has expired
+     */
+    @Override
+    public boolean timePassed(long time, TimeUnit unit) {
+        remainingNanos -= Objects.requireNonNull(unit).toNanos(time);
+        return isExpired();
+    }
+
+    @Override
+    public String toString() {
+        return "Deadline[remainingNanos=" + remainingNanos + ']';
+    }
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
@@ -0,0 +1,71 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * A condition which evaluates to true if all of its futures are done.
+ *
+ * <p>Its String representation lists the futures which are not done yet,
+ * so a {@link TimeController} can report them if the condition can never
+ * become true.
+ */
+final class DoneCondition implements BooleanSupplier {
+
+    /**
+     * The futures which have to be done.
+     */
+    private final Collection<? extends Future<?>> futures;
+
+    /**
+     * Creates a new DoneCondition.
+     *
+     * @param futures the futures which have to be done
+     * @throws NullPointerException if futures is null
+     */
+    DoneCondition(Collection<? extends Future<?>> futures) {
+        this.futures = Objects.requireNonNull(futures,
+                "The futures must not be null.");
+    }
+
+    @Override
+    public boolean getAsBoolean() {
+        return futures.stream().allMatch(Future::isDone);
+    }
+
+    @Override
+    public String toString() {
+        return "DoneCondition[unsatisfied=" + futures.stream()
+                .filter(future -> !future.isDone())
+                .collect(Collectors.toList()) + ']';
+    }
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
@@ -0,0 +1,411 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A TimeController which notifies delayed TimeListeners in order of their
+ * deadlines.
+ *
+ * <p>TimeListeners, which are {@link Delayed} like scheduled tasks, are kept
+ * in a binary heap ordered by their deadline and, if deadlines are equal,
+ * by registration order. Instead of notifying all TimeListeners about all
+ * passed time at once, time passes from deadline to deadline. So scheduled
+ * tasks are run in deadline order at exactly their deadline, even if a lot of
+ * time passes at once. Only due TimeListeners are taken from the heap, which
+ * takes logarithmic time in the number of registered TimeListeners.
+ *
+ * <p>Delayed TimeListeners are notified lazily: They are notified about all
+ * the time passed since their last notification, when their deadline is
+ * reached. Meanwhile their own view of the time, like
+ * {@link Delayed#getDelay(TimeUnit)} of a scheduled task, is not updated.
+ * Other TimeListeners are notified whenever a deadline is reached and when
+ * letting time pass ends.
+ *
+ * <p>The deadline of a delayed TimeListener is read when time passes for the
+ * first time after it registered and after every notification.
+ *
+ * <p>Occupying this TimeController delays all notifications until the
+ * occupied time has passed, including the notifications within the same
+ * call of {@link #letTimePass(long, TimeUnit)}. So a task occupying it
+ * delays the tasks getting due meanwhile, which then run late in deadline
+ * order, no matter how large the steps time passes in are.
+ */
+final class EarliestDeadlineFirstTimeController implements TimeController {
+
+    /**
+     * A registered TimeListener.
+     */
+    private static final class Entry implements Comparable<Entry> {
+
+        /**
+         * The registered TimeListener.
+         */
+        private final TimeListener listener;
+
+        /**
+         * The registration order.
+         */
+        private final long sequence;
+
+        /**
+         * The time in nanos the listener was notified last.
+         */
+        private long notifiedAt;
+
+        /**
+         * The time in nanos the listener gets due.
+         */
+        private long deadline;
+
+        /**
+         * Indicates if the listener has been unregistered.
+         */
+        private boolean removed = false;
+
+        /**
+         * Creates a new Entry.
+         *
+         * @param listener the registered TimeListener
+         * @param sequence the registration order
+         * @param now the current time in nanos
+         */
+        private Entry(TimeListener listener, long sequence, long now) {
+            this.listener = listener;
+            this.sequence = sequence;
+            notifiedAt = now;
+        }
+
+        /**
+         * Notifies the listener about the time passed since the last
+         * notification.
+         *
+         * @param now the current time in nanos
+         * @return true if the listener wants to be unregistered
+         */
+        private boolean notify(long now) {
+            long passed = now - notifiedAt;
+            notifiedAt = now;
+            return listener.timePassed(passed, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int result = Long.compare(deadline, other.deadline);
+            if (result == 0) {
+                result = Long.compare(sequence, other.sequence);
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * The registered TimeListeners.
+     */
+    private final Map<TimeListener, Entry> entries = new HashMap<>();
+
+    /**
+     * The delayed TimeListeners ordered by deadline.
+     */
+    private final Queue<Entry> deadlines = new PriorityQueue<>();
+
+    /**
+     * The delayed TimeListeners whose deadline has not been read yet.
+     */
+    private final List<Entry> fresh = new ArrayList<>();
+
+    /**
+     * The TimeListeners, which are not delayed, in registration order.
+     */
+    private final List<Entry> others = new ArrayList<>();
+
+    /**
+     * The number of registrations.
+     */
+    private long registrations = 0L;
+
+    /**
+     * The simulated time in nanos passed since creation or the last reset.
+     */
+    private long now = 0L;
+
+    /**
+     * The time in nanos this TimeController is occupied until.
+     */
+    private long busyUntil = 0L;
+
+    /**
+     * Creates a new EarliestDeadlineFirstTimeController.
+     */
+    EarliestDeadlineFirstTimeController() {
+        super();
+    }
+
+    @Override
+    public void letTimePass(long time, TimeUnit unit) {
+        long target = now + unit.toNanos(time);
+        Entry next;
+        while ((next = nextDue(target)) != null) {
+            now = dueAt(next);
+            notifyOthers();
+            if (busyUntil > now) {
+                continue;
+            }
+            deadlines.poll();
+            if (!next.removed) {
+                renew(next, next.notify(now));
+            }
+        }
+        now = target;
+        if (busyUntil <= now) {
+            notifyOthers();
+        }
+    }
+
+    /**
+     * Returns the time a delayed TimeListener gets notified at.
+     *
+     * @param entry the entry of the delayed TimeListener
+     * @return its deadline or the end of the occupation, if later
+     */
+    private long dueAt(Entry entry) {
+        return Math.max(entry.deadline, busyUntil);
+    }
+
+    /**
+     * Returns the next delayed TimeListener, which gets due until target.
+     *
+     * @param target the time in nanos time passes until
+     * @return the next due entry or null if none gets due until target
+     */
+    private Entry nextDue(long target) {
+        admitFresh();
+        Entry next = deadlines.peek();
+        while (next != null && next.removed) {
+            deadlines.poll();
+            next = deadlines.peek();
+        }
+        return next == null || dueAt(next) > target ? null : next;
+    }
+
+    /**
+     * Reads the deadlines of newly registered delayed TimeListeners.
+     */
+    private void admitFresh() {
+        for (Entry entry : fresh) {
+            if (!entry.removed) {
+                entry.deadline = now + Math.max(0L, delayOf(entry));
+                deadlines.add(entry);
+            }
+        }
+        fresh.clear();
+    }
+
+    /**
+     * Puts a notified delayed TimeListener back in the heap or
+     * unregisters it.
+     *
+     * @param entry the notified entry
+     * @param done if the listener wants to be unregistered
+     */
+    private void renew(Entry entry, boolean done) {
+        if (done) {
+            unregister(entry.listener);
+        } else if (!entry.removed) {
+            entry.deadline = now + Math.max(1L, delayOf(entry));
+            deadlines.add(entry);
+        }
+    }
+
+    /**
+     * Notifies the TimeListeners, which are not delayed, about the time
+     * passed since their last notification.
+     */
+    private void notifyOthers() {
+        for (Entry entry : new ArrayList<>(others)) {
+            if (!entry.removed && entry.notifiedAt < now
+                    && entry.notify(now)) {
+                unregister(entry.listener);
+            }
+        }
+    }
+
+    /**
+     * Returns the remaining delay of a delayed TimeListener.
+     *
+     * @param entry the entry of the delayed TimeListener
+     * @return the remaining delay in nanos
+     */
+    private static long delayOf(Entry entry) {
+        return ((Delayed) entry.listener).getDelay(TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Lets the time pass until the condition evaluates to true.
+     *
+     * <p>Time passes from deadline to deadline, so this takes time
+     * logarithmic in the number of TimeListeners per reached deadline.
+     *
+     * @param condition the condition to wait until it evaluates to true
+     * @throws NullPointerException if condition is null
+     * @throws IllegalStateException if the condition evaluates to false
+     *         and no TimeListener is registered
+     */
+    @Override
+    public void letTimePassUntil(BooleanSupplier condition) {
+        while (!condition.getAsBoolean()) {
+            if (entries.isEmpty()) {
+                throw new IllegalStateException(
+                        TimeControllers.standstillMessage(condition, this));
+            }
+            letTimePass(nextStep(Long.MAX_VALUE), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Lets the time pass until the condition evaluates to true or
+     * the time out occurs.
+     *
+     * @param condition the condition to wait until it evaluates to true
+     * @param time the maximum time to wait
+     * @param unit the TimeUnit of time
+     * @throws NullPointerException if condition or unit is null
+     * @throws TimeoutException if the condition is still false after
+     *         time passed or no TimeListener is registered
+     */
+    @Override
+    public void letTimePassUntil(
+            BooleanSupplier condition, long time, TimeUnit unit)
+            throws TimeoutException {
+        long remaining = unit.toNanos(time);
+        while (!condition.getAsBoolean()) {
+            if (entries.isEmpty()) {
+                throw new TimeoutException(
+                        TimeControllers.standstillMessage(condition, this));
+            }
+            if (remaining == 0L) {
+                throw new TimeoutException(
+                        "The condition did not evaluate to true in "
+                                + time + ' ' + unit);
+            }
+            long step = nextStep(remaining);
+            letTimePass(step, TimeUnit.NANOSECONDS);
+            remaining -= step;
+        }
+    }
+
+    /**
+     * Returns the time until the next deadline.
+     *
+     * <p>If TimeListeners, which are not delayed, are registered, time
+     * passes in steps of a nanosecond once this TimeController is not
+     * occupied anymore.
+     *
+     * @param limit the maximum step in nanos
+     * @return the time in nanos until the next deadline, at least 1
+     */
+    private long nextStep(long limit) {
+        Entry next = nextDue(Long.MAX_VALUE);
+        long step = next == null || !others.isEmpty()
+                ? busyUntil - now : dueAt(next) - now;
+        return Math.min(limit, Math.max(1L, step));
+    }
+
+    @Override
+    public void occupy(long time, TimeUnit unit) {
+        long nanos = unit.toNanos(time);
+        if (nanos < 0L) {
+            throw new IllegalArgumentException(
+                    "The time must not be negative, but was '"
+                            + time + "'.");
+        }
+        busyUntil = Math.max(busyUntil, now) + nanos;
+    }
+
+    @Override
+    public void register(TimeListener listener) {
+        Objects.requireNonNull(listener);
+        if (entries.containsKey(listener)) {
+            return;
+        }
+        Entry entry = new Entry(listener, registrations++, now);
+        entries.put(listener, entry);
+        if (listener instanceof Delayed) {
+            fresh.add(entry);
+        } else {
+            others.add(entry);
+        }
+    }
+
+    @Override
+    public void unregister(TimeListener listener) {
+        Entry entry = entries.remove(Objects.requireNonNull(listener));
+        if (entry != null) {
+            entry.removed = true;
+            if (!(listener instanceof Delayed)) {
+                others.remove(entry);
+            }
+        }
+    }
+
+    @Override
+    public long getElapsedTime(TimeUnit unit) {
+        return unit.convert(now, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void reset() {
+        for (Entry entry : entries.values()) {
+            entry.removed = true;
+        }
+        entries.clear();
+        deadlines.clear();
+        fresh.clear();
+        others.clear();
+        registrations = 0L;
+        now = 0L;
+        busyUntil = 0L;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "[now=" + now
+                + ",TimeListener=" + entries.keySet() + ']';
+    }
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
@@ -25,6 +25,7 @@ package rex.palace.sequentialexecutor;
 
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 
 /**
@@ -44,6 +45,11 @@ final class ExecutorServiceHelper {
     static final String INTERUPPTED_MESSAGE
             = "Interrupted before the result was ready.";
 
+    /**
+     * The Executor running commands immediately in the calling Thread.
+     */
+    static final Executor DIRECT_EXECUTOR = Runnable::run;
+
     /**
      * Empty constructor since this is a utility class.
      */
@@ -51,6 +57,26 @@ final class ExecutorServiceHelper {
         super();
     }
 
+    /**
+     * Runs a completion listener with its executor.
+     *
+     * <p>A RuntimeException thrown by the listener or the executor is passed
+     * to the uncaught exception handler of the current Thread, so it neither
+     * keeps other listeners from running nor propagates to the Thread
+     * completing the task.
+     *
+     * @param listener the listener to run
+     * @param executor the executor to run listener with
+     */
+    static void runListener(Runnable listener, Executor executor) {
+        try {
+            executor.execute(listener);
+        } catch (RuntimeException e) {
+            Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+    }
+
     /**
      * Converts the specified {@link Runnable} to a {@link Callable} returning
      * the specified result.
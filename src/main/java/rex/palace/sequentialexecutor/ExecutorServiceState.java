@@ -50,7 +50,25 @@ public enum ExecutorServiceState {
     /**
      * Perform submitted tasks when awaitTermination() is called.
      */
-    AWAIT_TERMINATION(SequentialFutures::getOnCall);
+    AWAIT_TERMINATION(SequentialFutures::getOnCall),
+
+    /**
+     * Queue submitted tasks and perform them in submission order
+     * when drain() or get() on returned Futures is called.
+     *
+     * <p>Tasks submitted by running tasks are queued as well, so long
+     * chains of tasks do not let the stack grow.
+     */
+    TRAMPOLINE(SequentialFutures::getOnCall),
+
+    /**
+     * Queue submitted tasks and perform them in order of their priority
+     * when drain() or get() on returned Futures is called.
+     *
+     * <p>Tasks with a higher priority are performed first. Tasks with the
+     * same priority are performed in submission order.
+     */
+    PRIORITY(SequentialFutures::getOnCall);
 
     /**
      * An abstract factory interface for Futures.
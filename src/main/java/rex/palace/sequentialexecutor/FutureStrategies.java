@@ -0,0 +1,220 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+import java.util.Deque;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RunnableFuture;
+
+/**
+ * Static factory class for FutureStrategies.
+ *
+ * <p>The random failures are drawn from a seeded generator, so simulations
+ * using them are reproducible.
+ */
+public final class FutureStrategies {
+
+    /**
+     * The strategy running tasks when get() or drain() is called.
+     */
+    private static final FutureStrategy ON_CALL = new FutureStrategy() {
+
+        @Override
+        public <V> RunnableFuture<V> build(Callable<V> callable) {
+            return SequentialFutures.getOnCall(callable);
+        }
+
+    };
+
+    /**
+     * The strategy running tasks only when drain() is called.
+     */
+    private static final FutureStrategy ON_DRAIN = new FutureStrategy() {
+
+        @Override
+        public <V> RunnableFuture<V> build(Callable<V> callable) {
+            return SequentialFutures.getNeverDone(callable);
+        }
+
+    };
+
+    /**
+     * The strategy running tasks when drain() is called, whose Futures
+     * can be waited for by other Threads.
+     */
+    private static final FutureStrategy BLOCKING = new FutureStrategy() {
+
+        @Override
+        public <V> RunnableFuture<V> build(Callable<V> callable) {
+            return SequentialFutures.getBlocking(callable);
+        }
+
+    };
+
+    /**
+     * Private constructor since this is a utility class.
+     */
+    private FutureStrategies() {
+        super();
+    }
+
+    /**
+     * Returns a FutureStrategy, which runs a task when get() is called on
+     * its Future or drain() is called on the service.
+     *
+     * @return the on call FutureStrategy
+     */
+    public static FutureStrategy onCall() {
+        return ON_CALL;
+    }
+
+    /**
+     * Returns a FutureStrategy, which runs tasks only when drain() is
+     * called on the service.
+     *
+     * <p>Calling get() on a Future, whose task has not been drained yet,
+     * throws an {@link IllegalStateException}, since the task would never
+     * be run otherwise.
+     *
+     * @return the on drain FutureStrategy
+     */
+    public static FutureStrategy onDrain() {
+        return ON_DRAIN;
+    }
+
+    /**
+     * Returns a FutureStrategy, which runs tasks when drain() is called on
+     * the service and whose Futures can be waited for by other Threads.
+     *
+     * <p>The tasks are still run by the Thread calling drain(). Other
+     * Threads calling get() on a Future are parked until its task is
+     * completed, so multi-threaded tests can block on sequentially run
+     * tasks instead of polling isDone(). The outcome of a task is safely
+     * published to every Thread seeing it done.
+     *
+     * <p>Only the Futures are thread-safe, submitting tasks and draining
+     * must still happen in a single Thread.
+     *
+     * @return the blocking FutureStrategy
+     */
+    public static FutureStrategy blocking() {
+        return BLOCKING;
+    }
+
+    /**
+     * Returns a FutureStrategy, which runs a task after the specified number
+     * of further tasks has been submitted.
+     *
+     * <p>The tasks are run in submission order. Tasks, which are still
+     * queued, are run when get() is called on their Future or drain() is
+     * called on the service.
+     *
+     * @param submissions the number of further submissions a task waits for
+     * @return a FutureStrategy delaying tasks by submissions
+     * @throws IllegalArgumentException if submissions is negative
+     */
+    public static FutureStrategy afterSubmissions(int submissions) {
+        if (submissions < 0) {
+            throw new IllegalArgumentException(
+                    "The submissions must not be negative, but was '"
+                            + submissions + "'.");
+        }
+        return new FutureStrategy() {
+
+            @Override
+            public <V> RunnableFuture<V> build(Callable<V> callable) {
+                return SequentialFutures.getOnCall(callable);
+            }
+
+            @Override
+            public void submitted(RunnableFuture<?> future,
+                    Deque<RunnableFuture<?>> queue) {
+                while (queue.size() > submissions) {
+                    RunnableFuture<?> due = queue.poll();
+                    if (!due.isDone()) {
+                        due.run();
+                    }
+                }
+            }
+
+        };
+    }
+
+    /**
+     * Returns a FutureStrategy, which lets tasks fail with the specified
+     * probability and otherwise behaves like strategy.
+     *
+     * <p>Whether a task fails is drawn when it is run. A failing task is not
+     * called and completes exceptionally with an
+     * {@link IllegalStateException}.
+     *
+     * @param strategy the strategy deciding when tasks are run
+     * @param probability the probability of a task to fail
+     * @param seed the seed of the random generator
+     * @return a FutureStrategy with random failures
+     * @throws NullPointerException if strategy is null
+     * @throws IllegalArgumentException if probability is not between
+     *         0 and 1, both inclusive
+     */
+    public static FutureStrategy failing(FutureStrategy strategy,
+            double probability, long seed) {
+        Objects.requireNonNull(strategy, "The strategy must not be null.");
+        if (!(probability >= 0.0 && probability <= 1.0)) {
+            throw new IllegalArgumentException(
+                    "The probability must be between 0 and 1, but was '"
+                            + probability + "'.");
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        return new FutureStrategy() {
+
+            @Override
+            public <V> RunnableFuture<V> build(Callable<V> callable) {
+                Objects.requireNonNull(callable);
+                return strategy.build(() -> {
+                    if (random.nextDouble() < probability) {
+                        throw new IllegalStateException("Simulated failure.");
+                    }
+                    return callable.call();
+                });
+            }
+
+            @Override
+            public void submitted(RunnableFuture<?> future,
+                    Deque<RunnableFuture<?>> queue) {
+                strategy.submitted(future, queue);
+            }
+
+            @Override
+            public boolean runsOnDrain() {
+                return strategy.runsOnDrain();
+            }
+
+        };
+    }
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
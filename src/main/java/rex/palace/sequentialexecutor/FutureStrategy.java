@@ -0,0 +1,87 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RunnableFuture;
+
+/**
+ * A strategy deciding when tasks submitted to a
+ * {@link SequentialExecutorService} are run.
+ *
+ * <p>This is the extension point for modes the {@link ExecutorServiceState}s
+ * do not cover. A FutureStrategy is set by
+ * {@link SequentialExecutorService#setFutureStrategy(FutureStrategy)}.
+ * The service keeps the submitted tasks of every strategy in a queue
+ * of its own and counts them, so strategies can be stateless.
+ * Common strategies can be obtained by {@link FutureStrategies}.
+ */
+public interface FutureStrategy {
+
+    /**
+     * Creates a RunnableFuture for callable.
+     *
+     * <p>The returned RunnableFuture may run callable right away.
+     * Strategies usually build their futures by another strategy, like
+     * {@link FutureStrategies#onCall()}.
+     *
+     * @param callable the task to construct a future for
+     * @param <V> the return type of callable
+     * @return a RunnableFuture for callable
+     */
+    <V> RunnableFuture<V> build(Callable<V> callable);
+
+    /**
+     * Called after a future built by this strategy has been submitted.
+     *
+     * <p>The queue contains the submitted futures of this strategy, which
+     * have not been taken from it yet, in submission order. The submitted
+     * future is its last element. Implementations may take futures from
+     * the queue and run them.
+     *
+     * <p>The default implementation does nothing.
+     *
+     * @param future the submitted future
+     * @param queue the queued futures of this strategy
+     */
+    default void submitted(RunnableFuture<?> future,
+            Deque<RunnableFuture<?>> queue) {
+    }
+
+    /**
+     * Returns if the queued futures of this strategy are run by
+     * {@link SequentialExecutorService#drain()}.
+     *
+     * <p>The default implementation returns true.
+     *
+     * @return true if and only if drain() runs the queued futures
+     */
+    default boolean runsOnDrain() {
+        return true;
+    }
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
@@ -0,0 +1,230 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+
+/**
+ * The futures of a submitted {@link TaskGraph}.
+ *
+ * <p>The tasks of the graph are wrapped, so they are not run
+ * if one of their prerequisites did not complete successfully.
+ *
+ * @param <K> the type of the keys
+ */
+final class GraphRun<K> {
+
+    /**
+     * The submitted graph.
+     */
+    private final TaskGraph<K> graph;
+
+    /**
+     * The resolved prerequisites by the indices of the tasks.
+     */
+    private final int[][] prerequisites;
+
+    /**
+     * The indices of the tasks in the order they are run.
+     */
+    private final int[] order;
+
+    /**
+     * The futures by the indices of the tasks.
+     */
+    private final SequentialFuture<?>[] futures;
+
+    /**
+     * The position of the next task, which may not have been run.
+     */
+    private int cursor = 0;
+
+    /**
+     * The earliest finish times in nanos by the indices of the tasks.
+     */
+    private final long[] finish;
+
+    /**
+     * Creates a new GraphRun.
+     *
+     * <p>If the tasks are ordered by their earliest finish time, tasks with
+     * the same earliest finish time keep their topological order. Since a
+     * task finishes after its prerequisites if all tasks take time, this
+     * is a topological order as well.
+     *
+     * @param graph the graph to submit
+     * @param byFinish if the tasks shall be ordered by their
+     *                 earliest finish time
+     * @throws IllegalArgumentException if a prerequisite is missing or
+     *         the tasks depend on each other in a cycle
+     */
+    GraphRun(TaskGraph<K> graph, boolean byFinish) {
+        this.graph = graph;
+        prerequisites = graph.resolve();
+        int[] topological = graph.order(prerequisites);
+        finish = graph.earliestFinish(prerequisites, topological);
+        order = byFinish ? sortByFinish(topological, finish) : topological;
+        futures = new SequentialFuture<?>[order.length];
+    }
+
+    /**
+     * Sorts the indices of the tasks by their earliest finish time, keeping
+     * the given order of tasks with the same earliest finish time.
+     *
+     * <p>The finish times are replaced by their positions among the sorted
+     * finish times, which are packed with the positions of the tasks into
+     * longs, so the sort needs no boxing.
+     *
+     * @param indices the indices of the tasks in topological order
+     * @param finish the earliest finish times by the indices of the tasks
+     * @return the indices sorted by their earliest finish time
+     */
+    private static int[] sortByFinish(int[] indices, long[] finish) {
+        int size = indices.length;
+        long[] times = new long[size];
+        for (int position = 0; position < size; position++) {
+            times[position] = finish[indices[position]];
+        }
+        long[] sortedTimes = times.clone();
+        Arrays.sort(sortedTimes);
+        long[] keys = new long[size];
+        for (int position = 0; position < size; position++) {
+            long rank = Arrays.binarySearch(sortedTimes, times[position]);
+            keys[position] = rank << 32 | position;
+        }
+        Arrays.sort(keys);
+        int[] sorted = new int[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = indices[(int) keys[i]];
+        }
+        return sorted;
+    }
+
+    /**
+     * Returns the number of tasks.
+     *
+     * @return the number of tasks
+     */
+    int size() {
+        return order.length;
+    }
+
+    /**
+     * Returns the earliest finish time of the task at the specified position.
+     *
+     * @param position the position of the task
+     * @return the earliest finish time in nanos
+     */
+    long finish(int position) {
+        return finish[order[position]];
+    }
+
+    /**
+     * Returns the key of the task at the specified position.
+     *
+     * @param position the position of the task
+     * @return the key of the task
+     */
+    K key(int position) {
+        return graph.key(order[position]);
+    }
+
+    /**
+     * Returns the wrapped task at the specified position.
+     *
+     * <p>The wrapped task runs all tasks before it first, which have not
+     * been run yet. It fails with a {@link CancellationException} if a
+     * prerequisite did not complete successfully.
+     *
+     * @param position the position of the task
+     * @return the wrapped task
+     */
+    Callable<Object> task(int position) {
+        int index = order[position];
+        Callable<?> task = graph.task(index);
+        return () -> {
+            runUpTo(position);
+            for (int prerequisite : prerequisites[index]) {
+                SequentialFuture<?> future = futures[prerequisite];
+                if (!future.hasRun() || future.isExceptionHappened()) {
+                    throw new CancellationException("The prerequisite '"
+                            + graph.key(prerequisite) + "' of '"
+                            + graph.key(index)
+                            + "' did not complete successfully.");
+                }
+            }
+            return task.call();
+        };
+    }
+
+    /**
+     * Runs all tasks before the specified position, which are not done yet.
+     *
+     * <p>The tasks are run by a loop, so chains of dependent tasks
+     * do not let the stack grow.
+     *
+     * @param position the position of a task
+     */
+    private void runUpTo(int position) {
+        while (cursor < position) {
+            SequentialFuture<?> future = futures[order[cursor++]];
+            if (!future.isDone()) {
+                future.run();
+            }
+        }
+    }
+
+    /**
+     * Sets the future of the task at the specified position.
+     *
+     * @param position the position of the task
+     * @param future the future of the task
+     */
+    void setFuture(int position, Future<?> future) {
+        futures[order[position]] = (SequentialFuture<?>) future;
+    }
+
+    /**
+     * Returns the futures by the keys of their tasks in the order
+     * they are run.
+     *
+     * @return an unmodifiable map of the futures
+     */
+    Map<K, Future<?>> futures() {
+        Map<K, Future<?>> result = new LinkedHashMap<>();
+        for (int index : order) {
+            result.put(graph.key(index), futures[index]);
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
@@ -0,0 +1,287 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An executor which runs tasks of the same key sequentially and tasks of
+ * different keys in parallel.
+ *
+ * <p>Tasks are run on a real {@link Executor}, but no Thread is bound
+ * to a key. Every key with pending tasks owns a queue, which is drained
+ * by a single task on the executor at a time. To be fair to other keys,
+ * a drain runs at most {@code batchSize} tasks, before it resubmits itself
+ * to the executor. Keys without pending tasks are removed.
+ *
+ * @param <K> the type of the keys
+ */
+public class KeyedSequentialExecutor<K> {
+
+    /**
+     * The default number of tasks run per drain.
+     */
+    private static final int DEFAULT_BATCH_SIZE = 16;
+
+    /**
+     * The tasks of a single key.
+     */
+    private final class KeyQueue implements Runnable {
+
+        /**
+         * The key of this queue.
+         */
+        private final K key;
+
+        /**
+         * The pending tasks in submission order.
+         */
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+        /**
+         * Indicates if a drain of this queue is scheduled or running.
+         */
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+        /**
+         * Creates a new KeyQueue.
+         *
+         * @param key the key of this queue
+         */
+        private KeyQueue(K key) {
+            this.key = key;
+        }
+
+        /**
+         * Schedules a drain of this queue, if none is scheduled already.
+         */
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                    throw e;
+                }
+            }
+        }
+
+        /**
+         * Removes a task, whose drain the executor rejected, from this
+         * queue and removes this queue from its executor, if it is empty
+         * now.
+         *
+         * <p>Other pending tasks stay queued and are run by the next drain
+         * the executor accepts.
+         *
+         * @param task the rejected task
+         */
+        private void withdraw(Runnable task) {
+            tasks.removeIf(pending -> pending == task);
+            queues.computeIfPresent(key, (k, queue) -> queue == this
+                    && queue.tasks.isEmpty() ? null : queue);
+        }
+
+        /**
+         * Runs at most batchSize pending tasks.
+         *
+         * <p>If tasks are left, another drain is scheduled. Otherwise this
+         * queue is removed from its executor if no task arrived meanwhile.
+         * A removed queue is never scheduled again, since new tasks of its
+         * key are put into a new queue.
+         */
+        @Override
+        public void run() {
+            try {
+                for (int i = 0; i < batchSize; i++) {
+                    Runnable task = tasks.poll();
+                    if (task == null) {
+                        break;
+                    }
+                    task.run();
+                }
+            } finally {
+                // Tasks are only added inside compute on the map entry, so
+                // removing this queue there while it is empty loses no task.
+                // This still owns the drain, so no other drain can run
+                // tasks of this key meanwhile.
+                if (tasks.isEmpty() && queues.computeIfPresent(key,
+                        (k, queue) -> queue == this && queue.tasks.isEmpty()
+                                ? null : queue) != this) {
+                    return;
+                }
+                scheduled.set(false);
+                if (!tasks.isEmpty()) {
+                    schedule();
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "KeyQueue[key=" + key + ", pendingTasks = "
+                    + tasks.size() + ']';
+        }
+
+    }
+
+    /**
+     * The executor running the drains.
+     */
+    private final Executor executor;
+
+    /**
+     * The maximum number of tasks run per drain.
+     */
+    private final int batchSize;
+
+    /**
+     * The queues of all keys with pending tasks.
+     */
+    private final ConcurrentMap<K, KeyQueue> queues = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new KeyedSequentialExecutor.
+     *
+     * @param executor the executor to run the tasks on
+     * @throws NullPointerException if executor is null
+     */
+    public KeyedSequentialExecutor(Executor executor) {
+        this(executor, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a new KeyedSequentialExecutor.
+     *
+     * @param executor the executor to run the tasks on
+     * @param batchSize the maximum number of tasks of a key, which are run
+     *                  before other keys get their turn
+     * @throws NullPointerException if executor is null
+     * @throws IllegalArgumentException if batchSize is not positive
+     */
+    public KeyedSequentialExecutor(Executor executor, int batchSize) {
+        this.executor = Objects.requireNonNull(executor,
+                "The executor must not be null.");
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException(
+                    "The batchSize must be positive, but was '"
+                            + batchSize + "'.");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Submits a task which is run after all tasks previously submitted
+     * with an equal key.
+     *
+     * @param key the key of the task
+     * @param callable the task to run
+     * @param <T> the return type of callable
+     * @return a Future for callable
+     * @throws NullPointerException if key or callable is null
+     * @throws RejectedExecutionException if the executor rejects the task
+     */
+    public <T> Future<T> submit(K key, Callable<T> callable) {
+        FutureTask<T> future = new FutureTask<>(callable);
+        execute(key, future);
+        return future;
+    }
+
+    /**
+     * Submits a task which is run after all tasks previously submitted
+     * with an equal key.
+     *
+     * @param key the key of the task
+     * @param runnable the task to run
+     * @return a Future for runnable
+     * @throws NullPointerException if key or runnable is null
+     * @throws RejectedExecutionException if the executor rejects the task
+     */
+    public Future<?> submit(K key, Runnable runnable) {
+        return submit(key, ExecutorServiceHelper.convert(
+                Objects.requireNonNull(runnable), null));
+    }
+
+    /**
+     * Executes a task after all tasks previously submitted with an
+     * equal key.
+     *
+     * <p>Exceptions thrown by command are passed to the executor's
+     * Thread like any other uncaught exception, but do not stop the
+     * following tasks of the key.
+     *
+     * <p>If the executor rejects the task, it is removed from the queue
+     * of its key again, so it is never run.
+     *
+     * @param key the key of the task
+     * @param command the task to run
+     * @throws NullPointerException if key or command is null
+     * @throws RejectedExecutionException if the executor rejects the task
+     */
+    public void execute(K key, Runnable command) {
+        Objects.requireNonNull(command, "The command must not be null.");
+        KeyQueue queue = queues.compute(
+                Objects.requireNonNull(key, "The key must not be null."),
+                (k, existing) -> {
+                    KeyQueue result = existing == null
+                            ? new KeyQueue(k) : existing;
+                    result.tasks.add(command);
+                    return result;
+                });
+        try {
+            queue.schedule();
+        } catch (RejectedExecutionException e) {
+            queue.withdraw(command);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of keys with pending tasks.
+     *
+     * @return the number of keys with pending tasks
+     */
+    public int activeKeysCount() {
+        return queues.size();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[executor=" + executor
+                + ", activeKeys = " + queues.size() + ']';
+    }
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
@@ -0,0 +1,65 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+/**
+ * A Future accepting listeners, which are notified when it is completed.
+ *
+ * <p>The Futures returned by {@link SequentialExecutorService} and
+ * {@link SequentialScheduledExecutorService} are ListenableFutures, unless
+ * a custom {@link FutureStrategy} builds other Futures. So code awaiting
+ * them can react to their completion instead of polling {@link #isDone()}.
+ *
+ * @param <V> the result type of this Future
+ */
+public interface ListenableFuture<V> extends Future<V> {
+
+    /**
+     * Registers a listener, which is run by the executor as soon as this
+     * Future is completed.
+     *
+     * <p>A Future is completed if it has been cancelled or if its task has
+     * been run for the last time, regardless if it threw an exception.
+     * Periodic tasks are completed if they got cancelled or a run threw an
+     * exception. Every listener is run exactly once. If this Future is
+     * already completed, the listener is run right away.
+     *
+     * <p>The listeners are passed to their executors in registration order
+     * by the Thread completing this Future. A RuntimeException thrown by a
+     * listener or its executor is passed to the uncaught exception handler
+     * of that Thread, so it neither keeps the other listeners from running
+     * nor propagates to the code completing this Future.
+     *
+     * @param listener the listener to run on completion
+     * @param executor the executor to run listener with
+     * @throws NullPointerException if listener or executor is null
+     */
+    void addListener(Runnable listener, Executor executor);
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
@@ -0,0 +1,302 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An ExecutorService which runs its tasks in parallel, but completes
+ * their futures in submission order.
+ *
+ * <p>Tasks are run on a real thread pool, a {@link ForkJoinPool} by default.
+ * The outcome of a task is held back until all tasks submitted before it
+ * are done. Only then its future is completed, so {@code isDone()},
+ * {@code get()} and the {@link FutureTask#done()} callback of the
+ * futures are observed in submission order. For tasks without
+ * side effects the results are therefore identical across runs and
+ * across the number of cores, while the wall time scales with parallelism.
+ *
+ * <p>Note: A task which never terminates prevents all tasks submitted after
+ * it from being completed.
+ */
+public class OrderedParallelExecutorService extends AbstractExecutorService {
+
+    /**
+     * A FutureTask which does not complete until it is committed.
+     *
+     * @param <T> the result type of this task
+     */
+    private final class OrderedTask<T> extends FutureTask<T> {
+
+        /**
+         * The result of the run.
+         */
+        private T result;
+
+        /**
+         * The Throwable thrown during the run.
+         */
+        private Throwable failure;
+
+        /**
+         * Indicates if the run has finished.
+         *
+         * <p>It is written after result and failure, which are therefore
+         * visible to the committing Thread.
+         */
+        private volatile boolean ran = false;
+
+        /**
+         * Creates a new OrderedTask.
+         *
+         * @param callable the task to run
+         * @throws NullPointerException if callable is null
+         */
+        private OrderedTask(Callable<T> callable) {
+            super(callable);
+        }
+
+        /**
+         * Holds the result back until this task is committed.
+         *
+         * @param value the result of the run
+         */
+        @Override
+        protected void set(T value) {
+            result = value;
+            ran = true;
+            commit();
+        }
+
+        /**
+         * Holds the Throwable back until this task is committed.
+         *
+         * @param throwable the Throwable thrown during the run
+         */
+        @Override
+        protected void setException(Throwable throwable) {
+            failure = throwable;
+            ran = true;
+            commit();
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                commit();
+            }
+            return cancelled;
+        }
+
+        /**
+         * Returns the service this task has been created by.
+         *
+         * @return the enclosing OrderedParallelExecutorService
+         */
+        private OrderedParallelExecutorService owner() {
+            return OrderedParallelExecutorService.this;
+        }
+
+        /**
+         * Returns if this task can be committed.
+         *
+         * @return true if this task has been run or is done
+         */
+        private boolean isCommittable() {
+            return ran || isDone();
+        }
+
+        /**
+         * Completes this future with the outcome of the run.
+         */
+        private void publish() {
+            if (failure == null) {
+                super.set(result);
+            } else {
+                super.setException(failure);
+            }
+        }
+
+    }
+
+    /**
+     * The pool running the tasks.
+     */
+    private final ExecutorService pool;
+
+    /**
+     * The tasks which have not been committed yet in submission order.
+     *
+     * <p>All access is guarded by this queue's monitor.
+     */
+    private final Queue<OrderedTask<?>> uncommitted = new ArrayDeque<>();
+
+    /**
+     * Creates a new OrderedParallelExecutorService running its tasks on
+     * a new {@link ForkJoinPool}.
+     */
+    public OrderedParallelExecutorService() {
+        this(new ForkJoinPool());
+    }
+
+    /**
+     * Creates a new OrderedParallelExecutorService running its tasks
+     * on the specified pool.
+     *
+     * <p>The pool is shutdown if this service is shutdown.
+     *
+     * @param pool the pool to run the tasks on
+     * @throws NullPointerException if pool is null
+     */
+    public OrderedParallelExecutorService(ExecutorService pool) {
+        this.pool = Objects.requireNonNull(pool,
+                "The pool must not be null.");
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        return new OrderedTask<>(callable);
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return new OrderedTask<>(ExecutorServiceHelper.convert(runnable, value));
+    }
+
+    /**
+     * Runs the command in the pool.
+     *
+     * <p>Commands which have not been created by this service are run in
+     * submission order as well, but their completion is not observable.
+     *
+     * @param command the command to run
+     * @throws NullPointerException if command is null
+     * @throws java.util.concurrent.RejectedExecutionException if this
+     *         service is shutdown
+     */
+    @Override
+    public void execute(Runnable command) {
+        OrderedTask<?> task;
+        if (command instanceof OrderedTask
+                && ((OrderedTask<?>) command).owner() == this) {
+            task = (OrderedTask<?>) command;
+        } else {
+            task = new OrderedTask<>(ExecutorServiceHelper.convert(
+                    Objects.requireNonNull(command), null));
+        }
+        synchronized (uncommitted) {
+            uncommitted.add(task);
+        }
+        try {
+            pool.execute(task);
+        } catch (RuntimeException e) {
+            task.cancel(false);
+            throw e;
+        }
+    }
+
+    /**
+     * Completes all tasks at the head of the queue, which can be committed.
+     */
+    private void commit() {
+        synchronized (uncommitted) {
+            OrderedTask<?> head;
+            while ((head = uncommitted.peek()) != null
+                    && head.isCommittable()) {
+                uncommitted.remove();
+                if (!head.isDone()) {
+                    head.publish();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Shuts the pool down and cancels all tasks which have not been run yet.
+     *
+     * @return the tasks which got cancelled
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        pool.shutdownNow();
+        List<OrderedTask<?>> pending;
+        synchronized (uncommitted) {
+            pending = new ArrayList<>(uncommitted);
+        }
+        List<Runnable> cancelled = new ArrayList<>();
+        for (OrderedTask<?> task : pending) {
+            if (!task.isCommittable() && task.cancel(true)) {
+                cancelled.add(task);
+            }
+        }
+        commit();
+        return cancelled;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return pool.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return pool.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        return pool.awaitTermination(timeout, unit);
+    }
+
+    @Override
+    public String toString() {
+        int pending;
+        synchronized (uncommitted) {
+            pending = uncommitted.size();
+        }
+        return getClass().getSimpleName() + "[pool=" + pool
+                + ", uncommittedTasks = " + pending + ']';
+    }
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
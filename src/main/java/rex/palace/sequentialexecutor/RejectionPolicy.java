@@ -0,0 +1,63 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+/**
+ * The policies for tasks which are submitted while no capacity is left.
+ *
+ * <p>They are modeled on the handlers of
+ * {@link java.util.concurrent.ThreadPoolExecutor}.
+ */
+public enum RejectionPolicy {
+
+    /**
+     * Throw a {@link java.util.concurrent.RejectedExecutionException}.
+     */
+    ABORT,
+
+    /**
+     * Run the rejected task immediately in the calling Thread.
+     */
+    CALLER_RUNS,
+
+    /**
+     * Silently discard the rejected task. Its Future is cancelled.
+     */
+    DISCARD,
+
+    /**
+     * Discard the oldest waiting task and accept the new one.
+     * The Future of the discarded task is cancelled.
+     */
+    DISCARD_OLDEST,
+
+    /**
+     * Wait until waiting tasks have been run and capacity is available
+     * again, then accept the new task.
+     */
+    BLOCK_UNTIL_DRAINED
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
@@ -0,0 +1,234 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded record of the runs of a periodic task.
+ *
+ * <p>A RunHistory is passed to
+ * {@link SequentialScheduledExecutorService#scheduleWithFixedDelay(
+ * java.util.concurrent.Callable, long, long, TimeUnit, TaskCost, RunHistory)}
+ * and records the simulated time and the outcome of every run. Its storage
+ * is allocated once, so recording a run allocates nothing. If it is full,
+ * the oldest run is overwritten.
+ *
+ * <p>Runs are indexed from the oldest recorded run, which has index 0,
+ * to the latest one, which has index {@code size() - 1}.
+ *
+ * @param <T> the result type of the recorded task
+ */
+public final class RunHistory<T> {
+
+    /**
+     * The simulated times of the runs in nanos.
+     */
+    private final long[] times;
+
+    /**
+     * The results or exceptions of the runs.
+     */
+    private final Object[] outcomes;
+
+    /**
+     * Indicates for every run if it threw an exception.
+     */
+    private final boolean[] failures;
+
+    /**
+     * The position of the oldest recorded run.
+     */
+    private int head = 0;
+
+    /**
+     * The number of recorded runs.
+     */
+    private int size = 0;
+
+    /**
+     * The number of runs ever recorded.
+     */
+    private long recorded = 0L;
+
+    /**
+     * Creates a new RunHistory.
+     *
+     * @param capacity the maximum number of runs to record
+     * @throws IllegalArgumentException if capacity is not positive
+     */
+    public RunHistory(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException(
+                    "The capacity must be positive, but was '"
+                            + capacity + "'.");
+        }
+        times = new long[capacity];
+        outcomes = new Object[capacity];
+        failures = new boolean[capacity];
+    }
+
+    /**
+     * Records a run, overwriting the oldest one if this history is full.
+     *
+     * @param timeNanos the simulated time of the run in nanos
+     * @param outcome the result or the exception of the run
+     * @param failure if the run threw an exception
+     */
+    void record(long timeNanos, Object outcome, boolean failure) {
+        int position;
+        if (size < times.length) {
+            position = head + size;
+            if (position >= times.length) {
+                position -= times.length;
+            }
+            size++;
+        } else {
+            position = head;
+            head = head + 1 == times.length ? 0 : head + 1;
+        }
+        times[position] = timeNanos;
+        outcomes[position] = outcome;
+        failures[position] = failure;
+        recorded++;
+    }
+
+    /**
+     * Returns the maximum number of runs this history records.
+     *
+     * @return the capacity
+     */
+    public int capacity() {
+        return times.length;
+    }
+
+    /**
+     * Returns the number of recorded runs.
+     *
+     * @return the number of runs, which can be read
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of runs ever recorded including the overwritten
+     * ones.
+     *
+     * @return the number of all recorded runs
+     */
+    public long recordedCount() {
+        return recorded;
+    }
+
+    /**
+     * Returns the simulated time of a run, measured from the scheduling
+     * of the task.
+     *
+     * @param index the index of the run
+     * @param unit the TimeUnit of the returned time
+     * @return the time the run was due
+     * @throws NullPointerException if unit is null
+     * @throws IndexOutOfBoundsException if index is not between 0,
+     *         inclusive, and size(), exclusive
+     */
+    public long getTime(int index, TimeUnit unit) {
+        return unit.convert(times[position(index)], TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns if a run threw an exception.
+     *
+     * @param index the index of the run
+     * @return true if and only if the run threw an exception
+     * @throws IndexOutOfBoundsException if index is not between 0,
+     *         inclusive, and size(), exclusive
+     */
+    public boolean isFailure(int index) {
+        return failures[position(index)];
+    }
+
+    /**
+     * Returns the result of a run.
+     *
+     * @param index the index of the run
+     * @return the result or null if the run threw an exception
+     * @throws IndexOutOfBoundsException if index is not between 0,
+     *         inclusive, and size(), exclusive
+     */
+    @SuppressWarnings("unchecked")
+    public T getResult(int index) {
+        int position = position(index);
+        return failures[position] ? null : (T) outcomes[position];
+    }
+
+    /**
+     * Returns the exception a run threw.
+     *
+     * @param index the index of the run
+     * @return the exception or null if the run was successful
+     * @throws IndexOutOfBoundsException if index is not between 0,
+     *         inclusive, and size(), exclusive
+     */
+    public Exception getException(int index) {
+        int position = position(index);
+        return failures[position] ? (Exception) outcomes[position] : null;
+    }
+
+    /**
+     * Forgets all recorded runs.
+     */
+    public void clear() {
+        Arrays.fill(outcomes, null);
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Returns the position of the run with the specified index.
+     *
+     * @param index the index of the run
+     * @return the position in the arrays
+     * @throws IndexOutOfBoundsException if index is not between 0,
+     *         inclusive, and size(), exclusive
+     */
+    private int position(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("The index must be between 0"
+                    + " and " + size + ", but was '" + index + "'.");
+        }
+        int position = head + index;
+        return position >= times.length ? position - times.length : position;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "[size=" + size + ",capacity="
+                + times.length + ",recorded=" + recorded + ']';
+    }
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
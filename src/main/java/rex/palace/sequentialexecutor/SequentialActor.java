@@ -0,0 +1,225 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A front-end to a {@link SequentialExecutorService} accepting tasks from
+ * any Thread.
+ *
+ * <p>A SequentialExecutorService must only be used by a single Thread.
+ * A SequentialActor belongs to the Thread which created it, its owner.
+ * Any Thread may submit tasks to it. The tasks are put in a lock-free
+ * queue, so concurrent submitters never block each other. The order of the
+ * tasks is the order in which they were linked into the queue. Only when
+ * the owner calls {@link #drain()}, the tasks are passed to the service in
+ * this order and run there, so the execution stays sequential.
+ *
+ * <p>The returned Futures can be waited for by any Thread, see
+ * {@link FutureStrategies#blocking()}.
+ */
+public final class SequentialActor implements Executor {
+
+    /**
+     * A submitted task in the queue.
+     */
+    private static final class Message {
+
+        /**
+         * The future of the task.
+         */
+        private final SequentialFuture<?> future;
+
+        /**
+         * The next Message in the queue.
+         */
+        private volatile Message next;
+
+        /**
+         * Creates a new Message.
+         *
+         * @param future the future of the task
+         */
+        private Message(SequentialFuture<?> future) {
+            this.future = future;
+        }
+
+    }
+
+    /**
+     * The service running the tasks.
+     */
+    private final SequentialExecutorService service;
+
+    /**
+     * The Thread which may drain this actor.
+     */
+    private final Thread owner;
+
+    /**
+     * The number of submitted tasks.
+     */
+    private final AtomicLong submitted = new AtomicLong(0L);
+
+    /**
+     * The last Message in the queue.
+     */
+    private final AtomicReference<Message> tail;
+
+    /**
+     * The Message before the first one in the queue, only used by
+     * the owner.
+     */
+    private Message head;
+
+    /**
+     * The number of tasks passed to the service, only used by the owner.
+     */
+    private long passedCount = 0L;
+
+    /**
+     * Creates a new SequentialActor owned by the current Thread.
+     *
+     * @param service the service to run the tasks
+     * @throws NullPointerException if service is null
+     */
+    public SequentialActor(SequentialExecutorService service) {
+        this.service = Objects.requireNonNull(service,
+                "The service must not be null.");
+        owner = Thread.currentThread();
+        head = new Message(null);
+        tail = new AtomicReference<>(head);
+    }
+
+    /**
+     * Submits a task from any Thread.
+     *
+     * <p>The task is run after the owner called {@link #drain()}.
+     *
+     * @param task the task to submit
+     * @param <T> the type of task
+     * @return a Future for task, which can be waited for by any Thread
+     * @throws NullPointerException if task is null
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        SequentialFuture<T> future = SequentialFutures.getBlocking(task);
+        Message message = new Message(future);
+        tail.getAndSet(message).next = message;
+        submitted.incrementAndGet();
+        return future;
+    }
+
+    /**
+     * Submits a command from any Thread.
+     *
+     * @param command the command to run
+     * @throws NullPointerException if command is null
+     */
+    @Override
+    public void execute(Runnable command) {
+        submit(ExecutorServiceHelper.convert(
+                Objects.requireNonNull(command), null));
+    }
+
+    /**
+     * Passes the submitted tasks to the service in queue order and
+     * drains it.
+     *
+     * <p>The tasks are executed by the service according to its
+     * ExecutorServiceState or FutureStrategy, as if the owner executed them.
+     * A task, which is still being submitted by another Thread, and the tasks
+     * after it are passed on by the next call.
+     *
+     * @return the number of tasks passed to the service
+     * @throws IllegalStateException if the current Thread is not the owner
+     */
+    public int drain() {
+        if (Thread.currentThread() != owner) {
+            throw new IllegalStateException("Only the owner " + owner
+                    + " may drain " + this + '.');
+        }
+        int passed = 0;
+        Message message;
+        while ((message = head.next) != null) {
+            head = message;
+            pass(message);
+            passed++;
+        }
+        service.drain();
+        return passed;
+    }
+
+    /**
+     * Passes a task to the service.
+     *
+     * <p>If the service rejects it, its future fails with the
+     * RejectedExecutionException.
+     *
+     * @param message the message of the task
+     */
+    private void pass(Message message) {
+        passedCount++;
+        try {
+            service.execute(message.future);
+        } catch (RejectedExecutionException e) {
+            message.future.setException(e);
+        }
+    }
+
+    /**
+     * Returns the number of tasks submitted to this actor.
+     *
+     * @return the number of submitted tasks
+     */
+    public long getSubmittedTaskCount() {
+        return submitted.get();
+    }
+
+    /**
+     * Returns the number of tasks the owner passed to the service.
+     *
+     * <p>This must only be called by the owner.
+     *
+     * @return the number of passed tasks
+     */
+    public long getPassedTaskCount() {
+        return passedCount;
+    }
+
+    @Override
+    public String toString() {
+        return "SequentialActor[owner=" + owner.getName()
+                + ", service=" + service + ']';
+    }
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
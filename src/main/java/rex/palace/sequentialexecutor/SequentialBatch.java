@@ -0,0 +1,422 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A batch of tasks submitted at once.
+ *
+ * <p>Instead of constructing a future for every task, a SequentialBatch
+ * stores tasks, outcomes and states in shared arrays. The futures it
+ * contains are lightweight views onto these arrays, which are created
+ * on access.
+ *
+ * <p>Its elements behave like the futures of
+ * {@link SequentialFutures#getOnCall(Callable)} if the batch runs on get and
+ * like the futures of {@link SequentialFutures#getNeverDone(Callable)}
+ * otherwise.
+ *
+ * @param <T> the result type of the tasks
+ */
+final class SequentialBatch<T> extends AbstractList<Future<T>>
+        implements RandomAccess {
+
+    /**
+     * The state of a task which has not been run yet.
+     */
+    private static final byte NEW = 0;
+
+    /**
+     * The state of a task which has been run successfully.
+     */
+    private static final byte RAN = 1;
+
+    /**
+     * The state of a task which threw an exception.
+     */
+    private static final byte FAILED = 2;
+
+    /**
+     * The state of a task which got cancelled.
+     */
+    private static final byte CANCELLED = 3;
+
+    /**
+     * A view onto a single task of a SequentialBatch.
+     *
+     * @param <T> the result type of the task
+     */
+    private static final class Element<T> implements SequentialFuture<T> {
+
+        /**
+         * The batch this is a view of.
+         */
+        private final SequentialBatch<T> batch;
+
+        /**
+         * The index of the task in batch.
+         */
+        private final int index;
+
+        /**
+         * Creates a new Element.
+         *
+         * @param batch the batch this is a view of
+         * @param index the index of the task in batch
+         */
+        private Element(SequentialBatch<T> batch, int index) {
+            this.batch = batch;
+            this.index = index;
+        }
+
+        /**
+         * Returns the result of this task if it has been run.
+         *
+         * <p>If the batch runs on get, this task is run if it has
+         * not been run yet.
+         *
+         * @return the result of this task
+         * @throws ExecutionException if this task threw an Exception
+         * @throws InterruptedException if this task is not cancelled and
+         *         the current Thread is interrupted
+         * @throws CancellationException if this task got cancelled
+         * @throws IllegalStateException if this task has not been run
+         */
+        @Override
+        public T get() throws ExecutionException, InterruptedException {
+            if (isCancelled()) {
+                throw new CancellationException(
+                        ExecutorServiceHelper.CANCELLATION_MESSAGE);
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException(
+                        ExecutorServiceHelper.INTERUPPTED_MESSAGE);
+            }
+            if (batch.runOnGet && !hasRun()) {
+                run();
+            }
+            if (!hasRun()) {
+                throw new IllegalStateException("Task has not run yet.");
+            }
+            return batch.outcome(index);
+        }
+
+        @Override
+        public void run() {
+            batch.run(index);
+        }
+
+        @Override
+        public void setException(Exception exception) {
+            batch.outcomes[index] = exception;
+            batch.states[index] = FAILED;
+        }
+
+        @Override
+        public void setResult(T result) {
+            batch.outcomes[index] = result;
+            batch.states[index] = RAN;
+        }
+
+        @Override
+        public boolean isDone() {
+            return batch.states[index] != NEW;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return batch.states[index] == CANCELLED;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (isDone()) {
+                return false;
+            }
+            batch.states[index] = CANCELLED;
+            batch.fireCompletion(index);
+            return true;
+        }
+
+        @Override
+        public void addListener(Runnable listener, Executor executor) {
+            Objects.requireNonNull(listener, "The listener must not be null.");
+            Objects.requireNonNull(executor, "The executor must not be null.");
+            if (isDone()) {
+                ExecutorServiceHelper.runListener(listener, executor);
+            } else {
+                batch.addCompletionAction(index, listener, executor);
+            }
+        }
+
+        @Override
+        public boolean hasRun() {
+            byte state = batch.states[index];
+            return state == RAN || state == FAILED;
+        }
+
+        @Override
+        public boolean isExceptionHappened() {
+            return batch.states[index] == FAILED;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Element)) {
+                return false;
+            }
+            Element<?> other = (Element<?>) obj;
+            return batch == other.batch && index == other.index;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(batch) * 31 + index;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("SequentialFuture[task=")
+                    .append(batch.tasks[index])
+                    .append(",state=");
+            switch (batch.states[index]) {
+                case CANCELLED:
+                    sb.append("cancelled");
+                    break;
+                case FAILED:
+                    sb.append("done failure: ")
+                            .append(batch.outcomes[index].getClass().getName());
+                    break;
+                case RAN:
+                    sb.append("done result: ").append(batch.outcomes[index]);
+                    break;
+                default:
+                    sb.append("running");
+            }
+            return sb.append(']').toString();
+        }
+
+    }
+
+    /**
+     * The tasks of this batch.
+     */
+    private final Callable<?>[] tasks;
+
+    /**
+     * The results or exceptions of the tasks.
+     */
+    private final Object[] outcomes;
+
+    /**
+     * The states of the tasks.
+     */
+    private final byte[] states;
+
+    /**
+     * Indicates if the tasks are run when get() is called.
+     */
+    private final boolean runOnGet;
+
+    /**
+     * The listeners and their Executors to run when the tasks are
+     * completed, stored alternately per task in registration order, or null
+     * if no listener has been registered yet.
+     */
+    private Object[][] completionActions;
+
+    /**
+     * The number of listeners registered per task or null if no listener
+     * has been registered yet.
+     */
+    private int[] completionCounts;
+
+    /**
+     * Creates a new SequentialBatch.
+     *
+     * @param tasks the tasks of this batch
+     * @param runOnGet if tasks shall be run when get() is called
+     * @throws NullPointerException if tasks or any of its elements is null
+     */
+    SequentialBatch(Collection<? extends Callable<T>> tasks, boolean runOnGet) {
+        this.tasks = tasks.toArray(new Callable<?>[tasks.size()]);
+        for (Callable<?> task : this.tasks) {
+            Objects.requireNonNull(task, "The callable must not be null.");
+        }
+        outcomes = new Object[this.tasks.length];
+        states = new byte[this.tasks.length];
+        this.runOnGet = runOnGet;
+    }
+
+    @Override
+    public Future<T> get(int index) {
+        if (index < 0 || index >= tasks.length) {
+            throw new IndexOutOfBoundsException(
+                    "Index: " + index + ", Size: " + tasks.length);
+        }
+        return new Element<>(this, index);
+    }
+
+    @Override
+    public int size() {
+        return tasks.length;
+    }
+
+    /**
+     * Runs the task at the specified index.
+     *
+     * @param index the index of the task to run
+     * @throws CancellationException if the task got cancelled
+     */
+    private void run(int index) {
+        if (states[index] == CANCELLED) {
+            throw new CancellationException(
+                    ExecutorServiceHelper.CANCELLATION_MESSAGE);
+        }
+        try {
+            outcomes[index] = tasks[index].call();
+            states[index] = RAN;
+        } catch (Exception e) {
+            outcomes[index] = e;
+            states[index] = FAILED;
+        }
+        fireCompletion(index);
+    }
+
+    /**
+     * Registers a listener to run when the task at the specified
+     * index is completed.
+     *
+     * @param index the index of the task
+     * @param listener the listener to run
+     * @param executor the executor to run listener with
+     */
+    private void addCompletionAction(int index, Runnable listener,
+            Executor executor) {
+        if (completionActions == null) {
+            completionActions = new Object[tasks.length][];
+            completionCounts = new int[tasks.length];
+        }
+        Object[] actions = completionActions[index];
+        int position = 2 * completionCounts[index];
+        if (actions == null) {
+            actions = new Object[2];
+            completionActions[index] = actions;
+        } else if (position == actions.length) {
+            actions = Arrays.copyOf(actions, 2 * position);
+            completionActions[index] = actions;
+        }
+        actions[position] = listener;
+        actions[position + 1] = executor;
+        completionCounts[index]++;
+    }
+
+    /**
+     * Runs and forgets the listeners registered for the task at the
+     * specified index in registration order.
+     *
+     * <p>An exception thrown by a listener is passed to the uncaught
+     * exception handler and does not keep the other listeners from running.
+     *
+     * @param index the index of the completed task
+     */
+    private void fireCompletion(int index) {
+        if (completionActions == null) {
+            return;
+        }
+        Object[] actions = completionActions[index];
+        int count = completionCounts[index];
+        completionActions[index] = null;
+        completionCounts[index] = 0;
+        for (int i = 0; i < count; i++) {
+            ExecutorServiceHelper.runListener(
+                    (Runnable) actions[2 * i], (Executor) actions[2 * i + 1]);
+        }
+    }
+
+    /**
+     * Returns the outcome of the task at the specified index.
+     *
+     * @param index the index of the task which has been run
+     * @return the result of the task
+     * @throws ExecutionException if the task threw an exception
+     */
+    @SuppressWarnings("unchecked")
+    private T outcome(int index) throws ExecutionException {
+        if (states[index] == FAILED) {
+            throw new ExecutionException((Exception) outcomes[index]);
+        }
+        return (T) outcomes[index];
+    }
+
+    /**
+     * Runs all tasks which have neither been run nor cancelled.
+     */
+    void runAll() {
+        for (int i = 0; i < tasks.length; i++) {
+            if (states[i] == NEW) {
+                run(i);
+            }
+        }
+    }
+
+    /**
+     * Returns a stream of all tasks of this batch.
+     *
+     * @return a stream of all tasks of this batch
+     */
+    Stream<Runnable> tasks() {
+        return IntStream.range(0, tasks.length)
+                .mapToObj(index -> new Element<>(this, index));
+    }
+
+    /**
+     * Returns a stream of all tasks which are not done.
+     *
+     * @return a stream of all tasks which are not done
+     */
+    Stream<Runnable> notDoneTasks() {
+        return IntStream.range(0, tasks.length)
+                .filter(index -> states[index] == NEW)
+                .mapToObj(index -> new Element<>(this, index));
+    }
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
@@ -0,0 +1,234 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Static factory class for CompletableFutures adapting the futures
+ * returned by {@link SequentialExecutorService} and
+ * {@link SequentialScheduledExecutorService}.
+ *
+ * <p>The adapters are completed by the Thread completing the adapted future,
+ * so dependent stages, which are not async, are run synchronously and in
+ * registration order as soon as the task is completed.
+ *
+ * <p>Only waiting for the adapter itself drives the adapted task: Its
+ * {@code get} and {@code join} methods run tasks, which are run on call,
+ * and let simulated time pass for scheduled tasks. Dependent stages are
+ * plain CompletableFutures, so waiting for them does not drive the task.
+ * If the adapted task is run on call or scheduled, something else has to
+ * complete it, for instance waiting for the adapter or letting time pass,
+ * otherwise waiting for a dependent stage blocks forever.
+ *
+ * <p>Periodic tasks are completed only if they get cancelled or an exception
+ * occurs during a run.
+ */
+public final class SequentialCompletableFutures {
+
+    /**
+     * A CompletableFuture which is completed by a SequentialFuture.
+     *
+     * <p>Waiting for it causes the SequentialFuture to be waited for, so
+     * tasks which are run on call get run and simulated time passes
+     * for scheduled tasks.
+     *
+     * @param <T> the result type
+     */
+    private static final class AdapterFuture<T> extends CompletableFuture<T> {
+
+        /**
+         * The adapted future.
+         */
+        private final SequentialFuture<T> source;
+
+        /**
+         * Creates a new AdapterFuture.
+         *
+         * @param source the future to adapt
+         */
+        private AdapterFuture(SequentialFuture<T> source) {
+            super();
+            this.source = source;
+        }
+
+        /**
+         * Completes this future with the outcome of the adapted future.
+         *
+         * <p>The interrupt flag of the completing Thread is cleared while
+         * the outcome is read and restored afterwards, so an interrupted
+         * Thread completing the adapted future does not fail this future.
+         */
+        private void completeFromSource() {
+            if (source.isCancelled()) {
+                super.cancel(false);
+                return;
+            }
+            boolean interrupted = Thread.interrupted();
+            try {
+                complete(source.get());
+            } catch (ExecutionException e) {
+                completeExceptionally(e.getCause());
+            } catch (InterruptedException e) {
+                interrupted = true;
+                completeExceptionally(e);
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        /**
+         * Waits for the adapted future if neither this nor the adapted
+         * future is done yet.
+         *
+         * @throws InterruptedException if the current Thread is interrupted
+         */
+        private void awaitSource() throws InterruptedException {
+            if (!isDone() && !source.isDone()) {
+                try {
+                    source.get();
+                } catch (ExecutionException | CancellationException expected) {
+                    //completed by completeFromSource
+                }
+            }
+        }
+
+        @Override
+        public T get() throws InterruptedException, ExecutionException {
+            awaitSource();
+            return super.get();
+        }
+
+        @Override
+        public T get(long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException,
+                TimeoutException {
+            if (!isDone() && !source.isDone()) {
+                try {
+                    source.get(timeout, unit);
+                } catch (ExecutionException | CancellationException expected) {
+                    //completed by completeFromSource
+                }
+            }
+            return super.get(timeout, unit);
+        }
+
+        @Override
+        public T join() {
+            try {
+                awaitSource();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+            return super.join();
+        }
+
+        /**
+         * Cancels the adapted future and this.
+         *
+         * @param mayInterruptIfRunning passed to the adapted future
+         * @return true if this future is cancelled now
+         */
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            source.cancel(mayInterruptIfRunning);
+            return super.cancel(mayInterruptIfRunning);
+        }
+
+        @Override
+        public String toString() {
+            return "SequentialCompletableFuture[source=" + source + ','
+                    + super.toString() + ']';
+        }
+
+    }
+
+    /**
+     * Private constructor since this is a utility class.
+     */
+    private SequentialCompletableFutures() {
+        super();
+    }
+
+    /**
+     * Returns a CompletableFuture which is completed with the outcome
+     * of the specified future.
+     *
+     * <p>Cancelling the returned CompletableFuture cancels future.
+     *
+     * <p>Waiting for the returned CompletableFuture waits for future, so
+     * tasks, which are run on call, get run and simulated time passes for
+     * scheduled tasks. Waiting for stages depending on it does not, so
+     * for instance {@code of(future).thenApply(f).join()} blocks forever
+     * if future is run on call and nothing else runs it.
+     *
+     * @param future a future returned by a {@link SequentialExecutorService}
+     * @param <T> the result type of future
+     * @return a CompletableFuture adapting future
+     * @throws NullPointerException if future is null
+     * @throws IllegalArgumentException if future has not been returned by
+     *         a {@link SequentialExecutorService}
+     */
+    public static <T> CompletableFuture<T> of(Future<T> future) {
+        Objects.requireNonNull(future, "The future must not be null.");
+        if (!(future instanceof SequentialFuture)) {
+            throw new IllegalArgumentException("The future '" + future
+                    + "' has not been returned by a SequentialExecutorService.");
+        }
+        AdapterFuture<T> adapter
+                = new AdapterFuture<>((SequentialFuture<T>) future);
+        adapter.source.whenCompleted(adapter::completeFromSource);
+        return adapter;
+    }
+
+    /**
+     * Returns a CompletionStage which is completed with the outcome
+     * of the specified future.
+     *
+     * @param future a future returned by a {@link SequentialExecutorService}
+     * @param <T> the result type of future
+     * @return a CompletionStage adapting future
+     * @throws NullPointerException if future is null
+     * @throws IllegalArgumentException if future has not been returned by
+     *         a {@link SequentialExecutorService}
+     * @see #of(Future)
+     */
+    public static <T> CompletionStage<T> toCompletionStage(Future<T> future) {
+        return of(future);
+    }
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
@@ -24,14 +24,21 @@
 package rex.palace.sequentialexecutor;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 
@@ -39,6 +46,13 @@ import java.util.stream.Collectors;
  * An API breaking implementation for ExecutorService.
  *
  * <p>Its purpose is to test functionality under non parallel conditions.
+ *
+ * <p>Tasks may be submitted, shut down and counted by several Threads
+ * concurrently. The capacity is enforced atomically, and the task groups
+ * and the keyed tasks are kept in concurrent maps. Configuring the service,
+ * e.g. by {@link #setExecutorServiceState(ExecutorServiceState)},
+ * {@link #setCapacity(int, RejectionPolicy)} or {@link #reset()}, must not
+ * happen concurrently with submissions.
  */
 public class SequentialExecutorService implements ExecutorService {
 
@@ -50,23 +64,61 @@ public class SequentialExecutorService implements ExecutorService {
     /**
      * Indicates if shutdown was called.
      */
-    private boolean shutdown = false;
+    private volatile boolean shutdown = false;
 
     /**
      * Indicates if shutdownNow was called.
      */
-    private boolean shutdownNow = false;
+    private volatile boolean shutdownNow = false;
 
     /**
      * Indicates if this service has been shutdown.
      */
-    private boolean isShutdown = false;
+    private volatile boolean isShutdown = false;
 
     /**
      * The ExecutorServiceState this ExecutorService is in.
      */
     private ExecutorServiceState serviceState = ExecutorServiceState.IMMEDIATELY;
 
+    /**
+     * The FutureStrategy used instead of the ExecutorServiceState
+     * or null if the ExecutorServiceState is used.
+     */
+    private FutureStrategy futureStrategy = null;
+
+    /**
+     * The maximum number of tasks waiting to be run.
+     */
+    private int capacity = Integer.MAX_VALUE;
+
+    /**
+     * The policy for tasks submitted while no capacity is left.
+     */
+    private RejectionPolicy rejectionPolicy = RejectionPolicy.ABORT;
+
+    /**
+     * The number of rejected tasks.
+     */
+    private final LongAdder rejectedCount = new LongAdder();
+
+    /**
+     * The groups of tagged tasks by their tags.
+     */
+    private final Map<Object, TaskGroup> groups = new ConcurrentHashMap<>();
+
+    /**
+     * The Futures of keyed tasks, which are not done yet, by their keys.
+     */
+    private final Map<Object, Future<?>> inFlight
+            = new ConcurrentHashMap<>();
+
+    /**
+     * The number of keyed submissions, which returned the Future of
+     * a pending task instead of submitting a new one.
+     */
+    private final LongAdder coalescedCount = new LongAdder();
+
     /**
      * Creates a new SequentialExecutorService.
      */
@@ -87,11 +139,28 @@ public class SequentialExecutorService implements ExecutorService {
         }
     }
 
+    /**
+     * Runs the tasks until one of them completes successfully and
+     * returns its result.
+     *
+     * <p>Since tasks of this service take no time, the time out is ignored.
+     * {@link SequentialScheduledExecutorService} honors it in simulated time.
+     *
+     * @param tasks the tasks to run
+     * @param timeout ignored
+     * @param unit ignored
+     * @param <T> the type of the tasks
+     * @return the result of the first successful task
+     * @throws ExecutionException if no task completed successfully
+     * @throws InterruptedException if the current Thread is interrupted
+     * @throws TimeoutException never, but subclasses may throw it
+     * @throws RejectedExecutionException if this service is shutdown
+     */
     @Override
     public <T> T invokeAny(
             Collection<? extends Callable<T>> tasks,
             long timeout, TimeUnit unit)
-            throws ExecutionException, InterruptedException {
+            throws ExecutionException, InterruptedException, TimeoutException {
         return invokeAny(tasks);
     }
 
@@ -106,6 +175,20 @@ public class SequentialExecutorService implements ExecutorService {
                 .findAny().get().get();
     }
 
+    /**
+     * Submits all tasks according to the ExecutorServiceState.
+     *
+     * <p>Since tasks of this service take no time, the time out is ignored.
+     * {@link SequentialScheduledExecutorService} honors it in simulated time.
+     *
+     * @param tasks the tasks to submit
+     * @param timeout ignored
+     * @param unit ignored
+     * @param <T> the type of the tasks
+     * @return a list of Futures in the iteration order of tasks
+     * @throws NullPointerException if tasks or any of its elements is null
+     * @throws RejectedExecutionException if this service is shutdown
+     */
     @Override
     public <T> List<Future<T>> invokeAll(
             Collection<? extends Callable<T>> tasks,
@@ -113,11 +196,95 @@ public class SequentialExecutorService implements ExecutorService {
         return invokeAll(tasks);
     }
 
+    /**
+     * Submits all tasks according to the ExecutorServiceState.
+     *
+     * @param tasks the tasks to submit
+     * @param <T> the type of the tasks
+     * @return a list of Futures in the iteration order of tasks
+     * @throws NullPointerException if tasks or any of its elements is null
+     * @throws RejectedExecutionException if this service is shutdown
+     * @see #submitAll(Collection)
+     */
     @Override
     public <T> List<Future<T>> invokeAll(
             Collection<? extends Callable<T>> tasks) {
+        return submitAll(tasks);
+    }
+
+    /**
+     * Submits all tasks at once according to the ExecutorServiceState.
+     *
+     * <p>Unlike submitting every task on its own, the tasks share the
+     * storage of their results and exceptions. The returned Futures are
+     * lightweight views onto this storage, so this should be preferred
+     * for large numbers of tasks.
+     *
+     * @param tasks the tasks to submit
+     * @param <T> the type of the tasks
+     * @return an unmodifiable list of Futures in the iteration order of tasks
+     * @throws NullPointerException if tasks or any of its elements is null
+     * @throws RejectedExecutionException if this service is shutdown
+     */
+    public <T> List<Future<T>> submitAll(
+            Collection<? extends Callable<T>> tasks) {
+        if (futureStrategy != null) {
+            throwExceptionIfShutdown();
+            return Collections.unmodifiableList(tasks.stream()
+                    .map(task -> submit(task, futureStrategy))
+                    .collect(Collectors.toList()));
+        }
+        return submitAll(tasks, serviceState);
+    }
+
+    /**
+     * Submits all tasks at once according to the specified
+     * ExecutorServiceState.
+     *
+     * @param tasks the tasks to submit
+     * @param state the state defining how to submit
+     * @param <T> the type of the tasks
+     * @return an unmodifiable list of Futures in the iteration order of tasks
+     * @throws NullPointerException if tasks or any of its elements is null
+     * @throws RejectedExecutionException if this service is shutdown
+     */
+    <T> List<Future<T>> submitAll(
+            Collection<? extends Callable<T>> tasks,
+            ExecutorServiceState state) {
         throwExceptionIfShutdown();
-        return tasks.stream().map(this::submit).collect(Collectors.toList());
+        if (capacity != Integer.MAX_VALUE && TaskOrganizer.isWaiting(state)) {
+            return Collections.unmodifiableList(tasks.stream()
+                    .map(task -> submit(task, state))
+                    .collect(Collectors.toList()));
+        }
+        return organizer.submitAll(state, tasks);
+    }
+
+    /**
+     * Submits all tasks of the TaskGraph according to the
+     * ExecutorServiceState.
+     *
+     * <p>The tasks are run in topological order. Whenever a task is run,
+     * all tasks before it in this order, which have not been run yet,
+     * are run first. A task, whose prerequisite did not complete
+     * successfully, fails with a
+     * {@link java.util.concurrent.CancellationException}.
+     *
+     * <p>The tasks are submitted according to the ExecutorServiceState even
+     * if a FutureStrategy is set.
+     *
+     * @param graph the graph of tasks to submit
+     * @param <K> the type of the keys
+     * @return an unmodifiable map of the Futures by the keys of their tasks
+     *         in topological order
+     * @throws NullPointerException if graph is null
+     * @throws IllegalArgumentException if a prerequisite is missing or
+     *         the tasks depend on each other in a cycle
+     * @throws RejectedExecutionException if this service is shutdown
+     */
+    public <K> Map<K, Future<?>> submitGraph(TaskGraph<K> graph) {
+        throwExceptionIfShutdown();
+        return organizer.submitGraph(serviceState, graph);
     }
 
     @Override
@@ -127,14 +294,150 @@ public class SequentialExecutorService implements ExecutorService {
 
     @Override
     public <T> Future<T> submit(Runnable task, T result) {
-        return submit(task, serviceState, result);
+        return submit(ExecutorServiceHelper.convert(task, result));
     }
 
     @Override
     public <T> Future<T> submit(Callable<T> task) {
+        if (futureStrategy != null) {
+            return submit(task, futureStrategy);
+        }
         return submit(task, serviceState);
     }
 
+    /**
+     * Submits a task as {@link #submit(Callable)} does, unless a task
+     * submitted with an equal key is not done yet.
+     *
+     * <p>In that case the Future of the pending task is returned instead
+     * of submitting the task again, and the submission is counted by
+     * {@link #getCoalescedTaskCount()}. Once a task is done, the next
+     * submission with an equal key submits its task again. Tasks
+     * submitted with equal keys must have the same result type.
+     *
+     * @param key the key identifying equal tasks
+     * @param task the task to submit
+     * @param <T> the type of the task's result
+     * @return the Future of the pending task with an equal key or a
+     *         Future representing pending completion of task
+     * @throws NullPointerException if key or task is null
+     * @throws RejectedExecutionException if the task cannot be
+     *         scheduled for execution
+     */
+    public <T> Future<T> submitCoalesced(Object key, Callable<T> task) {
+        Objects.requireNonNull(key, "The key must not be null.");
+        Objects.requireNonNull(task, "The task must not be null.");
+        synchronized (inFlight) {
+            @SuppressWarnings("unchecked")
+            Future<T> pending = (Future<T>) inFlight.get(key);
+            if (pending != null && !pending.isDone()) {
+                coalescedCount.increment();
+                return pending;
+            }
+            Future<T> future = submit(task);
+            if (future.isDone()) {
+                inFlight.remove(key);
+                return future;
+            }
+            inFlight.put(key, future);
+            if (future instanceof ListenableFuture) {
+                ((ListenableFuture<T>) future).addListener(
+                        () -> inFlight.remove(key, future),
+                        ExecutorServiceHelper.DIRECT_EXECUTOR);
+            }
+            return future;
+        }
+    }
+
+    /**
+     * Returns the number of keyed submissions, which returned the Future
+     * of a pending task with an equal key instead of submitting their task.
+     *
+     * @return the number of coalesced submissions
+     * @see #submitCoalesced(Object, Callable)
+     */
+    public long getCoalescedTaskCount() {
+        return coalescedCount.sum();
+    }
+
+    /**
+     * Submits a task as {@link #submit(Callable)} does and adds it to the
+     * group of tasks with the same tag.
+     *
+     * @param tag the tag of the group
+     * @param task the task to submit
+     * @param <T> the type of the task's result
+     * @return a Future representing pending completion of the task
+     * @throws NullPointerException if tag or task is null
+     * @throws RejectedExecutionException if the task cannot be
+     *         scheduled for execution
+     * @see #getGroup(Object)
+     */
+    public <T> Future<T> submitTagged(Object tag, Callable<T> task) {
+        Objects.requireNonNull(tag, "The tag must not be null.");
+        Future<T> future = submit(task);
+        tagged(tag).add(future);
+        return future;
+    }
+
+    /**
+     * Returns the group of tasks with the tag, creating it if necessary.
+     *
+     * @param tag the tag of the group
+     * @return the group of tasks with the tag
+     */
+    final TaskGroup tagged(Object tag) {
+        return groups.computeIfAbsent(tag, TaskGroup::new);
+    }
+
+    /**
+     * Returns the group of tasks submitted with the tag.
+     *
+     * <p>A group keeps only the Futures of its pending tasks, but the
+     * group itself with its counters is kept for every tag used until
+     * {@link #reset()} is called.
+     *
+     * @param tag the tag of the group
+     * @return the group of tasks with the tag, which is empty if no
+     *         task has been submitted with the tag
+     * @throws NullPointerException if tag is null
+     */
+    public TaskGroup getGroup(Object tag) {
+        TaskGroup group = groups.get(
+                Objects.requireNonNull(tag, "The tag must not be null."));
+        return group == null ? new TaskGroup(tag) : group;
+    }
+
+    /**
+     * Attempts to cancel all tasks submitted with the tag.
+     *
+     * @param tag the tag of the group
+     * @param mayInterruptIfRunning passed to {@link Future#cancel(boolean)}
+     * @return the number of cancelled tasks
+     * @throws NullPointerException if tag is null
+     */
+    public int cancelGroup(Object tag, boolean mayInterruptIfRunning) {
+        return getGroup(tag).cancel(mayInterruptIfRunning);
+    }
+
+    /**
+     * Waits for all tasks submitted with the tag by calling
+     * {@link Future#get()} on those, which are not cancelled.
+     *
+     * <p>Tasks which are not done are run or, if they are scheduled,
+     * simulated time passes until they are done. Exceptions other than
+     * an ExecutionException thrown by {@code get()} are propagated,
+     * e.g. if a task can never be done.
+     *
+     * @param tag the tag of the group
+     * @return true if and only if all tasks of the group completed
+     *         regularly
+     * @throws NullPointerException if tag is null
+     */
+    public boolean awaitGroup(Object tag) {
+        return getGroup(tag).await();
+    }
+
     /**
      * Submits the Runnable according to the ExecutorServiceState.
      *
@@ -156,11 +459,136 @@ public class SequentialExecutorService implements ExecutorService {
      * @param state the state defining how to submit
      * @param <T> the type of callable
      * @return a Future for callable
+     * @throws RejectedExecutionException if this service is shutdown
      */
-    private <T> Future<T> submit(
+    <T> Future<T> submit(
             Callable<T> callable, ExecutorServiceState state) {
+        return submit(callable, state, TaskOrganizer.DEFAULT_PRIORITY);
+    }
+
+    /**
+     * Submits the Callable with a priority according to the
+     * ExecutorServiceState.
+     *
+     * @param callable the callable to submit
+     * @param state the state defining how to submit
+     * @param priority the priority of callable
+     * @param <T> the type of callable
+     * @return a Future for callable
+     * @throws RejectedExecutionException if this service is shutdown
+     */
+    private <T> Future<T> submit(
+            Callable<T> callable, ExecutorServiceState state, int priority) {
+        throwExceptionIfShutdown();
+        int limit = capacity;
+        Future<T> future = organizer.submit(state, callable, priority, limit);
+        if (future == null) {
+            return reject(callable,
+                    () -> organizer.submit(state, callable, priority, limit));
+        }
+        return future;
+    }
+
+    /**
+     * Submits the Callable according to the FutureStrategy.
+     *
+     * @param callable the callable to submit
+     * @param strategy the strategy defining how to submit
+     * @param <T> the type of callable
+     * @return a Future for callable
+     * @throws RejectedExecutionException if this service is shutdown
+     */
+    private <T> Future<T> submit(
+            Callable<T> callable, FutureStrategy strategy) {
         throwExceptionIfShutdown();
-        return organizer.submit(state, callable);
+        int limit = capacity;
+        Future<T> future = organizer.submit(strategy, callable, limit);
+        if (future == null) {
+            return reject(callable,
+                    () -> organizer.submit(strategy, callable, limit));
+        }
+        return future;
+    }
+
+    /**
+     * Submits the Callable in the {@link ExecutorServiceState#PRIORITY}
+     * state with the specified priority.
+     *
+     * <p>It is run by {@link #drain()} after all tasks with a higher priority
+     * and all tasks with the same priority submitted before it.
+     *
+     * @param task the task to submit
+     * @param priority the priority of task, higher values are run first
+     * @param <T> the type of task
+     * @return a Future for task
+     * @throws NullPointerException if task is null
+     * @throws RejectedExecutionException if this service is shutdown
+     */
+    public <T> Future<T> submitWithPriority(Callable<T> task, int priority) {
+        return submit(task, ExecutorServiceState.PRIORITY, priority);
+    }
+
+    /**
+     * Handles a task submitted while no capacity is left according to
+     * the RejectionPolicy.
+     *
+     * <p>The submission is retried until it finds capacity left, since
+     * other Threads may take the capacity freed for it.
+     *
+     * @param callable the task to handle
+     * @param submission submits callable if capacity is left and returns
+     *                   null otherwise
+     * @param <T> the type of callable
+     * @return a Future for callable
+     * @throws RejectedExecutionException if the RejectionPolicy is
+     *         {@link RejectionPolicy#ABORT}
+     */
+    private <T> Future<T> reject(
+            Callable<T> callable, Supplier<Future<T>> submission) {
+        switch (rejectionPolicy) {
+            case CALLER_RUNS:
+                rejectedCount.increment();
+                return organizer.submit(
+                        ExecutorServiceState.IMMEDIATELY, callable);
+            case DISCARD:
+                rejectedCount.increment();
+                Future<T> discarded = ExecutorServiceState.NEVER.submit(callable);
+                discarded.cancel(false);
+                return discarded;
+            case DISCARD_OLDEST:
+                rejectedCount.increment();
+                return retry(submission,
+                        () -> organizer.oldestPendingTask().cancel(false));
+            case BLOCK_UNTIL_DRAINED:
+                return retry(submission,
+                        () -> organizer.oldestPendingTask().run());
+            default:
+                rejectedCount.increment();
+                throw new RejectedExecutionException(
+                        "The capacity of " + this + " is exhausted.");
+        }
+    }
+
+    /**
+     * Frees capacity until the submission succeeds.
+     *
+     * @param submission submits a task if capacity is left and returns
+     *                   null otherwise
+     * @param free frees the capacity of one task
+     * @param <T> the type of the task
+     * @return the Future of the submitted task
+     */
+    private <T> Future<T> retry(Supplier<Future<T>> submission,
+            Runnable free) {
+        Future<T> future;
+        while ((future = submission.get()) == null) {
+            try {
+                free.run();
+            } catch (NoSuchElementException expected) {
+                //the waiting tasks have been completed by another Thread
+            }
+        }
+        return future;
     }
 
     @Override
@@ -205,12 +633,46 @@ public class SequentialExecutorService implements ExecutorService {
     /**
      * Executes the given command immediately in the calling thread.
      *
+     * <p>If this service is in the {@link ExecutorServiceState#TRAMPOLINE}
+     * or {@link ExecutorServiceState#PRIORITY} state, the command is queued
+     * instead and run by {@link #drain()}. If a FutureStrategy is set,
+     * the command is submitted according to it.
+     *
      * @param command the command to execute
      * @throws NullPointerException if command is null
      */
     @Override
     public void execute(Runnable command) {
-        submit(command, ExecutorServiceState.IMMEDIATELY, null);
+        if (futureStrategy != null) {
+            submit(ExecutorServiceHelper.convert(command, null),
+                    futureStrategy);
+        } else if (serviceState == ExecutorServiceState.TRAMPOLINE
+                || serviceState == ExecutorServiceState.PRIORITY) {
+            submit(command, serviceState, null);
+        } else {
+            submit(command, ExecutorServiceState.IMMEDIATELY, null);
+        }
+    }
+
+    /**
+     * Runs all tasks submitted in the {@link ExecutorServiceState#TRAMPOLINE}
+     * state in submission order and afterwards all tasks submitted in the
+     * {@link ExecutorServiceState#PRIORITY} state in order of their priority
+     * and finally the queued tasks of FutureStrategies, which run on drain,
+     * including the tasks they submit, until none is left.
+     *
+     * <p>Taking the next PRIORITY task takes logarithmic time in the number
+     * of queued tasks.
+     *
+     * <p>The tasks are run by a loop instead of recursively, so
+     * {@link java.util.concurrent.CompletableFuture} chains of any length
+     * using this service as executor can be run to completion without
+     * growing the stack.
+     *
+     * @return the number of tasks which have been run
+     */
+    public int drain() {
+        return organizer.drain();
     }
 
     /**
@@ -243,6 +705,162 @@ public class SequentialExecutorService implements ExecutorService {
      */
     public void setExecutorServiceState(ExecutorServiceState state) {
         serviceState = Objects.requireNonNull(state);
+        futureStrategy = null;
+    }
+
+    /**
+     * Sets the FutureStrategy deciding when submitted tasks are run.
+     *
+     * <p>The FutureStrategy is used instead of the ExecutorServiceState
+     * until {@link #setExecutorServiceState(ExecutorServiceState)} is
+     * called. Tasks of every FutureStrategy are kept and counted
+     * separately.
+     *
+     * @param strategy the FutureStrategy to use
+     * @throws NullPointerException if strategy is null
+     */
+    public void setFutureStrategy(FutureStrategy strategy) {
+        futureStrategy = Objects.requireNonNull(strategy,
+                "The strategy must not be null.");
+    }
+
+    /**
+     * Returns the FutureStrategy deciding when submitted tasks are run.
+     *
+     * @return the FutureStrategy or null if the ExecutorServiceState is used
+     */
+    public FutureStrategy getFutureStrategy() {
+        return futureStrategy;
+    }
+
+    /**
+     * Returns the number of tasks submitted according to the
+     * FutureStrategy.
+     *
+     * @param strategy the FutureStrategy to get the count of
+     * @return the number of tasks submitted according to strategy
+     */
+    public int getSubmittedTaskCount(FutureStrategy strategy) {
+        return organizer.submittedTasksCount(strategy);
+    }
+
+    /**
+     * Limits the number of tasks waiting to be run.
+     *
+     * <p>Tasks submitted in any state but
+     * {@link ExecutorServiceState#IMMEDIATELY} and
+     * {@link ExecutorServiceState#NEVER} wait until they are run or
+     * cancelled. If capacity tasks are waiting, newly submitted tasks are
+     * handled according to the specified RejectionPolicy:
+     * <ul>
+     *     <li>
+     *         {@link RejectionPolicy#ABORT} throws a
+     *         {@link RejectedExecutionException}.
+     *     </li>
+     *     <li>
+     *         {@link RejectionPolicy#CALLER_RUNS} runs the task immediately.
+     *     </li>
+     *     <li>
+     *         {@link RejectionPolicy#DISCARD} returns a cancelled Future.
+     *     </li>
+     *     <li>
+     *         {@link RejectionPolicy#DISCARD_OLDEST} cancels the task,
+     *         which waits the longest, and accepts the new one.
+     *     </li>
+     *     <li>
+     *         {@link RejectionPolicy#BLOCK_UNTIL_DRAINED} runs the tasks,
+     *         which wait the longest, until the new one can be accepted.
+     *         This is not counted as a rejection.
+     *     </li>
+     * </ul>
+     *
+     * <p>Tasks of {@link #submitAll(Collection)} are submitted on their own
+     * if the capacity is limited. Tasks submitted at once before count
+     * towards the capacity like any other waiting task.
+     *
+     * @param capacity the maximum number of waiting tasks
+     * @param rejectionPolicy the policy for tasks submitted while no
+     *                        capacity is left
+     * @throws NullPointerException if rejectionPolicy is null
+     * @throws IllegalArgumentException if capacity is not positive
+     */
+    public void setCapacity(int capacity, RejectionPolicy rejectionPolicy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException(
+                    "The capacity must be positive, but was '"
+                            + capacity + "'.");
+        }
+        this.rejectionPolicy = Objects.requireNonNull(rejectionPolicy,
+                "The rejectionPolicy must not be null.");
+        this.capacity = capacity;
+        organizer.trackPending();
+    }
+
+    /**
+     * Returns the maximum number of tasks waiting to be run.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the policy for tasks submitted while no capacity is left.
+     *
+     * @return the RejectionPolicy
+     */
+    public RejectionPolicy getRejectionPolicy() {
+        return rejectionPolicy;
+    }
+
+    /**
+     * Returns the number of tasks waiting to be run.
+     *
+     * <p>The tasks submitted by {@link #submitAll(Collection)} are
+     * counted as well.
+     *
+     * @return the number of waiting tasks
+     */
+    public int getPendingTaskCount() {
+        return organizer.pendingTasksCount();
+    }
+
+    /**
+     * Returns the number of tasks, which have been rejected, discarded or
+     * run by the caller since no capacity was left.
+     *
+     * @return the number of rejected tasks
+     */
+    public long getRejectedTaskCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * Resets this service to the state of a newly created one, so it can
+     * be reused instead of creating a new one.
+     *
+     * <p>All submitted tasks are forgotten without being run or cancelled,
+     * the shutdown flags, the ExecutorServiceState, the FutureStrategy,
+     * the capacity, the rejected task count, the task groups and the
+     * keyed tasks are reset. Internal
+     * containers keep their allocated capacity.
+     *
+     * <p>Futures returned before must not be used afterwards.
+     */
+    public void reset() {
+        organizer.reset();
+        shutdown = false;
+        shutdownNow = false;
+        isShutdown = false;
+        serviceState = ExecutorServiceState.IMMEDIATELY;
+        futureStrategy = null;
+        capacity = Integer.MAX_VALUE;
+        rejectionPolicy = RejectionPolicy.ABORT;
+        rejectedCount.reset();
+        groups.clear();
+        inFlight.clear();
+        coalescedCount.reset();
     }
 
     /**
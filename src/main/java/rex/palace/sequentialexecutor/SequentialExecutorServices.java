@@ -0,0 +1,68 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+/**
+ * Static factory class for SequentialExecutorServices.
+ */
+public final class SequentialExecutorServices {
+
+    /**
+     * The SequentialScheduledExecutorService of every Thread.
+     */
+    private static final ThreadLocal<SequentialScheduledExecutorService>
+            THREAD_LOCAL = ThreadLocal.withInitial(
+                    () -> new SequentialScheduledExecutorService(
+                            TimeControllers.getInstance()));
+
+    /**
+     * Private constructor since this is a utility class.
+     */
+    private SequentialExecutorServices() {
+        super();
+    }
+
+    /**
+     * Returns the SequentialScheduledExecutorService of the current Thread
+     * in the state of a newly created one.
+     *
+     * <p>Every Thread has a single instance using a TimeController
+     * returned by {@link TimeControllers#getInstance()}. It is reset by
+     * {@link SequentialScheduledExecutorService#reset()} on each call,
+     * so it can replace creating a new service and TimeController before
+     * every test. The service and its Futures returned by a previous call
+     * must not be used anymore.
+     *
+     * @return the reset SequentialScheduledExecutorService of the
+     *         current Thread
+     */
+    public static SequentialScheduledExecutorService getThreadLocal() {
+        SequentialScheduledExecutorService service = THREAD_LOCAL.get();
+        service.reset();
+        return service;
+    }
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
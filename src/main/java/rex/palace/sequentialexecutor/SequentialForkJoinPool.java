@@ -0,0 +1,76 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * A ForkJoinPool which runs all tasks in a single worker Thread.
+ *
+ * <p>Forked subtasks are pushed onto the queue of the only worker and a
+ * join runs them in last-in-first-out order, so fork and join happen in the
+ * same order on every run. This makes work-splitting bugs in code using
+ * {@link java.util.concurrent.RecursiveTask} or
+ * {@link java.util.concurrent.RecursiveAction} reproducible.
+ *
+ * <p>Parallel streams use the common pool, unless they are started by a task
+ * running in another ForkJoinPool. To run a parallel stream sequentially and
+ * deterministically, start it from a task submitted to this pool:
+ * <pre>{@code
+ * long sum = pool.submit(() -> list.parallelStream()
+ *         .mapToLong(Long::longValue).sum()).join();
+ * }</pre>
+ *
+ * <p>Note: Tasks forked by Threads not belonging to a ForkJoinPool are
+ * pushed to the common pool. Submit the root task with
+ * {@link #invoke(java.util.concurrent.ForkJoinTask)} instead of calling its
+ * {@code fork()} or {@code invoke()} method directly.
+ */
+public class SequentialForkJoinPool extends ForkJoinPool {
+
+    /**
+     * Creates a new SequentialForkJoinPool.
+     */
+    public SequentialForkJoinPool() {
+        super(1, SequentialForkJoinPool::newWorker, null, false);
+    }
+
+    /**
+     * Creates the worker Thread of the specified pool.
+     *
+     * @param pool the pool the worker belongs to
+     * @return a new worker Thread
+     */
+    private static ForkJoinWorkerThread newWorker(ForkJoinPool pool) {
+        ForkJoinWorkerThread worker
+                = defaultForkJoinWorkerThreadFactory.newThread(pool);
+        worker.setName(SequentialForkJoinPool.class.getSimpleName()
+                + "-worker");
+        return worker;
+    }
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
@@ -33,14 +33,15 @@ import java.util.concurrent.TimeoutException;
  *
  * <p>It concretes the Future type returned by {@link SequentialExecutorService}
  * and {@link SequentialScheduledExecutorService} and
- * provides callback methods for {@link CallableWrapper}.
+ * provides callback methods storing the outcome of a run.
  *
  * <p>It also has some methods to check if the task has been run
  * and if an exception happened during that run.
  *
  * @param <T> the type of the result
  */
-interface SequentialFuture<T> extends RunnableFuture<T> {
+interface SequentialFuture<T>
+        extends RunnableFuture<T>, ListenableFuture<T> {
 
     /**
      * Returns if this task has already been run.
@@ -56,21 +57,35 @@ interface SequentialFuture<T> extends RunnableFuture<T> {
     boolean isExceptionHappened();
 
     /**
-     * Callback method used by {@link CallableWrapper}, which is
-     * called if an exception occurred during the run.
+     * Callback method, which is called if an exception occurred
+     * during the run.
      *
      * @param exception the exception which occurred. It is never null.
      */
     void setException(Exception exception);
 
     /**
-     * Callback method used by {@link CallableWrapper}, which is
-     * called if the run was successful.
+     * Callback method, which is called if the run was successful.
      *
      * @param result the result of this task
      */
     void setResult(T result);
 
+    /**
+     * Registers an action which is run as soon as this task is completed.
+     *
+     * <p>A task is completed if it has been cancelled or if it has been run
+     * for the last time. If this task is already completed, the action
+     * is run immediately. The action is run by the Thread completing
+     * this task.
+     *
+     * @param action the action to run on completion
+     * @throws NullPointerException if action is null
+     */
+    default void whenCompleted(Runnable action) {
+        addListener(action, ExecutorServiceHelper.DIRECT_EXECUTOR);
+    }
+
     @Override
     default T get(long timeout, TimeUnit unit)
             throws ExecutionException, InterruptedException, TimeoutException {
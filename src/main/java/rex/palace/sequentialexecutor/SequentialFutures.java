@@ -206,6 +206,19 @@ final class SequentialFutures {
         return new OnCallFuture<>(callable);
     }
 
+    /**
+     * Returns a Future which other Threads can wait for until it is run.
+     *
+     * @param callable the task to execute
+     * @param <T> the return type of callable
+     * @return a thread-safe Future blocking on get() until it is run
+     * @throws NullPointerException if callable is null
+     * @see BlockingSequentialFuture
+     */
+    static <T> SequentialFuture<T> getBlocking(Callable<T> callable) {
+        return new BlockingSequentialFuture<>(callable);
+    }
+
     /**
      * Returns a Future which will be never run.
      *
@@ -23,18 +23,22 @@
 
 package rex.palace.sequentialexecutor;
 
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * An API breaking implementation of ScheduledExecutorService.
@@ -44,9 +48,15 @@ public class SequentialScheduledExecutorService
          implements ScheduledExecutorService {
 
     /**
-     * All tasks scheduled by this ExecutorService.
+     * The tasks scheduled by this ExecutorService, which are not done yet.
+     *
+     * <p>They are referenced weakly, so tasks nobody references anymore
+     * can be purged by a TimeController holding its TimeListeners weakly.
+     * A TimeController holding its TimeListeners strongly keeps them
+     * reachable anyway.
      */
-    private final List<SequentialScheduledFuture<?>> scheduledTasks = new ArrayList<>();
+    private final Set<SequentialScheduledFuture<?>> scheduledTasks
+            = Collections.newSetFromMap(new WeakHashMap<>());
 
     /**
      * The TimeController the futures generated by this register to.
@@ -64,14 +74,168 @@ public class SequentialScheduledExecutorService
     }
 
 
+    /**
+     * Runs the tasks one after another until one of them completes
+     * successfully and returns its result.
+     *
+     * <p>Tasks may simulate their duration by letting time pass on the
+     * TimeController of this service. Once the simulated time out has
+     * passed, no further task is run.
+     *
+     * @param tasks the tasks to run
+     * @param timeout the maximum simulated time to wait
+     * @param unit the TimeUnit of timeout
+     * @param <T> the type of the tasks
+     * @return the result of the first successful task
+     * @throws NullPointerException if tasks, any of its elements or
+     *         unit is null
+     * @throws IllegalArgumentException if tasks is empty
+     * @throws ExecutionException if no task completed successfully
+     * @throws InterruptedException if the current Thread is interrupted
+     * @throws TimeoutException if the time out passed before any task
+     *         completed successfully
+     * @throws java.util.concurrent.RejectedExecutionException if this
+     *         service is shutdown
+     */
+    @Override
+    public <T> T invokeAny(
+            Collection<? extends Callable<T>> tasks,
+            long timeout, TimeUnit unit)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        throwExceptionIfShutdown();
+        if (tasks.isEmpty()) {
+            throw new IllegalArgumentException("The tasks must not be empty.");
+        }
+        Deadline deadline = new Deadline(timeout, unit);
+        timeController.register(deadline);
+        try {
+            ExecutionException lastException = null;
+            for (Callable<T> task : tasks) {
+                if (deadline.isExpired()) {
+                    throw new TimeoutException(
+                            "No task completed successfully in " + timeout
+                                    + ' ' + unit);
+                }
+                try {
+                    return submit(task, ExecutorServiceState.IMMEDIATELY)
+                            .get();
+                } catch (ExecutionException e) {
+                    lastException = e;
+                }
+            }
+            throw lastException;
+        } finally {
+            timeController.unregister(deadline);
+        }
+    }
+
+    /**
+     * Runs the tasks one after another until all of them are done or
+     * the time out passed.
+     *
+     * <p>Tasks may simulate their duration by letting time pass on the
+     * TimeController of this service. Once the simulated time out has
+     * passed, the remaining tasks are cancelled without being run.
+     *
+     * @param tasks the tasks to run
+     * @param timeout the maximum simulated time to wait
+     * @param unit the TimeUnit of timeout
+     * @param <T> the type of the tasks
+     * @return a list of done Futures in the iteration order of tasks
+     * @throws NullPointerException if tasks, any of its elements or
+     *         unit is null
+     * @throws java.util.concurrent.RejectedExecutionException if this
+     *         service is shutdown
+     */
+    @Override
+    public <T> List<Future<T>> invokeAll(
+            Collection<? extends Callable<T>> tasks,
+            long timeout, TimeUnit unit) {
+        Deadline deadline = new Deadline(timeout, unit);
+        List<Future<T>> futures
+                = submitAll(tasks, ExecutorServiceState.ONCALL);
+        timeController.register(deadline);
+        try {
+            for (Future<T> future : futures) {
+                if (deadline.isExpired()) {
+                    future.cancel(true);
+                } else {
+                    ((Runnable) future).run();
+                }
+            }
+        } finally {
+            timeController.unregister(deadline);
+        }
+        return futures;
+    }
+
     @Override
     public <V> ScheduledFuture<V> schedule(Callable<V> callable,
             long delay, TimeUnit unit) {
+        return schedule(callable, delay, unit, TaskCosts.none());
+    }
+
+    /**
+     * Creates and executes a ScheduledFuture that becomes enabled after the
+     * given delay and whose run occupies the simulated time given by cost.
+     *
+     * <p>While the task runs, no other task can be run, so tasks getting due
+     * meanwhile are run late.
+     *
+     * @param callable the function to execute
+     * @param delay the time from now to delay execution
+     * @param unit the TimeUnit of delay
+     * @param cost the simulated time a run of callable takes
+     * @param <V> the type of the callable's result
+     * @return a ScheduledFuture that can be used to extract result or cancel
+     * @throws NullPointerException if callable, unit or cost is null
+     * @throws RejectedExecutionException if this executor is shut down
+     */
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable,
+            long delay, TimeUnit unit, TaskCost cost) {
         throwExceptionIfShutdown();
         SequentialScheduledFuture<V> future
                 = SequentialScheduledFutures.getDelayed(callable, delay,
-                unit, timeController);
-        scheduledTasks.add(future);
+                unit, timeController, cost);
+        track(future);
+        return future;
+    }
+
+    /**
+     * Schedules a task as {@link #schedule(Callable, long, TimeUnit)} does
+     * and adds it to the group of tasks with the same tag.
+     *
+     * <p>Once the task completed without being cancelled, the simulated
+     * time from scheduling to the start of its run is recorded as its
+     * latency in the group.
+     *
+     * @param tag the tag of the group
+     * @param callable the function to execute
+     * @param delay the time from now to delay execution
+     * @param unit the TimeUnit of delay
+     * @param <V> the type of the callable's result
+     * @return a ScheduledFuture that can be used to extract result or cancel
+     * @throws NullPointerException if tag, callable or unit is null
+     * @throws RejectedExecutionException if this executor is shut down
+     * @see #getGroup(Object)
+     */
+    public <V> ScheduledFuture<V> scheduleTagged(Object tag,
+            Callable<V> callable, long delay, TimeUnit unit) {
+        Objects.requireNonNull(tag, "The tag must not be null.");
+        throwExceptionIfShutdown();
+        SequentialScheduledFuture<V> future
+                = SequentialScheduledFutures.getDelayed(callable, delay,
+                unit, timeController, TaskCosts.none());
+        track(future);
+        TaskGroup group = tagged(tag);
+        group.add(future);
+        long delayNanos = unit.toNanos(delay);
+        future.addListener(() -> {
+            if (!future.isCancelled()) {
+                group.recordLatency(delayNanos
+                        - future.getDelay(TimeUnit.NANOSECONDS));
+            }
+        }, ExecutorServiceHelper.DIRECT_EXECUTOR);
         return future;
     }
 
@@ -90,21 +254,139 @@ public class SequentialScheduledExecutorService
     @Override
     public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command,
             long initialDelay, long delay, TimeUnit unit) {
+        return scheduleWithFixedDelay(
+                command, initialDelay, delay, unit, TaskCosts.none());
+    }
+
+    /**
+     * Creates and executes a periodic action whose runs occupy the simulated
+     * time given by cost.
+     *
+     * <p>The delay between the end of one run and the start of the next one
+     * is delay.
+     *
+     * @param command the task to execute
+     * @param initialDelay the time to delay first execution
+     * @param delay the delay between the termination of one
+     *              execution and the commencement of the next
+     * @param unit the TimeUnit of initialDelay and delay
+     * @param cost the simulated time a run of command takes
+     * @return a ScheduledFuture representing pending completion of the task
+     * @throws NullPointerException if command, unit or cost is null
+     * @throws RejectedExecutionException if this executor is shut down
+     * @throws IllegalArgumentException if delay is not positive
+     */
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command,
+            long initialDelay, long delay, TimeUnit unit, TaskCost cost) {
+        return schedulePeriodic(Executors.callable(command), initialDelay,
+                delay, unit, cost, null);
+    }
+
+    /**
+     * Creates and executes a periodic task whose runs occupy the simulated
+     * time given by cost and are recorded in history.
+     *
+     * <p>The delay between the end of one run and the start of the next one
+     * is delay. Every run is recorded in history at the simulated time it
+     * was due, measured from now, together with its result or exception.
+     * Recording a run does not allocate.
+     *
+     * @param callable the task to execute
+     * @param initialDelay the time to delay first execution
+     * @param delay the delay between the termination of one
+     *              execution and the commencement of the next
+     * @param unit the TimeUnit of initialDelay and delay
+     * @param cost the simulated time a run of callable takes
+     * @param history the RunHistory to record the runs in
+     * @param <V> the type of the callable's result
+     * @return a ScheduledFuture representing pending completion of the task
+     * @throws NullPointerException if callable, unit, cost or history is null
+     * @throws RejectedExecutionException if this executor is shut down
+     * @throws IllegalArgumentException if delay is not positive
+     */
+    public <V> ScheduledFuture<V> scheduleWithFixedDelay(Callable<V> callable,
+            long initialDelay, long delay, TimeUnit unit, TaskCost cost,
+            RunHistory<? super V> history) {
+        return schedulePeriodic(callable, initialDelay, delay, unit, cost,
+                Objects.requireNonNull(history,
+                        "The history must not be null."));
+    }
+
+    /**
+     * Creates and executes a periodic task.
+     *
+     * @param callable the task to execute
+     * @param initialDelay the time to delay first execution
+     * @param delay the delay between the termination of one
+     *              execution and the commencement of the next
+     * @param unit the TimeUnit of initialDelay and delay
+     * @param cost the simulated time a run of callable takes
+     * @param history the RunHistory to record the runs in or null
+     * @param <V> the type of the callable's result
+     * @return a ScheduledFuture representing pending completion of the task
+     * @throws NullPointerException if callable, unit or cost is null
+     * @throws RejectedExecutionException if this executor is shut down
+     * @throws IllegalArgumentException if delay is not positive
+     */
+    private <V> ScheduledFuture<V> schedulePeriodic(Callable<V> callable,
+            long initialDelay, long delay, TimeUnit unit, TaskCost cost,
+            RunHistory<? super V> history) {
         throwExceptionIfShutdown();
-        SequentialScheduledFuture<Object> future;
-        if (initialDelay == 0L) {
-            future = SequentialScheduledFutures.getPeriodic(
-                    Executors.callable(command), delay, unit, timeController);
-            future.timePassed(delay, unit);
-        } else {
-            future = SequentialScheduledFutures.getDelayedPeriodic(
-                    Executors.callable(command), initialDelay,
-                    delay, unit, timeController);
-        }
-        scheduledTasks.add(future);
+        SequentialScheduledFuture<V> future
+                = SequentialScheduledFutures.getPeriodic(callable,
+                initialDelay, delay, unit, timeController, cost, history);
+        track(future);
         return future;
     }
 
+    /**
+     * Keeps track of a scheduled task until it is done.
+     *
+     * @param future the scheduled task
+     */
+    private void track(SequentialScheduledFuture<?> future) {
+        scheduledTasks.add(future);
+        future.addListener(() -> scheduledTasks.remove(future),
+                ExecutorServiceHelper.DIRECT_EXECUTOR);
+    }
+
+    /**
+     * Schedules all tasks of the TaskGraph in simulated time.
+     *
+     * <p>Every task is run when its duration has passed after all its
+     * prerequisites have been run, as if all tasks not depending on each
+     * other ran in parallel. So the last task is run when the critical path
+     * of graph has passed. A task, whose prerequisite did not complete
+     * successfully, fails with a
+     * {@link java.util.concurrent.CancellationException}.
+     *
+     * <p>Tasks, which neither take time themselves nor have prerequisites
+     * taking time, are due immediately, so they are run before this
+     * method returns. Their Futures are not ScheduledFutures.
+     *
+     * @param graph the graph of tasks to schedule
+     * @param <K> the type of the keys
+     * @return an unmodifiable map of the Futures by the keys of their tasks
+     *         in the order they are run
+     * @throws NullPointerException if graph is null
+     * @throws IllegalArgumentException if a prerequisite is missing or
+     *         the tasks depend on each other in a cycle
+     * @throws RejectedExecutionException if this executor is shut down
+     * @see TaskGraph#criticalPath()
+     */
+    public <K> Map<K, Future<?>> scheduleGraph(TaskGraph<K> graph) {
+        throwExceptionIfShutdown();
+        GraphRun<K> run = new GraphRun<>(graph, true);
+        for (int position = 0; position < run.size(); position++) {
+            long finish = run.finish(position);
+            run.setFuture(position, finish == 0L
+                    ? SequentialFutures.getImmediately(run.task(position))
+                    : schedule(run.task(position), finish,
+                            TimeUnit.NANOSECONDS));
+        }
+        return run.futures();
+    }
+
     @Override
     public boolean awaitTermination(long timeout, TimeUnit unit)
             throws InterruptedException {
@@ -116,8 +398,7 @@ public class SequentialScheduledExecutorService
         }
         try {
             timeController.letTimePassUntil(
-                    () -> scheduledTasks.stream().allMatch(Future::isDone),
-                    timeout, unit);
+                    new DoneCondition(scheduledTasks), timeout, unit);
         } catch (TimeoutException e) {
             //expected
             return false;
@@ -125,14 +406,37 @@ public class SequentialScheduledExecutorService
         return super.awaitTermination(timeout, unit);
     }
 
+    /**
+     * Returns the TimeController the futures of this service register to.
+     *
+     * @return the TimeController of this service
+     */
+    public TimeController getTimeController() {
+        return timeController;
+    }
+
+    /**
+     * Resets this service and its TimeController to the state of newly
+     * created ones, so they can be reused instead of creating new ones.
+     *
+     * <p>Scheduled tasks are forgotten without being run. The
+     * TimeController is reset as well, which unregisters all TimeListeners
+     * and resets its clock.
+     *
+     * @throws UnsupportedOperationException if the TimeController of this
+     *         service does not support {@link TimeController#reset()}
+     */
+    @Override
+    public void reset() {
+        timeController.reset();
+        scheduledTasks.clear();
+        super.reset();
+    }
+
     @Override
     public List<Runnable> shutdownNow() {
         List<Runnable> superRunnables = super.shutdownNow();
-        Stream<Runnable> notFinishedScheduled =
-                scheduledTasks.stream()
-                .filter(future -> !future.isDone())
-                        .map(future -> (Runnable) future);
-        superRunnables.addAll(notFinishedScheduled.collect(Collectors.toList()));
+        superRunnables.addAll(scheduledTasks);
         return superRunnables;
     }
 
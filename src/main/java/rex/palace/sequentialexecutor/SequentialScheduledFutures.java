@@ -46,21 +46,24 @@ final class SequentialScheduledFutures {
          * @param initialDelay the initial delay to wait
          * @param unit the TimeUnit of initialDelay
          * @param timeController the timeController to register to
-         * @throws NullPointerException if callable, unit or timeController
-         *         is null
+         * @param cost the TaskCost of a run
+         * @throws NullPointerException if callable, unit, timeController
+         *         or cost is null
          * @throws IllegalArgumentException if initialDelay is not positive
          */
         private DelayedSequentialFuture(
                 Callable<T> callable, long initialDelay,
-                TimeUnit unit, TimeController timeController) {
-            super(callable, initialDelay, unit, timeController);
+                TimeUnit unit, TimeController timeController, TaskCost cost) {
+            super(callable, initialDelay, unit, timeController, cost);
         }
 
         @Override
         public boolean timePassed(long time, TimeUnit unit) {
             super.timePassed(time, unit);
             if (remainingDelay <= 0L) {
-                run();
+                if (!hasRun()) {
+                    run();
+                }
                 return true;
             }
             return false;
@@ -84,6 +87,17 @@ final class SequentialScheduledFutures {
          */
         private final long period;
 
+        /**
+         * The simulated time in nanos passed since this task was created.
+         */
+        private long elapsedNanos = 0L;
+
+        /**
+         * The RunHistory the runs are recorded in or null if they
+         * are not recorded.
+         */
+        private RunHistory<? super T> history = null;
+
         /**
          * Creates a new PeriodicSequentialFuture.
          *
@@ -91,19 +105,23 @@ final class SequentialScheduledFutures {
          * @param period the time between executions
          * @param timeUnit the TimeUnit of period
          * @param timeController the TimeController this gets registered to
-         * @throws NullPointerException if callable, timeUnit or timeController is null
+         * @param cost the TaskCost of a run
+         * @throws NullPointerException if callable, timeUnit, timeController
+         *         or cost is null
          * @throws IllegalArgumentException if period is not positive.
          */
         PeriodicSequentialFuture(
                 Callable<T> callable, long period,
-                TimeUnit timeUnit, TimeController timeController) {
-            super(callable, period, timeUnit, timeController);
+                TimeUnit timeUnit, TimeController timeController,
+                TaskCost cost) {
+            super(callable, period, timeUnit, timeController, cost);
             this.period = remainingDelay;
         }
 
         @Override
         public boolean timePassed(long time, TimeUnit unit) {
             super.timePassed(time, unit);
+            elapsedNanos += unit.toNanos(time);
             long delay;
             while ((delay = getDelay(TimeUnit.NANOSECONDS)) <= 0L) {
                 run();
@@ -111,18 +129,46 @@ final class SequentialScheduledFutures {
                     return true;
                 }
                 resetFuture();
-                timePassed(-delay, TimeUnit.NANOSECONDS);
+                remainingDelay += delay;
             }
             return false;
         }
 
+        /**
+         * Runs this task and records the run if a RunHistory is set.
+         *
+         * <p>The run is recorded at the simulated time it was due, even if
+         * it is run late because a lot of time passed at once.
+         */
+        @Override
+        public void run() {
+            long due = elapsedNanos + remainingDelay;
+            super.run();
+            if (history != null) {
+                history.record(due, getOutcome(), isExceptionHappened());
+            }
+        }
+
+        /**
+         * Returns if this task is completed, which happens if it got
+         * cancelled or an exception occurred during a run.
+         *
+         * @return true if and only if this task is never run again
+         */
+        @Override
+        protected boolean isCompleted() {
+            return isCancelled() || isExceptionHappened();
+        }
+
         /**
          * Resets this future to its initial state to be rerun.
+         *
+         * <p>The next run is delayed by the time the last run took.
          */
         private void resetFuture() {
             if (!isCancelled() && !isExceptionHappened()) {
-                remainingDelay = period;
-                ran = false;
+                remainingDelay = period + lastCostNanos;
+                resetRun();
             }
         }
 
@@ -155,16 +201,17 @@ final class SequentialScheduledFutures {
          *               first run
          * @param unit the TimeUnit of initialDelay and period
          * @param timeController the TimeController to be registered to
-         * @throws NullPointerException if callable, unit or timeController is
-         *         null
+         * @param cost the TaskCost of a run
+         * @throws NullPointerException if callable, unit, timeController or
+         *         cost is null
          * @throws IllegalArgumentException if initialDelay or period is not
          *         positive
          */
         private DelayedPeriodicSequentialFuture(
                 Callable<T> callable, long initialDelay,
                 long period, TimeUnit unit,
-                TimeController timeController) {
-            super(callable, period, unit, timeController);
+                TimeController timeController, TaskCost cost) {
+            super(callable, period, unit, timeController, cost);
             if (initialDelay <= 0L) {
                 throw new IllegalArgumentException(
                         "The initialDelay must be positive, but was '"
@@ -200,8 +247,30 @@ final class SequentialScheduledFutures {
     static <T> SequentialScheduledFuture<T> getDelayed(
             Callable<T> callable, long initialDelay,
             TimeUnit timeUnit, TimeController timeController) {
+        return getDelayed(callable, initialDelay, timeUnit, timeController,
+                TaskCosts.none());
+    }
+
+    /**
+     * Creates a SequentialScheduledFuture which gets run
+     * after an initial delay and whose run takes simulated time.
+     *
+     * @param callable the task to run
+     * @param initialDelay the delay before callable is run
+     * @param timeUnit the TimeUnit of initialDelay
+     * @param timeController the timeController which simulates time
+     * @param cost the TaskCost of running callable
+     * @param <T> the return type of callable
+     * @return a ScheduledFuture with an initial delay
+     * @throws NullPointerException if callable, timeUnit,
+     *         timeController or cost is null
+     * @throws IllegalArgumentException if initialDelay is not positive
+     */
+    static <T> SequentialScheduledFuture<T> getDelayed(
+            Callable<T> callable, long initialDelay,
+            TimeUnit timeUnit, TimeController timeController, TaskCost cost) {
         return new DelayedSequentialFuture<>(
-                callable, initialDelay, timeUnit, timeController);
+                callable, initialDelay, timeUnit, timeController, cost);
     }
 
     /**
@@ -220,8 +289,72 @@ final class SequentialScheduledFutures {
     static <T> SequentialScheduledFuture<T> getPeriodic(
             Callable<T> callable, long period,
             TimeUnit timeUnit, TimeController timeController) {
+        return getPeriodic(callable, period, timeUnit, timeController,
+                TaskCosts.none());
+    }
+
+    /**
+     * Creates a SequentialScheduledFuture which gets run periodically
+     * and whose runs take simulated time.
+     *
+     * @param callable the task to run
+     * @param period the period callable is rerun with
+     * @param timeUnit the TimeUnit of period
+     * @param timeController the timeController which simulates time
+     * @param cost the TaskCost of running callable
+     * @param <T> the return type of callable
+     * @return a ScheduledFuture with is rerun periodically
+     * @throws NullPointerException if callable, timeUnit,
+     *         timeController or cost is null
+     * @throws IllegalArgumentException if period is not positive
+     */
+    static <T> SequentialScheduledFuture<T> getPeriodic(
+            Callable<T> callable, long period,
+            TimeUnit timeUnit, TimeController timeController, TaskCost cost) {
         return new PeriodicSequentialFuture<>(
-                callable, period, timeUnit, timeController);
+                callable, period, timeUnit, timeController, cost);
+    }
+
+    /**
+     * Creates a SequentialScheduledFuture which gets run periodically
+     * after an initial delay, which may be zero, and records its runs.
+     *
+     * <p>If initialDelay is zero, the first run happens before this
+     * method returns.
+     *
+     * @param callable the task to run
+     * @param initialDelay the delay before callable is run
+     * @param period the period callable is rerun with
+     * @param timeUnit the TimeUnit of period
+     * @param timeController the timeController which simulates time
+     * @param cost the TaskCost of running callable
+     * @param history the RunHistory to record the runs in or null if
+     *                they shall not be recorded
+     * @param <T> the return type of callable
+     * @return a ScheduledFuture with is rerun periodically
+     * @throws NullPointerException if callable, timeUnit,
+     *         timeController or cost is null
+     * @throws IllegalArgumentException if period is not positive or
+     *         initialDelay is negative
+     */
+    static <T> SequentialScheduledFuture<T> getPeriodic(
+            Callable<T> callable, long initialDelay, long period,
+            TimeUnit timeUnit, TimeController timeController, TaskCost cost,
+            RunHistory<? super T> history) {
+        PeriodicSequentialFuture<T> future;
+        if (initialDelay == 0L) {
+            future = new PeriodicSequentialFuture<>(
+                    callable, period, timeUnit, timeController, cost);
+        } else {
+            future = new DelayedPeriodicSequentialFuture<>(callable,
+                    initialDelay, period, timeUnit, timeController, cost);
+        }
+        future.history = history;
+        if (initialDelay == 0L) {
+            future.remainingDelay = 0L;
+            future.timePassed(0L, TimeUnit.NANOSECONDS);
+        }
+        return future;
     }
 
     /**
@@ -243,8 +376,32 @@ final class SequentialScheduledFutures {
     static <T> SequentialScheduledFuture<T> getDelayedPeriodic(
             Callable<T> callable, long initialDelay, long period,
             TimeUnit timeUnit, TimeController timeController) {
-        return new DelayedPeriodicSequentialFuture<>(
-                callable, initialDelay, period, timeUnit, timeController);
+        return getDelayedPeriodic(callable, initialDelay, period, timeUnit,
+                timeController, TaskCosts.none());
+    }
+
+    /**
+     * Creates a SequentialScheduledFuture which gets run periodically
+     * after an initial delay and whose runs take simulated time.
+     *
+     * @param callable the task to run
+     * @param initialDelay the delay before callable is run
+     * @param period the period callable is rerun with
+     * @param timeUnit the TimeUnit of period
+     * @param timeController the timeController which simulates time
+     * @param cost the TaskCost of running callable
+     * @param <T> the return type of callable
+     * @return a ScheduledFuture with is rerun periodically
+     * @throws NullPointerException if callable, timeUnit,
+     *         timeController or cost is null
+     * @throws IllegalArgumentException if period or initialDelay
+     *         is not positive
+     */
+    static <T> SequentialScheduledFuture<T> getDelayedPeriodic(
+            Callable<T> callable, long initialDelay, long period,
+            TimeUnit timeUnit, TimeController timeController, TaskCost cost) {
+        return new DelayedPeriodicSequentialFuture<>(callable, initialDelay,
+                period, timeUnit, timeController, cost);
     }
 
 }
@@ -0,0 +1,372 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+
+/**
+ * A publisher, which emits an item every period of simulated time to a
+ * single subscriber with backpressure.
+ *
+ * <p>The subscriber signals demand by {@link #request(long)}. Items are only
+ * delivered while there is outstanding demand. Items emitted without demand
+ * are buffered and, if the buffer is full, the oldest buffered items are
+ * dropped. Buffered items are delivered up to the outstanding demand in a
+ * single pass whenever demand is requested.
+ *
+ * <p>Items are only created on delivery and dropped items are counted
+ * instead of created, so letting a lot of simulated time pass is cheap even
+ * for periods of a few nanoseconds.
+ *
+ * <p>A delivery pass is run by an Executor. By default it is run directly by
+ * the Thread letting time pass or requesting demand. With a
+ * {@link SequentialExecutorService} as Executor the passes are ordered with
+ * the other tasks of the service, e.g. they are queued in the
+ * {@link ExecutorServiceState#TRAMPOLINE} state and run by
+ * {@link SequentialExecutorService#drain()}. The Executor must run the
+ * passes in the Thread using this publisher. At most one pass is scheduled
+ * at a time. Items emitted while a pass is scheduled are buffered and
+ * delivered by this pass. Demand requested by the subscriber while it
+ * receives an item is honored by the running pass instead of a nested one.
+ *
+ * <p>The subscription can be cancelled at any time, also by the subscriber
+ * while it receives an item or by a task run while time passes. The
+ * TimeListener emitting the items is unregistered by the TimeController
+ * the next time time passes.
+ *
+ * @param <T> the type of the items
+ */
+public class SimulatedIntervalPublisher<T> {
+
+    /**
+     * The TimeController driving this publisher.
+     */
+    private final TimeController timeController;
+
+    /**
+     * The period in nanos between two items.
+     */
+    private final long period;
+
+    /**
+     * Creates the item with the specified index.
+     */
+    private final LongFunction<? extends T> items;
+
+    /**
+     * The maximum number of buffered items.
+     */
+    private final int bufferCapacity;
+
+    /**
+     * The Executor running the delivery passes.
+     */
+    private final Executor deliveryExecutor;
+
+    /**
+     * The TimeListener which emits the items.
+     */
+    private final TimeListener clock = this::timePassed;
+
+    /**
+     * The subscriber or null if there is none.
+     */
+    private Consumer<? super T> subscriber;
+
+    /**
+     * Indicates if the subscription has been cancelled.
+     */
+    private boolean cancelled = false;
+
+    /**
+     * Indicates if a delivery pass is scheduled or running.
+     */
+    private boolean delivering = false;
+
+    /**
+     * The time in nanos since the last emitted item.
+     */
+    private long sinceLastItem = 0L;
+
+    /**
+     * The outstanding demand.
+     */
+    private long demand = 0L;
+
+    /**
+     * The number of emitted items. The index of the next item.
+     */
+    private long emitted = 0L;
+
+    /**
+     * The index of the oldest buffered item.
+     */
+    private long head = 0L;
+
+    /**
+     * The number of delivered items.
+     */
+    private long delivered = 0L;
+
+    /**
+     * Creates a new SimulatedIntervalPublisher.
+     *
+     * @param timeController the TimeController driving this publisher
+     * @param period the simulated time between two items
+     * @param unit the TimeUnit of period
+     * @param items creates the item with the specified index, starting at 0
+     * @param bufferCapacity the maximum number of items buffered
+     *                       without demand
+     * @throws NullPointerException if timeController, unit or items is null
+     * @throws IllegalArgumentException if period is not positive or
+     *         bufferCapacity is negative
+     */
+    public SimulatedIntervalPublisher(TimeController timeController,
+            long period, TimeUnit unit, LongFunction<? extends T> items,
+            int bufferCapacity) {
+        this(timeController, period, unit, items, bufferCapacity,
+                ExecutorServiceHelper.DIRECT_EXECUTOR);
+    }
+
+    /**
+     * Creates a new SimulatedIntervalPublisher, whose delivery passes are
+     * run by the specified Executor.
+     *
+     * @param timeController the TimeController driving this publisher
+     * @param period the simulated time between two items
+     * @param unit the TimeUnit of period
+     * @param items creates the item with the specified index, starting at 0
+     * @param bufferCapacity the maximum number of items buffered
+     *                       without demand
+     * @param deliveryExecutor runs the delivery passes in the Thread using
+     *                         this publisher
+     * @throws NullPointerException if timeController, unit, items or
+     *         deliveryExecutor is null
+     * @throws IllegalArgumentException if period is not positive or
+     *         bufferCapacity is negative
+     */
+    public SimulatedIntervalPublisher(TimeController timeController,
+            long period, TimeUnit unit, LongFunction<? extends T> items,
+            int bufferCapacity, Executor deliveryExecutor) {
+        this.deliveryExecutor = Objects.requireNonNull(deliveryExecutor,
+                "The deliveryExecutor must not be null.");
+        this.timeController = Objects.requireNonNull(timeController,
+                "The timeController must not be null.");
+        this.items = Objects.requireNonNull(items,
+                "The items must not be null.");
+        if (period <= 0L) {
+            throw new IllegalArgumentException(
+                    "The period must be positive, but was '" + period + "'.");
+        }
+        if (bufferCapacity < 0) {
+            throw new IllegalArgumentException(
+                    "The bufferCapacity must not be negative, but was '"
+                            + bufferCapacity + "'.");
+        }
+        this.period = Objects.requireNonNull(unit,
+                "The unit must not be null.").toNanos(period);
+        this.bufferCapacity = bufferCapacity;
+    }
+
+    /**
+     * Subscribes the specified subscriber and starts emitting items.
+     *
+     * <p>The first item is emitted one period after subscribing.
+     *
+     * @param subscriber receives the items
+     * @throws NullPointerException if subscriber is null
+     * @throws IllegalStateException if there already is a subscriber
+     */
+    public void subscribe(Consumer<? super T> subscriber) {
+        Objects.requireNonNull(subscriber, "The subscriber must not be null.");
+        if (this.subscriber != null) {
+            throw new IllegalStateException(
+                    "This publisher already has a subscriber.");
+        }
+        this.subscriber = subscriber;
+        timeController.register(clock);
+    }
+
+    /**
+     * Adds demand for n items and delivers buffered items up to the
+     * outstanding demand.
+     *
+     * @param n the number of additional items to deliver
+     * @throws IllegalArgumentException if n is not positive
+     * @throws IllegalStateException if there is no subscriber
+     */
+    public void request(long n) {
+        if (n <= 0L) {
+            throw new IllegalArgumentException(
+                    "The n must be positive, but was '" + n + "'.");
+        }
+        if (subscriber == null) {
+            throw new IllegalStateException(
+                    "This publisher has no subscriber.");
+        }
+        demand = demand + n < 0L ? Long.MAX_VALUE : demand + n;
+        deliver();
+    }
+
+    /**
+     * Cancels the subscription.
+     *
+     * <p>No items are emitted or delivered anymore and the buffer
+     * is discarded. Since this may be called while the TimeController
+     * notifies its TimeListeners, the TimeListener emitting the items
+     * is not unregistered here, but unregisters itself the next time
+     * time passes.
+     */
+    public void cancel() {
+        if (!cancelled) {
+            cancelled = true;
+            head = emitted;
+        }
+    }
+
+    /**
+     * Emits the items getting due in the passed time.
+     *
+     * @param time the time that passed
+     * @param unit the TimeUnit of time
+     * @return true if the subscription is cancelled
+     */
+    private boolean timePassed(long time, TimeUnit unit) {
+        sinceLastItem += unit.toNanos(time);
+        long due = sinceLastItem / period;
+        sinceLastItem %= period;
+        while (due > 0L && !cancelled) {
+            if (demand > 0L && !delivering) {
+                emitted++;
+                due--;
+                deliver();
+            } else {
+                emitted += due;
+                due = 0L;
+            }
+            head = Math.max(head, emitted - bufferCapacity);
+        }
+        return cancelled;
+    }
+
+    /**
+     * Schedules a pass delivering buffered items up to the outstanding
+     * demand, unless one is scheduled or running already.
+     *
+     * @throws RejectedExecutionException if the Executor rejects the pass
+     */
+    private void deliver() {
+        if (delivering) {
+            return;
+        }
+        delivering = true;
+        try {
+            deliveryExecutor.execute(this::deliverBuffered);
+        } catch (RejectedExecutionException e) {
+            delivering = false;
+            throw e;
+        }
+    }
+
+    /**
+     * Delivers buffered items up to the outstanding demand.
+     */
+    private void deliverBuffered() {
+        try {
+            while (demand > 0L && head < emitted && !cancelled) {
+                if (demand != Long.MAX_VALUE) {
+                    demand--;
+                }
+                delivered++;
+                subscriber.accept(items.apply(head++));
+            }
+        } finally {
+            delivering = false;
+        }
+    }
+
+    /**
+     * Returns the number of items emitted so far.
+     *
+     * @return the number of emitted items
+     */
+    public long getEmittedCount() {
+        return emitted;
+    }
+
+    /**
+     * Returns the number of items delivered to the subscriber.
+     *
+     * @return the number of delivered items
+     */
+    public long getDeliveredCount() {
+        return delivered;
+    }
+
+    /**
+     * Returns the number of items dropped since the buffer was full
+     * or the subscription got cancelled.
+     *
+     * @return the number of dropped items
+     */
+    public long getDroppedCount() {
+        return head - delivered;
+    }
+
+    /**
+     * Returns the number of items which are buffered due to missing demand.
+     *
+     * @return the number of buffered items
+     */
+    public long getBufferedCount() {
+        return emitted - head;
+    }
+
+    /**
+     * Returns the outstanding demand.
+     *
+     * @return the number of items, which may be delivered
+     */
+    public long getDemand() {
+        return demand;
+    }
+
+    @Override
+    public String toString() {
+        return "SimulatedIntervalPublisher[period=" + period
+                + ",emitted=" + emitted
+                + ",delivered=" + delivered
+                + ",buffered=" + getBufferedCount()
+                + ",demand=" + demand
+                + ",cancelled=" + cancelled + ']';
+    }
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
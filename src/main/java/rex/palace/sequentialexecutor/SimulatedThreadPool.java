@@ -0,0 +1,564 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A discrete-event simulation of a thread pool with a bounded queue.
+ *
+ * <p>Like a {@link java.util.concurrent.ThreadPoolExecutor} it has a fixed
+ * number of workers and a bounded queue for tasks, which arrive while all
+ * workers are busy. Unlike a real pool, every task declares how much
+ * simulated time it takes. The simulation is driven by a
+ * {@link TimeController}: a task occupies its worker until its service time
+ * has passed, then its callable is run and the worker takes the next
+ * task from the queue.
+ *
+ * <p>The pool keeps statistics about queueing delays, utilization and
+ * rejections, which can be used to size real pools.
+ *
+ * <p>While all workers are idle, the pool is not registered to the
+ * TimeController, so it does not keep the TimeController from detecting
+ * a standstill. The time passed meanwhile is taken from
+ * {@link TimeController#getElapsedTime(TimeUnit)}. If the TimeController
+ * does not support it, the pool stays registered all the time instead.
+ */
+public class SimulatedThreadPool {
+
+    /**
+     * A task of a SimulatedThreadPool.
+     *
+     * @param <T> the result type of this task
+     */
+    private final class SimulatedFuture<T> extends AbstractSequentialFuture<T> {
+
+        /**
+         * The simulated time in nanos this task occupies a worker.
+         */
+        private final long serviceNanos;
+
+        /**
+         * The simulated time this task got submitted at.
+         */
+        private final long submittedAt;
+
+        /**
+         * Creates a new SimulatedFuture.
+         *
+         * @param callable the task to run
+         * @param serviceNanos the simulated time this task takes
+         */
+        private SimulatedFuture(Callable<T> callable, long serviceNanos) {
+            super(callable);
+            this.serviceNanos = serviceNanos;
+            submittedAt = now;
+        }
+
+        /**
+         * Causes the TimeController to simulate passing time
+         * until this future is done and returns its result.
+         *
+         * @return the result of this task
+         * @throws ExecutionException if an Exception occurred running this task
+         * @throws InterruptedException if the calling Thread is interrupted
+         */
+        @Override
+        public T get() throws ExecutionException, InterruptedException {
+            timeController.letTimePassUntil(
+                    new DoneCondition(Collections.singleton(this)));
+            return super.get();
+        }
+
+        /**
+         * Causes the TimeController to simulate passing time until
+         * this future is done or the timeout occurred and returns its result.
+         *
+         * @param timeout the time to wait
+         * @param unit the TimeUnit of timeout
+         * @return the result of this task
+         * @throws ExecutionException if an Exception occurred running this task
+         * @throws InterruptedException if the calling Thread is interrupted
+         * @throws TimeoutException if the result was not ready in time
+         */
+        @Override
+        public T get(long timeout, TimeUnit unit)
+                throws TimeoutException, ExecutionException, InterruptedException {
+            timeController.letTimePassUntil(
+                    new DoneCondition(Collections.singleton(this)),
+                    timeout, unit);
+            return super.get(timeout, unit);
+        }
+
+    }
+
+    /**
+     * The TimeController driving the simulation.
+     */
+    private final TimeController timeController;
+
+    /**
+     * The maximum number of waiting tasks.
+     */
+    private final int queueCapacity;
+
+    /**
+     * The policy for tasks, which arrive while the queue is full.
+     */
+    private final RejectionPolicy rejectionPolicy;
+
+    /**
+     * The tasks the workers are busy with. An idle worker has no task.
+     */
+    private final SimulatedFuture<?>[] running;
+
+    /**
+     * The simulated times the workers are busy until.
+     */
+    private final long[] busyUntil;
+
+    /**
+     * The tasks waiting for a worker.
+     */
+    private final Queue<SimulatedFuture<?>> queue = new ArrayDeque<>();
+
+    /**
+     * The listener advancing the simulation.
+     */
+    private final TimeListener clock = this::timePassed;
+
+    /**
+     * Indicates if the clock is registered to the TimeController.
+     */
+    private boolean registered = false;
+
+    /**
+     * Indicates if the TimeController keeps track of the passed time.
+     */
+    private final boolean tracksTime;
+
+    /**
+     * The passed time in nanos of the TimeController, when this pool
+     * was synchronized with it the last time.
+     */
+    private long syncedNanos = 0L;
+
+    /**
+     * The current simulated time in nanos.
+     */
+    private long now = 0L;
+
+    /**
+     * The number of busy workers.
+     */
+    private int activeCount = 0;
+
+    /**
+     * The number of submitted tasks.
+     */
+    private long submittedCount = 0L;
+
+    /**
+     * The number of tasks whose service time has passed.
+     */
+    private long completedCount = 0L;
+
+    /**
+     * The number of rejected tasks.
+     */
+    private long rejectedCount = 0L;
+
+    /**
+     * The simulated time in nanos tasks waited in the queue.
+     */
+    private long totalQueueingNanos = 0L;
+
+    /**
+     * The longest simulated time in nanos a task waited in the queue.
+     */
+    private long maxQueueingNanos = 0L;
+
+    /**
+     * The simulated time in nanos workers spent on completed tasks.
+     */
+    private long completedServiceNanos = 0L;
+
+    /**
+     * Creates a new SimulatedThreadPool.
+     *
+     * @param timeController the TimeController driving the simulation
+     * @param workers the number of workers
+     * @param queueCapacity the maximum number of waiting tasks
+     * @param rejectionPolicy the policy for tasks, which arrive while
+     *                        the queue is full
+     * @throws NullPointerException if timeController or rejectionPolicy
+     *         is null
+     * @throws IllegalArgumentException if workers is not positive or
+     *         queueCapacity is negative
+     */
+    public SimulatedThreadPool(TimeController timeController, int workers,
+            int queueCapacity, RejectionPolicy rejectionPolicy) {
+        this.timeController = Objects.requireNonNull(timeController,
+                "The timeController must not be null.");
+        this.rejectionPolicy = Objects.requireNonNull(rejectionPolicy,
+                "The rejectionPolicy must not be null.");
+        if (workers <= 0) {
+            throw new IllegalArgumentException(
+                    "The workers must be positive, but was '" + workers + "'.");
+        }
+        if (queueCapacity < 0) {
+            throw new IllegalArgumentException(
+                    "The queueCapacity must not be negative, but was '"
+                            + queueCapacity + "'.");
+        }
+        this.queueCapacity = queueCapacity;
+        running = new SimulatedFuture<?>[workers];
+        busyUntil = new long[workers];
+        boolean tracks = true;
+        try {
+            syncedNanos = timeController.getElapsedTime(TimeUnit.NANOSECONDS);
+        } catch (UnsupportedOperationException e) {
+            tracks = false;
+            registered = true;
+            timeController.register(clock);
+        }
+        tracksTime = tracks;
+    }
+
+    /**
+     * Advances the simulation by the time, which passed while the clock
+     * was not registered.
+     */
+    private void catchUp() {
+        if (tracksTime && !registered) {
+            long elapsed = timeController.getElapsedTime(TimeUnit.NANOSECONDS);
+            advanceTo(now + Math.max(0L, elapsed - syncedNanos));
+            syncedNanos = elapsed;
+        }
+    }
+
+    /**
+     * Submits a task which occupies a worker for the specified simulated time.
+     *
+     * <p>The task is run when its service time has passed. If all workers
+     * are busy, it waits in the queue. If the queue is full as well,
+     * the rejection policy applies. For
+     * {@link RejectionPolicy#BLOCK_UNTIL_DRAINED} simulated time passes until
+     * the task can be accepted.
+     *
+     * @param callable the task to run
+     * @param serviceTime the simulated time the task takes
+     * @param unit the TimeUnit of serviceTime
+     * @param <T> the return type of callable
+     * @return a Future for callable
+     * @throws NullPointerException if callable or unit is null
+     * @throws IllegalArgumentException if serviceTime is negative
+     * @throws RejectedExecutionException if the task got rejected and
+     *         the rejection policy is {@link RejectionPolicy#ABORT}
+     */
+    public <T> Future<T> submit(
+            Callable<T> callable, long serviceTime, TimeUnit unit) {
+        if (serviceTime < 0L) {
+            throw new IllegalArgumentException(
+                    "The serviceTime must not be negative, but was '"
+                            + serviceTime + "'.");
+        }
+        catchUp();
+        SimulatedFuture<T> future = new SimulatedFuture<>(callable,
+                Objects.requireNonNull(unit, "The unit must not be null.")
+                        .toNanos(serviceTime));
+        submittedCount++;
+        int worker = idleWorker();
+        if (worker < 0 && queue.size() >= queueCapacity
+                && rejectionPolicy == RejectionPolicy.BLOCK_UNTIL_DRAINED) {
+            timeController.letTimePassUntil(
+                    () -> idleWorker() >= 0 || queue.size() < queueCapacity);
+            worker = idleWorker();
+        }
+        if (worker >= 0) {
+            start(worker, future);
+            advanceTo(now);
+        } else if (queue.size() < queueCapacity) {
+            queue.add(future);
+        } else {
+            reject(future);
+        }
+        if (activeCount > 0 && !registered) {
+            registered = true;
+            timeController.register(clock);
+        }
+        return future;
+    }
+
+    /**
+     * Handles a task which can not be accepted.
+     *
+     * @param future the rejected task
+     * @throws RejectedExecutionException if the rejection policy is
+     *         {@link RejectionPolicy#ABORT}
+     */
+    private void reject(SimulatedFuture<?> future) {
+        rejectedCount++;
+        switch (rejectionPolicy) {
+            case CALLER_RUNS:
+                future.run();
+                break;
+            case DISCARD:
+                future.cancel(false);
+                break;
+            case DISCARD_OLDEST:
+                SimulatedFuture<?> oldest = queue.poll();
+                if (oldest == null) {
+                    future.cancel(false);
+                } else {
+                    oldest.cancel(false);
+                    queue.add(future);
+                }
+                break;
+            default:
+                throw new RejectedExecutionException(
+                        "The queue of " + this + " is full.");
+        }
+    }
+
+    /**
+     * Returns the index of an idle worker.
+     *
+     * @return the index of an idle worker or -1 if all workers are busy
+     */
+    private int idleWorker() {
+        for (int i = 0; i < running.length; i++) {
+            if (running[i] == null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Lets the specified worker start on a task.
+     *
+     * @param worker the index of an idle worker
+     * @param future the task to start
+     */
+    private void start(int worker, SimulatedFuture<?> future) {
+        long waited = now - future.submittedAt;
+        totalQueueingNanos += waited;
+        maxQueueingNanos = Math.max(maxQueueingNanos, waited);
+        running[worker] = future;
+        busyUntil[worker] = now + future.serviceNanos;
+        activeCount++;
+    }
+
+    /**
+     * Advances the simulation to the specified time.
+     *
+     * <p>All tasks whose service time ends until then are completed in
+     * the order of their ending and idle workers take the waiting tasks.
+     *
+     * @param target the simulated time to advance to
+     */
+    private void advanceTo(long target) {
+        while (activeCount > 0) {
+            int worker = -1;
+            for (int i = 0; i < running.length; i++) {
+                if (running[i] != null && busyUntil[i] <= target
+                        && (worker < 0 || busyUntil[i] < busyUntil[worker])) {
+                    worker = i;
+                }
+            }
+            if (worker < 0) {
+                break;
+            }
+            now = busyUntil[worker];
+            SimulatedFuture<?> finished = running[worker];
+            running[worker] = null;
+            activeCount--;
+            completedCount++;
+            completedServiceNanos += finished.serviceNanos;
+            if (!finished.isCancelled()) {
+                finished.run();
+            }
+            SimulatedFuture<?> next = pollWaiting();
+            if (next != null) {
+                start(worker, next);
+            }
+        }
+        now = target;
+    }
+
+    /**
+     * Removes the oldest waiting task, which is not cancelled, from the queue.
+     *
+     * @return the oldest waiting task or null if there is none
+     */
+    private SimulatedFuture<?> pollWaiting() {
+        SimulatedFuture<?> next = queue.poll();
+        while (next != null && next.isCancelled()) {
+            next = queue.poll();
+        }
+        return next;
+    }
+
+    /**
+     * Advances the simulation by the passed time.
+     *
+     * @param time the time that has passed
+     * @param unit the TimeUnit of time
+     * @return true if all workers are idle and the passed time can be
+     *         caught up with later, so the clock is unregistered
+     */
+    private boolean timePassed(long time, TimeUnit unit) {
+        advanceTo(now + unit.toNanos(time));
+        if (tracksTime) {
+            syncedNanos = timeController.getElapsedTime(TimeUnit.NANOSECONDS);
+        }
+        registered = activeCount > 0 || !tracksTime;
+        return !registered;
+    }
+
+    /**
+     * Returns the number of submitted tasks.
+     *
+     * @return the number of submitted tasks
+     */
+    public long getSubmittedTaskCount() {
+        return submittedCount;
+    }
+
+    /**
+     * Returns the number of tasks whose service time has passed.
+     *
+     * @return the number of completed tasks
+     */
+    public long getCompletedTaskCount() {
+        return completedCount;
+    }
+
+    /**
+     * Returns the number of rejected tasks.
+     *
+     * <p>Tasks rejected with {@link RejectionPolicy#CALLER_RUNS} are counted
+     * as well. For {@link RejectionPolicy#DISCARD_OLDEST} the discarded
+     * task is counted.
+     *
+     * @return the number of rejected tasks
+     */
+    public long getRejectedTaskCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * Returns the number of busy workers.
+     *
+     * @return the number of busy workers
+     */
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    /**
+     * Returns the number of waiting tasks.
+     *
+     * @return the number of tasks in the queue
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * Returns the simulated time since this pool was created.
+     *
+     * @param unit the TimeUnit of the result
+     * @return the simulated time since this pool was created
+     * @throws NullPointerException if unit is null
+     */
+    public long getElapsedTime(TimeUnit unit) {
+        Objects.requireNonNull(unit, "The unit must not be null.");
+        catchUp();
+        return unit.convert(now, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the sum of the times started tasks waited in the queue.
+     *
+     * @param unit the TimeUnit of the result
+     * @return the total queueing delay
+     * @throws NullPointerException if unit is null
+     */
+    public long getTotalQueueingDelay(TimeUnit unit) {
+        return unit.convert(totalQueueingNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the longest time a started task waited in the queue.
+     *
+     * @param unit the TimeUnit of the result
+     * @return the maximum queueing delay
+     * @throws NullPointerException if unit is null
+     */
+    public long getMaxQueueingDelay(TimeUnit unit) {
+        return unit.convert(maxQueueingNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the fraction of the elapsed time the workers were busy.
+     *
+     * @return a value between 0 and 1, or 0 if no time has elapsed
+     */
+    public double getUtilization() {
+        catchUp();
+        if (now == 0L) {
+            return 0.0;
+        }
+        long busyNanos = completedServiceNanos;
+        for (int i = 0; i < running.length; i++) {
+            if (running[i] != null) {
+                busyNanos += running[i].serviceNanos - (busyUntil[i] - now);
+            }
+        }
+        return (double) busyNanos / ((double) now * running.length);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[workers = " + running.length
+                + ", activeWorkers = " + activeCount
+                + ", queuedTasks = " + queue.size()
+                + ", completedTasks = " + completedCount
+                + ", rejectedTasks = " + rejectedCount + ']';
+    }
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
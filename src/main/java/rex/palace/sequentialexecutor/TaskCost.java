@@ -0,0 +1,46 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+/**
+ * The simulated time a task takes to run.
+ *
+ * <p>A scheduled task with a TaskCost occupies its {@link TimeController}
+ * after every run, so tasks getting due meanwhile are run late, the way
+ * a busy scheduler Thread delays them. Instances can be obtained by
+ * {@link TaskCosts}.
+ */
+@FunctionalInterface
+public interface TaskCost {
+
+    /**
+     * Returns the simulated time the next run of a task takes.
+     *
+     * @return the simulated time in nanos, which must not be negative
+     */
+    long nextNanos();
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
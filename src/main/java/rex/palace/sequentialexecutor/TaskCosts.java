@@ -0,0 +1,138 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Static factory class for TaskCosts.
+ *
+ * <p>The random costs are drawn from a seeded generator, so simulations
+ * using them are reproducible.
+ */
+public final class TaskCosts {
+
+    /**
+     * The cost of tasks which take no time.
+     */
+    private static final TaskCost NONE = () -> 0L;
+
+    /**
+     * Private constructor since this is a utility class.
+     */
+    private TaskCosts() {
+        super();
+    }
+
+    /**
+     * Returns a TaskCost of tasks which take no time.
+     *
+     * @return a TaskCost which is always zero
+     */
+    public static TaskCost none() {
+        return NONE;
+    }
+
+    /**
+     * Returns a TaskCost of tasks which always take the same time.
+     *
+     * @param time the time every run takes
+     * @param unit the TimeUnit of time
+     * @return a fixed TaskCost
+     * @throws NullPointerException if unit is null
+     * @throws IllegalArgumentException if time is negative
+     */
+    public static TaskCost fixed(long time, TimeUnit unit) {
+        long nanos = toNanos(time, unit);
+        return () -> nanos;
+    }
+
+    /**
+     * Returns a TaskCost which is uniformly distributed between
+     * min and max, both inclusive.
+     *
+     * @param min the minimal time a run takes
+     * @param max the maximal time a run takes
+     * @param unit the TimeUnit of min and max
+     * @param seed the seed of the random generator
+     * @return a uniformly distributed TaskCost
+     * @throws NullPointerException if unit is null
+     * @throws IllegalArgumentException if min is negative or
+     *         greater than max
+     */
+    public static TaskCost uniform(long min, long max, TimeUnit unit,
+            long seed) {
+        long minNanos = toNanos(min, unit);
+        long maxNanos = toNanos(max, unit);
+        if (minNanos > maxNanos) {
+            throw new IllegalArgumentException("The min '" + min
+                    + "' must not be greater than the max '" + max + "'.");
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        if (minNanos == maxNanos) {
+            return () -> minNanos;
+        }
+        return () -> minNanos + random.nextLong(maxNanos - minNanos + 1L);
+    }
+
+    /**
+     * Returns a TaskCost which is exponentially distributed with the
+     * specified mean.
+     *
+     * @param mean the mean time a run takes
+     * @param unit the TimeUnit of mean
+     * @param seed the seed of the random generator
+     * @return an exponentially distributed TaskCost
+     * @throws NullPointerException if unit is null
+     * @throws IllegalArgumentException if mean is negative
+     */
+    public static TaskCost exponential(long mean, TimeUnit unit, long seed) {
+        double meanNanos = toNanos(mean, unit);
+        SplittableRandom random = new SplittableRandom(seed);
+        return () -> (long) (-meanNanos * Math.log(1.0 - random.nextDouble()));
+    }
+
+    /**
+     * Converts a non negative time to nanos.
+     *
+     * @param time the time to convert
+     * @param unit the TimeUnit of time
+     * @return time in nanos
+     * @throws NullPointerException if unit is null
+     * @throws IllegalArgumentException if time is negative
+     */
+    private static long toNanos(long time, TimeUnit unit) {
+        if (time < 0L) {
+            throw new IllegalArgumentException(
+                    "The time must not be negative, but was '" + time + "'.");
+        }
+        return Objects.requireNonNull(unit, "The unit must not be null.")
+                .toNanos(time);
+    }
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
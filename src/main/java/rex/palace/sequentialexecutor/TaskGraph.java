@@ -0,0 +1,461 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A graph of tasks, which depend on each other.
+ *
+ * <p>Every task is identified by a key and declares the keys of its
+ * prerequisites, which have to complete successfully before it is run.
+ * Prerequisites may be added after the tasks depending on them. Missing
+ * prerequisites and cycles are detected when the graph is submitted by
+ * {@link SequentialExecutorService#submitGraph(TaskGraph)} or
+ * {@link SequentialScheduledExecutorService#scheduleGraph(TaskGraph)}.
+ *
+ * <p>Every task may declare the simulated time it takes, which is used
+ * for scheduling and for the critical path.
+ *
+ * <p>Ordering the tasks takes time in O(V log V + E) for V tasks and E
+ * dependencies, since the tasks ready to be ordered are kept in a binary
+ * heap by the order they were added in. All other operations on the whole
+ * graph take time linear in the number of tasks and dependencies.
+ *
+ * @param <K> the type of the keys
+ */
+public final class TaskGraph<K> {
+
+    /**
+     * The indices of the tasks by their keys.
+     */
+    private final Map<K, Integer> indices = new HashMap<>();
+
+    /**
+     * The keys of the tasks by their indices.
+     */
+    private final List<K> keys = new ArrayList<>();
+
+    /**
+     * The tasks by their indices.
+     */
+    private final List<Callable<?>> tasks = new ArrayList<>();
+
+    /**
+     * The keys of the prerequisites by the indices of the tasks.
+     */
+    private final List<Object[]> prerequisiteKeys = new ArrayList<>();
+
+    /**
+     * The durations in nanos by the indices of the tasks.
+     */
+    private long[] durations = new long[16];
+
+    /**
+     * Creates a new empty TaskGraph.
+     */
+    public TaskGraph() {
+        super();
+    }
+
+    /**
+     * Adds a task, which takes no time.
+     *
+     * @param key the key of the task
+     * @param task the task
+     * @param prerequisites the keys of the tasks, which have to complete
+     *                      successfully before task is run
+     * @throws NullPointerException if any argument or prerequisite is null
+     * @throws IllegalArgumentException if there already is a task with key
+     */
+    public void add(K key, Callable<?> task,
+            Collection<? extends K> prerequisites) {
+        add(key, task, 0L, TimeUnit.NANOSECONDS, prerequisites);
+    }
+
+    /**
+     * Adds a task, which takes the specified simulated time.
+     *
+     * @param key the key of the task
+     * @param task the task
+     * @param duration the simulated time the task takes
+     * @param unit the TimeUnit of duration
+     * @param prerequisites the keys of the tasks, which have to complete
+     *                      successfully before task is run
+     * @throws NullPointerException if any argument or prerequisite is null
+     * @throws IllegalArgumentException if there already is a task with key
+     *         or duration is negative
+     */
+    public void add(K key, Callable<?> task, long duration, TimeUnit unit,
+            Collection<? extends K> prerequisites) {
+        Objects.requireNonNull(key, "The key must not be null.");
+        Objects.requireNonNull(task, "The task must not be null.");
+        Objects.requireNonNull(unit, "The unit must not be null.");
+        Object[] prerequisiteArray = prerequisites.toArray();
+        for (Object prerequisite : prerequisiteArray) {
+            Objects.requireNonNull(prerequisite,
+                    "The prerequisite must not be null.");
+        }
+        if (duration < 0L) {
+            throw new IllegalArgumentException(
+                    "The duration must not be negative, but was '"
+                            + duration + "'.");
+        }
+        if (indices.containsKey(key)) {
+            throw new IllegalArgumentException(
+                    "There already is a task with the key '" + key + "'.");
+        }
+        int index = keys.size();
+        indices.put(key, index);
+        keys.add(key);
+        tasks.add(task);
+        prerequisiteKeys.add(prerequisiteArray);
+        if (index == durations.length) {
+            durations = Arrays.copyOf(durations, index * 2);
+        }
+        durations[index] = unit.toNanos(duration);
+    }
+
+    /**
+     * Returns the number of tasks.
+     *
+     * @return the number of tasks
+     */
+    public int size() {
+        return keys.size();
+    }
+
+    /**
+     * Returns the keys of all tasks in an order, in which every task
+     * comes after its prerequisites.
+     *
+     * <p>Whenever several tasks have all their prerequisites ordered,
+     * the one added first comes next, so the order is deterministic and
+     * tasks without prerequisites keep the order they were added in.
+     *
+     * @return the keys in topological order
+     * @throws IllegalArgumentException if a prerequisite is missing or
+     *         the tasks depend on each other in a cycle
+     */
+    public List<K> topologicalOrder() {
+        int[] order = order(resolve());
+        List<K> result = new ArrayList<>(order.length);
+        for (int index : order) {
+            result.add(keys.get(index));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the keys of the tasks on the critical path.
+     *
+     * <p>The critical path is the chain of dependent tasks, which takes the
+     * longest time. It starts with a task without prerequisites.
+     *
+     * @return the keys of the tasks on the critical path in execution order
+     * @throws IllegalArgumentException if a prerequisite is missing or
+     *         the tasks depend on each other in a cycle
+     */
+    public List<K> criticalPath() {
+        int[][] prerequisites = resolve();
+        int[] order = order(prerequisites);
+        long[] finish = earliestFinish(prerequisites, order);
+        int last = -1;
+        for (int index : order) {
+            if (last < 0 || finish[index] > finish[last]) {
+                last = index;
+            }
+        }
+        List<K> path = new ArrayList<>();
+        while (last >= 0) {
+            path.add(keys.get(last));
+            int previous = -1;
+            for (int prerequisite : prerequisites[last]) {
+                if (previous < 0 || finish[prerequisite] > finish[previous]) {
+                    previous = prerequisite;
+                }
+            }
+            last = previous;
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Returns the time the tasks on the critical path take.
+     *
+     * <p>This is the least time needed to complete all tasks.
+     *
+     * @param unit the TimeUnit of the result
+     * @return the length of the critical path
+     * @throws NullPointerException if unit is null
+     * @throws IllegalArgumentException if a prerequisite is missing or
+     *         the tasks depend on each other in a cycle
+     */
+    public long criticalPathLength(TimeUnit unit) {
+        Objects.requireNonNull(unit, "The unit must not be null.");
+        int[][] prerequisites = resolve();
+        long[] finish = earliestFinish(prerequisites, order(prerequisites));
+        long length = 0L;
+        for (long time : finish) {
+            length = Math.max(length, time);
+        }
+        return unit.convert(length, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Resolves the keys of the prerequisites to indices.
+     *
+     * @return the indices of the prerequisites by the indices of the tasks
+     * @throws IllegalArgumentException if a prerequisite is missing
+     */
+    int[][] resolve() {
+        int[][] prerequisites = new int[keys.size()][];
+        for (int index = 0; index < prerequisites.length; index++) {
+            Object[] keysOfIndex = prerequisiteKeys.get(index);
+            int[] resolved = new int[keysOfIndex.length];
+            for (int i = 0; i < resolved.length; i++) {
+                Integer prerequisite = indices.get(keysOfIndex[i]);
+                if (prerequisite == null) {
+                    throw new IllegalArgumentException("The prerequisite '"
+                            + keysOfIndex[i] + "' of '" + keys.get(index)
+                            + "' has not been added.");
+                }
+                resolved[i] = prerequisite;
+            }
+            prerequisites[index] = resolved;
+        }
+        return prerequisites;
+    }
+
+    /**
+     * Sorts the tasks topologically.
+     *
+     * <p>Among the tasks, whose prerequisites are all sorted, the one
+     * with the lowest index comes next.
+     *
+     * @param prerequisites the resolved prerequisites
+     * @return the indices of the tasks in topological order
+     * @throws IllegalArgumentException if the tasks depend on each other
+     *         in a cycle
+     */
+    int[] order(int[][] prerequisites) {
+        int size = prerequisites.length;
+        int[] missing = new int[size];
+        int[] offsets = new int[size + 1];
+        for (int index = 0; index < size; index++) {
+            missing[index] = prerequisites[index].length;
+            for (int prerequisite : prerequisites[index]) {
+                offsets[prerequisite + 1]++;
+            }
+        }
+        for (int index = 0; index < size; index++) {
+            offsets[index + 1] += offsets[index];
+        }
+        int[] dependents = new int[offsets[size]];
+        int[] fill = Arrays.copyOf(offsets, size);
+        for (int index = 0; index < size; index++) {
+            for (int prerequisite : prerequisites[index]) {
+                dependents[fill[prerequisite]++] = index;
+            }
+        }
+        int[] ready = new int[size];
+        int readyCount = 0;
+        for (int index = 0; index < size; index++) {
+            if (missing[index] == 0) {
+                ready[readyCount++] = index;
+            }
+        }
+        int[] order = new int[size];
+        int tail = 0;
+        while (readyCount > 0) {
+            int index = ready[0];
+            siftDown(ready, --readyCount, ready[readyCount]);
+            order[tail++] = index;
+            for (int i = offsets[index]; i < offsets[index + 1]; i++) {
+                if (--missing[dependents[i]] == 0) {
+                    siftUp(ready, readyCount++, dependents[i]);
+                }
+            }
+        }
+        if (tail < size) {
+            throw new IllegalArgumentException(
+                    "The tasks contain a cycle: " + cycle(prerequisites, missing));
+        }
+        return order;
+    }
+
+    /**
+     * Inserts an index into a binary min-heap.
+     *
+     * @param heap the heap
+     * @param position the first free position of heap
+     * @param index the index to insert
+     */
+    private static void siftUp(int[] heap, int position, int index) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (heap[parent] <= index) {
+                break;
+            }
+            heap[position] = heap[parent];
+            position = parent;
+        }
+        heap[position] = index;
+    }
+
+    /**
+     * Places an index at the root of a binary min-heap, whose root
+     * has been removed, and restores the heap order.
+     *
+     * @param heap the heap
+     * @param size the size of heap without the removed root
+     * @param index the index to place, which was the last one of heap
+     */
+    private static void siftDown(int[] heap, int size, int index) {
+        int position = 0;
+        int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (index <= heap[child]) {
+                break;
+            }
+            heap[position] = heap[child];
+            position = child;
+        }
+        if (size > 0) {
+            heap[position] = index;
+        }
+    }
+
+    /**
+     * Finds a cycle among the tasks, which could not be sorted.
+     *
+     * @param prerequisites the resolved prerequisites
+     * @param missing the number of prerequisites, which could not be
+     *                sorted, by the indices of the tasks
+     * @return the keys of a cycle, the first and the last one being equal
+     */
+    private List<K> cycle(int[][] prerequisites, int[] missing) {
+        int index = 0;
+        while (missing[index] == 0) {
+            index++;
+        }
+        int[] visited = new int[missing.length];
+        int step = 0;
+        while (visited[index] == 0) {
+            visited[index] = ++step;
+            for (int prerequisite : prerequisites[index]) {
+                if (missing[prerequisite] > 0) {
+                    index = prerequisite;
+                    break;
+                }
+            }
+        }
+        List<K> cycle = new ArrayList<>();
+        int start = index;
+        do {
+            cycle.add(keys.get(index));
+            for (int prerequisite : prerequisites[index]) {
+                if (missing[prerequisite] > 0) {
+                    index = prerequisite;
+                    break;
+                }
+            }
+        } while (index != start);
+        cycle.add(keys.get(start));
+        Collections.reverse(cycle);
+        return cycle;
+    }
+
+    /**
+     * Computes the earliest time every task can be finished, if all
+     * tasks not depending on each other run in parallel.
+     *
+     * @param prerequisites the resolved prerequisites
+     * @param order the indices of the tasks in topological order
+     * @return the earliest finish times in nanos by the indices of the tasks
+     */
+    long[] earliestFinish(int[][] prerequisites, int[] order) {
+        long[] finish = new long[order.length];
+        for (int index : order) {
+            long start = 0L;
+            for (int prerequisite : prerequisites[index]) {
+                start = Math.max(start, finish[prerequisite]);
+            }
+            finish[index] = start + durations[index];
+        }
+        return finish;
+    }
+
+    /**
+     * Returns the key of the task with the specified index.
+     *
+     * @param index the index of the task
+     * @return the key of the task
+     */
+    K key(int index) {
+        return keys.get(index);
+    }
+
+    /**
+     * Returns the task with the specified index.
+     *
+     * @param index the index of the task
+     * @return the task
+     */
+    Callable<?> task(int index) {
+        return tasks.get(index);
+    }
+
+    /**
+     * Returns the duration of the task with the specified index.
+     *
+     * @param index the index of the task
+     * @return the duration in nanos
+     */
+    long duration(int index) {
+        return durations[index];
+    }
+
+    @Override
+    public String toString() {
+        return "TaskGraph[size=" + keys.size() + ']';
+    }
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
@@ -0,0 +1,339 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The tasks submitted to a SequentialExecutorService with the same tag.
+ *
+ * <p>A TaskGroup is returned by
+ * {@link SequentialExecutorService#getGroup(Object)}. It keeps the Futures
+ * of its tasks only until they are done and counts the finished ones, so
+ * a long lived group does not grow with its history, and cancelling and
+ * awaiting takes time proportional to the number of pending tasks.
+ *
+ * <p>The simulated latency of a scheduled task is the simulated time from
+ * scheduling it to the start of its run. It is recorded for tasks
+ * scheduled by
+ * {@link SequentialScheduledExecutorService#scheduleTagged(Object,
+ * java.util.concurrent.Callable, long, TimeUnit)}, once they completed
+ * without being cancelled.
+ *
+ * <p>A TaskGroup is thread-safe. Tasks are cancelled and waited for
+ * without holding its lock, so they may complete on other Threads.
+ */
+public final class TaskGroup {
+
+    /**
+     * The tag of the tasks.
+     */
+    private final Object tag;
+
+    /**
+     * The Futures of the tasks, which are not known to be done yet,
+     * in submission order.
+     */
+    private final Collection<Future<?>> pending = new LinkedHashSet<>();
+
+    /**
+     * The pending Futures, which can not notify this group about their
+     * completion, so they are checked when this group is queried.
+     */
+    private final List<Future<?>> polled = new ArrayList<>();
+
+    /**
+     * The number of tasks, which are done.
+     */
+    private int finishedCount = 0;
+
+    /**
+     * The number of tasks, which are done, but did not complete regularly.
+     */
+    private int irregularCount = 0;
+
+    /**
+     * The number of recorded latencies.
+     */
+    private long latencyCount = 0L;
+
+    /**
+     * The sum of the recorded latencies in nanos.
+     */
+    private long latencySum = 0L;
+
+    /**
+     * The minimal recorded latency in nanos.
+     */
+    private long latencyMin = Long.MAX_VALUE;
+
+    /**
+     * The maximal recorded latency in nanos.
+     */
+    private long latencyMax = Long.MIN_VALUE;
+
+    /**
+     * Creates a new TaskGroup.
+     *
+     * @param tag the tag of the tasks
+     * @throws NullPointerException if tag is null
+     */
+    TaskGroup(Object tag) {
+        this.tag = Objects.requireNonNull(tag, "The tag must not be null.");
+    }
+
+    /**
+     * Adds the Future of a task to this group.
+     *
+     * <p>A {@link ListenableFuture} removes itself from this group once it
+     * is done. Other Futures are removed when this group is queried.
+     *
+     * @param future the Future of the task
+     */
+    synchronized void add(Future<?> future) {
+        if (!pending.add(future)) {
+            return;
+        }
+        if (future instanceof ListenableFuture) {
+            ((ListenableFuture<?>) future).addListener(() -> finished(future),
+                    ExecutorServiceHelper.DIRECT_EXECUTOR);
+        } else {
+            polled.add(future);
+        }
+    }
+
+    /**
+     * Removes the Future of a done task and counts it.
+     *
+     * @param future the Future of the done task
+     */
+    private synchronized void finished(Future<?> future) {
+        if (!pending.remove(future)) {
+            return;
+        }
+        finishedCount++;
+        if (future.isCancelled() || failed(future)) {
+            irregularCount++;
+        }
+    }
+
+    /**
+     * Removes the Futures of done tasks, which can not notify this group.
+     */
+    private synchronized void pollFinished() {
+        Iterator<Future<?>> iterator = polled.iterator();
+        while (iterator.hasNext()) {
+            Future<?> future = iterator.next();
+            if (future.isDone()) {
+                iterator.remove();
+                finished(future);
+            }
+        }
+    }
+
+    /**
+     * Checks if the done task threw an exception.
+     *
+     * <p>The interrupt flag of the current Thread is cleared while the
+     * outcome is read and restored afterwards.
+     *
+     * @param future the Future of the done task
+     * @return true if the task threw an exception
+     */
+    private static boolean failed(Future<?> future) {
+        boolean interrupted = Thread.interrupted();
+        try {
+            future.get();
+            return false;
+        } catch (ExecutionException e) {
+            return true;
+        } catch (InterruptedException e) {
+            interrupted = true;
+            return true;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Records the simulated latency of a task.
+     *
+     * @param nanos the latency in nanos
+     */
+    synchronized void recordLatency(long nanos) {
+        latencyCount++;
+        latencySum += nanos;
+        latencyMin = Math.min(latencyMin, nanos);
+        latencyMax = Math.max(latencyMax, nanos);
+    }
+
+    /**
+     * Attempts to cancel all tasks of this group.
+     *
+     * @param mayInterruptIfRunning passed to {@link Future#cancel(boolean)}
+     * @return the number of cancelled tasks
+     */
+    int cancel(boolean mayInterruptIfRunning) {
+        int cancelled = 0;
+        for (Future<?> future : pendingSnapshot()) {
+            if (future.cancel(mayInterruptIfRunning)) {
+                cancelled++;
+            }
+        }
+        return cancelled;
+    }
+
+    /**
+     * Waits for all tasks of this group, which are not done yet.
+     *
+     * @return true if and only if all tasks completed regularly
+     */
+    boolean await() {
+        boolean regularly = true;
+        for (Future<?> future : pendingSnapshot()) {
+            if (future.isCancelled()
+                    || !ExecutorServiceHelper.isRegularlyDone(future)) {
+                regularly = false;
+            }
+        }
+        synchronized (this) {
+            pollFinished();
+            return regularly && irregularCount == 0;
+        }
+    }
+
+    /**
+     * Returns a copy of the pending Futures, so they can be cancelled
+     * or waited for without holding the lock of this group.
+     *
+     * @return the pending Futures in submission order
+     */
+    private synchronized List<Future<?>> pendingSnapshot() {
+        pollFinished();
+        return new ArrayList<>(pending);
+    }
+
+    /**
+     * Returns the tag of the tasks.
+     *
+     * @return the tag
+     */
+    public Object getTag() {
+        return tag;
+    }
+
+    /**
+     * Returns the number of tasks in this group.
+     *
+     * @return the number of tasks
+     */
+    public synchronized int size() {
+        return getPendingCount() + finishedCount;
+    }
+
+    /**
+     * Returns the number of tasks, which are not done yet.
+     *
+     * @return the number of pending tasks
+     */
+    public synchronized int getPendingCount() {
+        pollFinished();
+        return pending.size();
+    }
+
+    /**
+     * Returns the number of tasks, which are done, including
+     * cancelled ones.
+     *
+     * @return the number of finished tasks
+     */
+    public synchronized int getFinishedCount() {
+        pollFinished();
+        return finishedCount;
+    }
+
+    /**
+     * Returns the number of recorded latencies.
+     *
+     * @return the number of recorded latencies
+     */
+    public synchronized long getLatencyCount() {
+        return latencyCount;
+    }
+
+    /**
+     * Returns the minimal recorded latency.
+     *
+     * @param unit the TimeUnit of the result
+     * @return the minimal latency or 0 if none has been recorded
+     * @throws NullPointerException if unit is null
+     */
+    public synchronized long getMinLatency(TimeUnit unit) {
+        return unit.convert(latencyCount == 0L ? 0L : latencyMin,
+                TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the maximal recorded latency.
+     *
+     * @param unit the TimeUnit of the result
+     * @return the maximal latency or 0 if none has been recorded
+     * @throws NullPointerException if unit is null
+     */
+    public synchronized long getMaxLatency(TimeUnit unit) {
+        return unit.convert(latencyCount == 0L ? 0L : latencyMax,
+                TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the mean of the recorded latencies, rounded down.
+     *
+     * @param unit the TimeUnit of the result
+     * @return the mean latency or 0 if none has been recorded
+     * @throws NullPointerException if unit is null
+     */
+    public synchronized long getMeanLatency(TimeUnit unit) {
+        return unit.convert(latencyCount == 0L ? 0L : latencySum / latencyCount,
+                TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "TaskGroup[tag=" + tag + ", size=" + size()
+                + ", pending=" + getPendingCount() + ']';
+    }
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
@@ -23,32 +23,220 @@
 
 package rex.palace.sequentialexecutor;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.EnumMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Queue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.Future;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Stream;
 
 /**
  * Organizes submitted tasks.
+ *
+ * <p>Tasks may be submitted by several Threads concurrently. Every state
+ * has containers of its own, which are concurrent collections, and the
+ * counters are {@link LongAdder}s, so submitting Threads do not serialize
+ * on a common lock. Views of the tasks, like {@link #notFinishedTasks()},
+ * are weakly consistent: They reflect the tasks submitted before they were
+ * created and may or may not reflect concurrent submissions. The tasks
+ * themselves are still run sequentially.
+ *
+ * <p>The tasks waiting to be run are only tracked in submission order
+ * once {@link #trackPending()} is called, which a service does when its
+ * capacity gets limited. Until then submitting a task does not allocate
+ * anything for the tracking and {@link #pendingTasksCount()} counts the
+ * waiting tasks instead.
  */
 class TaskOrganizer {
 
+    /**
+     * A task submitted in the {@link ExecutorServiceState#PRIORITY} state.
+     *
+     * <p>PrioritizedTasks are ordered by descending priority and ascending
+     * submission order.
+     */
+    private static final class PrioritizedTask
+            implements Comparable<PrioritizedTask> {
+
+        /**
+         * The priority of the task.
+         */
+        private final int priority;
+
+        /**
+         * The submission order of the task.
+         */
+        private final long sequence;
+
+        /**
+         * The future of the task.
+         */
+        private final RunnableFuture<?> future;
+
+        /**
+         * Creates a new PrioritizedTask.
+         *
+         * @param priority the priority of the task
+         * @param sequence the submission order of the task
+         * @param future the future of the task
+         */
+        private PrioritizedTask(int priority, long sequence,
+                RunnableFuture<?> future) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.future = future;
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            int result = Integer.compare(other.priority, priority);
+            if (result == 0) {
+                result = Long.compare(sequence, other.sequence);
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * The tasks submitted by a {@link FutureStrategy}.
+     */
+    private static final class StrategyTasks {
+
+        /**
+         * The strategy the tasks are submitted by.
+         */
+        private final FutureStrategy strategy;
+
+        /**
+         * All tasks submitted by the strategy.
+         */
+        private final Collection<RunnableFuture<?>> submitted
+                = new ConcurrentLinkedQueue<>();
+
+        /**
+         * The number of tasks submitted by the strategy.
+         */
+        private final LongAdder count = new LongAdder();
+
+        /**
+         * The tasks, which have not been taken from the queue yet.
+         */
+        private final Deque<RunnableFuture<?>> queue
+                = new ConcurrentLinkedDeque<>();
+
+        /**
+         * Creates a new StrategyTasks.
+         *
+         * @param strategy the strategy the tasks are submitted by
+         */
+        private StrategyTasks(FutureStrategy strategy) {
+            this.strategy = strategy;
+        }
+
+    }
+
+    /**
+     * The priority of tasks submitted without one.
+     */
+    static final int DEFAULT_PRIORITY = 0;
+
     /**
      * The map where all tasks are put.
      */
     private final Map<ExecutorServiceState, Collection<RunnableFuture<?>>>
             tasks = new EnumMap<>(ExecutorServiceState.class);
 
+    /**
+     * The map where all batches are put.
+     */
+    private final Map<ExecutorServiceState, Collection<SequentialBatch<?>>>
+            batches = new EnumMap<>(ExecutorServiceState.class);
+
+    /**
+     * The tasks submitted in the {@link ExecutorServiceState#TRAMPOLINE}
+     * state, which have not been drained yet.
+     */
+    private final Queue<RunnableFuture<?>> trampoline
+            = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The tasks submitted in the {@link ExecutorServiceState#PRIORITY}
+     * state, which have not been drained yet.
+     */
+    private final Queue<PrioritizedTask> prioritized
+            = new PriorityBlockingQueue<>();
+
+    /**
+     * The number of tasks submitted in the
+     * {@link ExecutorServiceState#PRIORITY} state.
+     */
+    private final AtomicLong prioritizedCount = new AtomicLong(0L);
+
+    /**
+     * The tasks submitted by FutureStrategies by their strategy.
+     */
+    private final ConcurrentMap<FutureStrategy, StrategyTasks> strategies
+            = new ConcurrentHashMap<>();
+
+    /**
+     * The tasks submitted by FutureStrategies in order of the first
+     * submission of the strategies.
+     */
+    private final Queue<StrategyTasks> strategyOrder
+            = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Indicates if the tasks waiting to be run are tracked.
+     */
+    private volatile boolean trackingPending = false;
+
+    /**
+     * The tracked tasks waiting to be run by their submission order.
+     */
+    private final ConcurrentNavigableMap<Long, RunnableFuture<?>> pending
+            = new ConcurrentSkipListMap<>();
+
+    /**
+     * The number of tracked tasks waiting to be run, including those
+     * reserved for tasks being submitted.
+     */
+    private final AtomicInteger pendingCount = new AtomicInteger(0);
+
+    /**
+     * The next submission order of a waiting task.
+     */
+    private final AtomicLong pendingSequence = new AtomicLong(0L);
+
+    /**
+     * The number of all submitted tasks.
+     */
+    private final LongAdder submittedCount = new LongAdder();
+
     /**
      * Constructs a new TaskOrganizer.
      */
     TaskOrganizer() {
         for (ExecutorServiceState state : ExecutorServiceState.values()) {
-            tasks.put(state, new HashSet<>());
+            tasks.put(state, ConcurrentHashMap.newKeySet());
+            batches.put(state, new ConcurrentLinkedQueue<>());
         }
     }
 
@@ -61,28 +249,351 @@ class TaskOrganizer {
      */
     <T> Future<T> submit(
             ExecutorServiceState state, Callable<T> callable) {
+        return submit(state, callable, DEFAULT_PRIORITY);
+    }
+
+    /**
+     * Adds a task with a priority to this Organizer.
+     *
+     * <p>The priority is only relevant in the
+     * {@link ExecutorServiceState#PRIORITY} state.
+     *
+     * @param state the ExecutorServiceState to use
+     * @param callable the task to execute
+     * @param priority the priority of the task
+     * @param <T> the return type of callable
+     * @return a Future containing callable
+     */
+    <T> Future<T> submit(ExecutorServiceState state, Callable<T> callable,
+            int priority) {
+        return submit(state, callable, priority, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Adds a task with a priority to this Organizer unless the specified
+     * number of tracked tasks is already waiting to be run.
+     *
+     * <p>The check and the submission are atomic, so concurrent submitters
+     * can not exceed capacity.
+     *
+     * @param state the ExecutorServiceState to use
+     * @param callable the task to execute
+     * @param priority the priority of the task
+     * @param capacity the maximum number of waiting tasks
+     * @param <T> the return type of callable
+     * @return a Future containing callable or null if no capacity is left
+     */
+    <T> Future<T> submit(ExecutorServiceState state, Callable<T> callable,
+            int priority, int capacity) {
+        boolean tracked = trackingPending && isWaiting(state);
+        if (tracked && !reservePending(capacity)) {
+            return null;
+        }
         RunnableFuture<T> future = state.submit(callable);
-        Collection<RunnableFuture<?>> collection = tasks.get(state);
-        collection.add(future);
+        if (tracked) {
+            addPending(future);
+        }
+        tasks.get(state).add(future);
+        submittedCount.increment();
+        enqueue(state, future, priority);
         return future;
     }
 
+    /**
+     * Reserves a place for a task waiting to be run.
+     *
+     * @param capacity the maximum number of waiting tasks
+     * @return true if a place has been reserved, false if capacity tasks
+     *         are already waiting
+     */
+    private boolean reservePending(int capacity) {
+        int count;
+        do {
+            count = pendingCount.get();
+            if (count >= capacity) {
+                return false;
+            }
+        } while (!pendingCount.compareAndSet(count, count + 1));
+        return true;
+    }
+
+    /**
+     * Adds a task, whose place has been reserved, to the waiting tasks
+     * until it is completed.
+     *
+     * <p>It is called before the task is published to other Threads, so
+     * the completion listener is registered before the task can be run.
+     *
+     * @param future the waiting task
+     */
+    private void addPending(RunnableFuture<?> future) {
+        Long sequence = pendingSequence.getAndIncrement();
+        pending.put(sequence, future);
+        ((SequentialFuture<?>) future).whenCompleted(() -> {
+            if (pending.remove(sequence) != null) {
+                pendingCount.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Starts tracking the tasks waiting to be run, so
+     * {@link #oldestPendingTask()} can be used and the capacity passed to
+     * the submit methods is enforced.
+     *
+     * <p>The tasks already waiting are tracked in an unspecified order.
+     * This must not be called concurrently with submissions.
+     */
+    void trackPending() {
+        if (trackingPending) {
+            return;
+        }
+        trackingPending = true;
+        waitingTasks().forEach(future -> {
+            pendingCount.incrementAndGet();
+            addPending(future);
+        });
+    }
+
+    /**
+     * Returns the tasks waiting to be run, which are not tracked.
+     *
+     * @return a stream of the waiting tasks
+     */
+    private Stream<RunnableFuture<?>> waitingTasks() {
+        Stream<RunnableFuture<?>> single = Arrays.stream(
+                ExecutorServiceState.values())
+                .filter(TaskOrganizer::isWaiting)
+                .flatMap(state -> tasks.get(state).stream());
+        Stream<RunnableFuture<?>> batched = Arrays.stream(
+                ExecutorServiceState.values())
+                .filter(TaskOrganizer::isWaiting)
+                .flatMap(state -> batches.get(state).stream())
+                .flatMap(SequentialBatch::notDoneTasks)
+                .map(task -> (RunnableFuture<?>) task);
+        Stream<RunnableFuture<?>> custom = strategyOrder.stream()
+                .flatMap(storage -> storage.submitted.stream())
+                .filter(future -> future instanceof SequentialFuture);
+        return Stream.concat(Stream.concat(single, batched), custom)
+                .filter(future -> !future.isDone());
+    }
+
+    /**
+     * Adds a task to this Organizer, which is run according to the
+     * FutureStrategy.
+     *
+     * <p>The built-in states do not take this path, so custom strategies
+     * do not slow them down.
+     *
+     * @param strategy the FutureStrategy to use
+     * @param callable the task to execute
+     * @param <T> the return type of callable
+     * @return a Future containing callable
+     * @throws NullPointerException if the strategy builds no future
+     */
+    <T> Future<T> submit(FutureStrategy strategy, Callable<T> callable) {
+        return submit(strategy, callable, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Adds a task to this Organizer, which is run according to the
+     * FutureStrategy, unless the specified number of tracked tasks is
+     * already waiting to be run.
+     *
+     * @param strategy the FutureStrategy to use
+     * @param callable the task to execute
+     * @param capacity the maximum number of waiting tasks
+     * @param <T> the return type of callable
+     * @return a Future containing callable or null if no capacity is left
+     * @throws NullPointerException if the strategy builds no future
+     */
+    <T> Future<T> submit(FutureStrategy strategy, Callable<T> callable,
+            int capacity) {
+        boolean tracked = trackingPending;
+        if (tracked && !reservePending(capacity)) {
+            return null;
+        }
+        RunnableFuture<T> future;
+        try {
+            future = Objects.requireNonNull(strategy.build(callable),
+                    "The strategy " + strategy + " must build a future.");
+        } catch (RuntimeException e) {
+            if (tracked) {
+                pendingCount.decrementAndGet();
+            }
+            throw e;
+        }
+        if (tracked) {
+            if (!future.isDone() && future instanceof SequentialFuture) {
+                addPending(future);
+            } else {
+                pendingCount.decrementAndGet();
+            }
+        }
+        StrategyTasks storage = strategies.computeIfAbsent(strategy, key -> {
+            StrategyTasks created = new StrategyTasks(key);
+            strategyOrder.add(created);
+            return created;
+        });
+        storage.submitted.add(future);
+        storage.count.increment();
+        submittedCount.increment();
+        storage.queue.add(future);
+        strategy.submitted(future, storage.queue);
+        return future;
+    }
+
+    /**
+     * Returns the number of tasks submitted by the FutureStrategy.
+     *
+     * @param strategy the FutureStrategy to get the count of
+     * @return the number of tasks submitted by strategy
+     */
+    int submittedTasksCount(FutureStrategy strategy) {
+        StrategyTasks storage = strategies.get(strategy);
+        return storage == null ? 0 : storage.count.intValue();
+    }
+
+    /**
+     * Enqueues a task to be drained if the state requires it.
+     *
+     * @param state the ExecutorServiceState the task was submitted in
+     * @param future the future of the task
+     * @param priority the priority of the task
+     */
+    private void enqueue(ExecutorServiceState state, RunnableFuture<?> future,
+            int priority) {
+        if (state == ExecutorServiceState.TRAMPOLINE) {
+            trampoline.add(future);
+        } else if (state == ExecutorServiceState.PRIORITY) {
+            prioritized.add(new PrioritizedTask(priority,
+                    prioritizedCount.getAndIncrement(), future));
+        }
+    }
+
+    /**
+     * Returns if tasks submitted in the specified state wait to be run.
+     *
+     * @param state the ExecutorServiceState to check
+     * @return true if and only if the tasks are neither run immediately
+     *         nor never
+     */
+    static boolean isWaiting(ExecutorServiceState state) {
+        return state != ExecutorServiceState.IMMEDIATELY
+                && state != ExecutorServiceState.NEVER;
+    }
+
+    /**
+     * Returns the number of submitted tasks waiting to be run.
+     *
+     * <p>Unless the tasks are tracked, they are counted, which takes time
+     * proportional to the number of submitted tasks.
+     *
+     * @return the number of waiting tasks
+     */
+    int pendingTasksCount() {
+        if (trackingPending) {
+            return pendingCount.get();
+        }
+        return (int) waitingTasks().count();
+    }
+
+    /**
+     * Returns the tracked task, which waits the longest.
+     *
+     * @return the oldest waiting task
+     * @throws NoSuchElementException if no task is waiting
+     */
+    RunnableFuture<?> oldestPendingTask() {
+        Map.Entry<Long, RunnableFuture<?>> oldest = pending.firstEntry();
+        if (oldest == null) {
+            throw new NoSuchElementException("No task is waiting.");
+        }
+        return oldest.getValue();
+    }
+
+    /**
+     * Adds a batch of tasks to this Organizer.
+     *
+     * <p>The tasks are stored in a single {@link SequentialBatch}
+     * instead of a future per task. If the waiting tasks are tracked, the
+     * tasks of the batch are tracked as well, but they are not subject to
+     * a capacity.
+     *
+     * @param state the ExecutorServiceState to use
+     * @param callables the tasks to execute
+     * @param <T> the return type of the callables
+     * @return a list of Futures containing the callables in
+     *         iteration order
+     * @throws NullPointerException if any callable is null
+     */
+    <T> List<Future<T>> submitAll(ExecutorServiceState state,
+            Collection<? extends Callable<T>> callables) {
+        SequentialBatch<T> batch
+                = new SequentialBatch<>(callables, isWaiting(state));
+        if (state == ExecutorServiceState.IMMEDIATELY) {
+            batch.runAll();
+        } else {
+            boolean tracked = trackingPending && isWaiting(state);
+            batch.forEach(future -> {
+                if (tracked) {
+                    pendingCount.incrementAndGet();
+                    addPending((RunnableFuture<?>) future);
+                }
+                enqueue(state, (RunnableFuture<?>) future, DEFAULT_PRIORITY);
+            });
+        }
+        batches.get(state).add(batch);
+        submittedCount.add(batch.size());
+        return batch;
+    }
+
+    /**
+     * Adds the tasks of a TaskGraph to this Organizer.
+     *
+     * <p>The tasks are submitted in topological order. A task runs all
+     * tasks before it, which have not been run yet, before it is run itself.
+     *
+     * @param state the ExecutorServiceState to use
+     * @param graph the graph of tasks to execute
+     * @param <K> the type of the keys
+     * @return the Futures by the keys of their tasks in topological order
+     * @throws IllegalArgumentException if a prerequisite is missing or
+     *         the tasks depend on each other in a cycle
+     */
+    <K> Map<K, Future<?>> submitGraph(ExecutorServiceState state,
+            TaskGraph<K> graph) {
+        GraphRun<K> run = new GraphRun<>(graph, false);
+        for (int position = 0; position < run.size(); position++) {
+            run.setFuture(position, submit(state, run.task(position)));
+        }
+        return run.futures();
+    }
+
     /**
      * Returns a stream of all unfinished tasks.
      *
+     * <p>The stream is weakly consistent if tasks are submitted
+     * concurrently.
+     *
      * @return a stream of all unfinished tasks.
      */
     Stream<Runnable> notFinishedTasks() {
-        Stream<? extends Runnable> onCallDone
-                = tasks.get(ExecutorServiceState.ONCALL).stream()
-                .filter(runnableFuture -> !runnableFuture.isDone());
-        Stream<? extends Runnable> awaitTermination
-                = tasks.get(ExecutorServiceState.AWAIT_TERMINATION).stream()
-                .filter(runnableFuture -> !runnableFuture.isDone());
-        Stream<? extends Runnable> neverDone
-                = tasks.get(ExecutorServiceState.NEVER).stream();
-        return Stream.concat(Stream.concat(onCallDone, neverDone),
-                awaitTermination);
+        Stream<Runnable> single = Arrays.stream(ExecutorServiceState.values())
+                .flatMap(state -> state == ExecutorServiceState.NEVER
+                        ? tasks.get(state).stream()
+                        : tasks.get(state).stream()
+                                .filter(runnableFuture -> !runnableFuture.isDone()));
+        Stream<Runnable> batched = Arrays.stream(ExecutorServiceState.values())
+                .flatMap(state -> state == ExecutorServiceState.NEVER
+                        ? batches.get(state).stream()
+                                .flatMap(SequentialBatch::tasks)
+                        : batches.get(state).stream()
+                                .flatMap(SequentialBatch::notDoneTasks));
+        Stream<Runnable> custom = strategyOrder.stream()
+                .flatMap(storage -> storage.submitted.stream()
+                        .filter(runnableFuture -> !runnableFuture.isDone()));
+        return Stream.concat(Stream.concat(single, batched), custom);
     }
 
     /**
@@ -91,7 +602,7 @@ class TaskOrganizer {
      * @return the number of all submitted tasks
      */
     int submittedTasksCount() {
-        return tasks.values().stream().mapToInt(Collection::size).sum();
+        return submittedCount.intValue();
     }
 
     /**
@@ -112,13 +623,106 @@ class TaskOrganizer {
         return (int) notFinishedTasks().count();
     }
 
+    /**
+     * Forgets all submitted tasks, so this Organizer can be reused.
+     *
+     * <p>The tasks are neither run nor cancelled. The containers are
+     * cleared in place and keep their allocated capacity. The sequence
+     * numbers keep counting, so tasks submitted before can not disturb
+     * the tasks submitted afterwards when they complete. The waiting tasks
+     * are not tracked anymore.
+     */
+    void reset() {
+        for (Collection<RunnableFuture<?>> collection : tasks.values()) {
+            collection.clear();
+        }
+        for (Collection<SequentialBatch<?>> collection : batches.values()) {
+            collection.clear();
+        }
+        trampoline.clear();
+        prioritized.clear();
+        strategies.clear();
+        strategyOrder.clear();
+        trackingPending = false;
+        pending.clear();
+        pendingCount.set(0);
+        submittedCount.reset();
+    }
+
     /**
      * Runs all tasks submitted in the
-     * {@link ExecutorServiceState#AWAIT_TERMINATION} state.
+     * {@link ExecutorServiceState#AWAIT_TERMINATION},
+     * {@link ExecutorServiceState#TRAMPOLINE} and
+     * {@link ExecutorServiceState#PRIORITY} state.
      */
     void awaitTermination() {
         tasks.get(ExecutorServiceState.AWAIT_TERMINATION).stream()
                 .forEach(ExecutorServiceHelper::isRegularlyDone);
+        batches.get(ExecutorServiceState.AWAIT_TERMINATION)
+                .forEach(SequentialBatch::runAll);
+        drain();
+    }
+
+    /**
+     * Runs the tasks submitted in the {@link ExecutorServiceState#TRAMPOLINE}
+     * and {@link ExecutorServiceState#PRIORITY} state and the queued tasks
+     * of FutureStrategies running on drain until none is left.
+     *
+     * <p>TRAMPOLINE tasks are run first in submission order, PRIORITY tasks
+     * afterwards in order of their priority, the tasks of FutureStrategies
+     * last. Tasks submitted while draining are run by the same loop, so the
+     * stack does not grow with the length of a chain of tasks.
+     *
+     * @return the number of tasks which have been run
+     */
+    int drain() {
+        int ran = 0;
+        int before;
+        do {
+            before = ran;
+            RunnableFuture<?> future;
+            while ((future = nextToDrain()) != null) {
+                ran += runIfNotDone(future);
+            }
+            for (StrategyTasks storage : strategyOrder) {
+                if (storage.strategy.runsOnDrain()) {
+                    while ((future = storage.queue.poll()) != null) {
+                        ran += runIfNotDone(future);
+                    }
+                }
+            }
+        } while (ran != before);
+        return ran;
+    }
+
+    /**
+     * Runs the task if it is not done.
+     *
+     * @param future the task to run
+     * @return 1 if the task has been run, otherwise 0
+     */
+    private static int runIfNotDone(RunnableFuture<?> future) {
+        if (future.isDone()) {
+            return 0;
+        }
+        future.run();
+        return 1;
+    }
+
+    /**
+     * Removes and returns the next task to drain.
+     *
+     * @return the next task to drain or null if there is none
+     */
+    private RunnableFuture<?> nextToDrain() {
+        RunnableFuture<?> future = trampoline.poll();
+        if (future == null) {
+            PrioritizedTask task = prioritized.poll();
+            if (task != null) {
+                future = task.future;
+            }
+        }
+        return future;
     }
 
 }
@@ -23,6 +23,7 @@
 
 package rex.palace.sequentialexecutor;
 
+import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.function.BooleanSupplier;
@@ -44,6 +45,31 @@ public interface TimeController {
      */
     void letTimePass(long time, TimeUnit unit);
 
+    /**
+     * Simulates that the Thread running the due tasks is busy.
+     *
+     * <p>TimeListeners are not notified until the specified time has
+     * passed. Then they are notified about all the time, which passed
+     * meanwhile, so tasks getting due while this TimeController is occupied
+     * are run late.
+     *
+     * <p>Occupying only affects later calls to
+     * {@link #letTimePass(long, TimeUnit)}. Tasks getting due within the
+     * call, during which this TimeController got occupied, are not
+     * delayed, so letting time pass in steps larger than the occupied time
+     * runs them earlier than a busy Thread would.
+     *
+     * <p>Default Implementation: This method does nothing, so tasks
+     * take no time.
+     *
+     * @param time the simulated time the Thread is busy
+     * @param unit the TimeUnit of time
+     * @throws NullPointerException if unit is null
+     */
+    default void occupy(long time, TimeUnit unit) {
+        Objects.requireNonNull(unit);
+    }
+
     /**
      * Registers a TimeListener to this TimeController.
      *
@@ -62,6 +88,58 @@ public interface TimeController {
      */
     void unregister(TimeListener listener);
 
+    /**
+     * Returns the simulated time TimeListeners have been notified about
+     * since this TimeController was created or reset.
+     *
+     * <p>Time which is withheld, e.g. since this TimeController is occupied,
+     * is not included until the TimeListeners are notified about it.
+     *
+     * <p>Default Implementation: Throws an UnsupportedOperationException,
+     * since the passed time is not known to this interface.
+     *
+     * @param unit the TimeUnit of the result
+     * @return the passed simulated time
+     * @throws NullPointerException if unit is null
+     * @throws UnsupportedOperationException if this TimeController does not
+     *         keep track of the passed time
+     */
+    default long getElapsedTime(TimeUnit unit) {
+        Objects.requireNonNull(unit);
+        throw new UnsupportedOperationException(
+                getClass().getName() + " does not keep track of the time.");
+    }
+
+    /**
+     * Resets this TimeController to the state of a newly created one.
+     *
+     * <p>All TimeListeners are unregistered without being notified and
+     * the simulated clock, including the occupied time, is reset.
+     *
+     * <p>Default Implementation: Throws an UnsupportedOperationException,
+     * since the registered TimeListeners are not known to this interface.
+     *
+     * @throws UnsupportedOperationException if this TimeController can
+     *         not be reset
+     */
+    default void reset() {
+        throw new UnsupportedOperationException(
+                getClass().getName() + " can not be reset.");
+    }
+
+    /**
+     * Returns the number of TimeListeners, which were unregistered
+     * automatically since they became unreachable.
+     *
+     * <p>Default Implementation: Returns 0, since TimeListeners are
+     * referenced strongly.
+     *
+     * @return the number of purged TimeListeners
+     */
+    default long getPurgedListenerCount() {
+        return 0L;
+    }
+
     /**
      * Lets the time pass until the condition evaluates to true.
      *
@@ -76,8 +154,14 @@ public interface TimeController {
      * test may run very long. Consider Overriding this method
      * if this is the case.
      *
+     * <p>Implementations are encouraged to detect conditions which can never
+     * become true, e.g. because no TimeListener is registered anymore,
+     * and to throw an IllegalStateException instead of blocking forever.
+     *
      * @param condition the condition to wait until it evaluates to true
      * @throws NullPointerException if condition is null
+     * @throws IllegalStateException if the implementation detects that
+     *         condition can never evaluate to true (optional)
      */
     default void letTimePassUntil(BooleanSupplier condition) {
         while (!condition.getAsBoolean()) {
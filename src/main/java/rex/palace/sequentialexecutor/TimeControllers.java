@@ -23,13 +23,15 @@
 
 package rex.palace.sequentialexecutor;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Objects;
-import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.BooleanSupplier;
-import java.util.stream.Collectors;
 
 /**
  * Static factory class for TimeControllers.
@@ -64,14 +66,142 @@ public final class TimeControllers {
         }
 
         @Override
-        public void letTimePassUntil(BooleanSupplier condition) {
+        public void reset() {
             //does nothing
         }
 
+        /**
+         * Returns 0, since time never passes.
+         *
+         * @param unit the TimeUnit of the result
+         * @return 0
+         * @throws NullPointerException if unit is null
+         */
+        @Override
+        public long getElapsedTime(TimeUnit unit) {
+            Objects.requireNonNull(unit);
+            return 0L;
+        }
+
+        /**
+         * Returns if the condition evaluates to true.
+         *
+         * <p>Since no TimeListener is ever registered to this
+         * TimeController, passing time can not change the condition.
+         *
+         * @param condition the condition to check
+         * @throws NullPointerException if condition is null
+         * @throws IllegalStateException if condition evaluates to false
+         */
+        @Override
+        public void letTimePassUntil(BooleanSupplier condition) {
+            if (!condition.getAsBoolean()) {
+                throw new IllegalStateException(
+                        standstillMessage(condition, this));
+            }
+        }
+
+        /**
+         * Returns if the condition evaluates to true.
+         *
+         * <p>Since no TimeListener is ever registered to this
+         * TimeController, passing time can not change the condition.
+         *
+         * @param condition the condition to check
+         * @param time the maximum time to wait
+         * @param unit the TimeUnit of time
+         * @throws NullPointerException if condition or unit is null
+         * @throws TimeoutException if condition evaluates to false
+         */
         @Override
         public void letTimePassUntil(
-                BooleanSupplier condition, long time, TimeUnit unit) {
-            //does nothing
+                BooleanSupplier condition, long time, TimeUnit unit)
+                throws TimeoutException {
+            Objects.requireNonNull(unit);
+            if (!condition.getAsBoolean()) {
+                throw new TimeoutException(
+                        standstillMessage(condition, this));
+            }
+        }
+
+    }
+
+    /**
+     * A TimeListener referencing another TimeListener weakly.
+     *
+     * <p>Two WeakTimeListeners are equal if they reference the same
+     * TimeListener, so a registration can be found by a new
+     * WeakTimeListener for the same TimeListener.
+     */
+    private static final class WeakTimeListener
+            extends WeakReference<TimeListener> implements TimeListener {
+
+        /**
+         * The identity hash code of the referenced TimeListener.
+         */
+        private final int hash;
+
+        /**
+         * The TimeController counting the purged TimeListeners,
+         * or null if this is only used for a look up.
+         */
+        private final TimeControllerImpl owner;
+
+        /**
+         * Creates a new WeakTimeListener.
+         *
+         * @param listener the TimeListener to reference weakly
+         * @param owner the TimeController to count a purge at,
+         *        or null if this is only used for a look up
+         */
+        private WeakTimeListener(
+                TimeListener listener, TimeControllerImpl owner) {
+            super(listener, owner == null ? null : owner.collected);
+            this.hash = System.identityHashCode(listener);
+            this.owner = owner;
+        }
+
+        /**
+         * Notifies the referenced TimeListener about passed time.
+         *
+         * <p>If the referenced TimeListener was collected, it is counted
+         * as purged and this is done.
+         *
+         * @param time the passed time
+         * @param unit the TimeUnit of time
+         * @return if this is done
+         */
+        @Override
+        public boolean timePassed(long time, TimeUnit unit) {
+            TimeListener listener = get();
+            if (listener == null) {
+                owner.purgedCount++;
+                return true;
+            }
+            return listener.timePassed(time, unit);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof WeakTimeListener)) {
+                return false;
+            }
+            TimeListener listener = get();
+            return listener != null
+                    && listener == ((WeakTimeListener) other).get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return "Weak[" + get() + ']';
         }
 
     }
@@ -82,34 +212,238 @@ public final class TimeControllers {
     private static final class TimeControllerImpl implements TimeController {
 
         /**
-         * The registered TimeListeners.
+         * The registered TimeListeners in registration order.
+         */
+        private final Collection<TimeListener> listeners
+                = new LinkedHashSet<>();
+
+        /**
+         * The queue of weakly registered TimeListeners, which were collected,
+         * or null if TimeListeners are registered strongly.
+         */
+        private final ReferenceQueue<TimeListener> collected;
+
+        /**
+         * The number of collected TimeListeners, which were unregistered.
+         */
+        private long purgedCount = 0L;
+
+        /**
+         * The time in nanos the TimeListeners have been notified about.
+         */
+        private long elapsedNanos = 0L;
+
+        /**
+         * The remaining time in nanos this TimeController is occupied.
          */
-        private final Collection<TimeListener> listeners = new HashSet<>();
+        private long busyNanos = 0L;
+
+        /**
+         * The time in nanos, which passed while this TimeController
+         * was occupied.
+         */
+        private long withheldNanos = 0L;
 
         /**
          * Creates a new TimeController.
+         *
+         * @param weak if TimeListeners are registered weakly
          */
-        private TimeControllerImpl() {
-            super();
+        private TimeControllerImpl(boolean weak) {
+            collected = weak ? new ReferenceQueue<>() : null;
+        }
+
+        /**
+         * Unregisters all weakly registered TimeListeners, which were
+         * collected.
+         */
+        private void purgeCollected() {
+            if (collected == null) {
+                return;
+            }
+            Reference<? extends TimeListener> reference;
+            while ((reference = collected.poll()) != null) {
+                if (listeners.remove(reference)) {
+                    purgedCount++;
+                }
+            }
         }
 
+        /**
+         * Returns if no TimeListener is registered anymore.
+         *
+         * @return if no TimeListener is registered
+         */
+        private boolean hasNoListeners() {
+            purgeCollected();
+            return listeners.isEmpty();
+        }
+
+        /**
+         * Calls all TimeListeners to notify them about passed time.
+         *
+         * <p>While this TimeController is occupied, the passed time is
+         * withheld. When it is not occupied anymore, the TimeListeners are
+         * notified about the withheld time at once.
+         *
+         * <p>The TimeListeners are notified in registration order. An
+         * occupation caused by a TimeListener only withholds the time of
+         * later calls. The TimeListeners notified after it in the same call
+         * are notified about the whole time, so tasks getting due within
+         * that call are not delayed. The model is exact only if time passes
+         * in steps no larger than the time tasks occupy this TimeController.
+         *
+         * @param time the simulated time that passes
+         * @param unit the TimeUnit of time
+         * @throws NullPointerException if unit is null
+         */
         @Override
         public void letTimePass(long time, TimeUnit unit) {
-            Set<TimeListener> toRemove =
-                    listeners.stream().filter(
-                            listener -> listener.timePassed(time, unit)
-                    ).collect(Collectors.toSet());
-            listeners.removeAll(toRemove);
+            if (busyNanos == 0L && withheldNanos == 0L) {
+                notifyListeners(time, unit);
+                return;
+            }
+            long nanos = unit.toNanos(time);
+            long consumed = Math.min(busyNanos, nanos);
+            busyNanos -= consumed;
+            withheldNanos += consumed;
+            if (busyNanos > 0L) {
+                return;
+            }
+            long passed = withheldNanos;
+            withheldNanos = 0L;
+            notifyListeners(passed, TimeUnit.NANOSECONDS);
+            if (nanos > consumed) {
+                letTimePass(nanos - consumed, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        /**
+         * Notifies all TimeListeners and unregisters those which are done.
+         *
+         * <p>The TimeListeners registered when the time passes are notified,
+         * so TimeListeners may register and unregister TimeListeners while
+         * they are notified. TimeListeners registered meanwhile are notified
+         * the next time, TimeListeners unregistered meanwhile are not
+         * notified anymore.
+         *
+         * @param time the simulated time that passed
+         * @param unit the TimeUnit of time
+         */
+        private void notifyListeners(long time, TimeUnit unit) {
+            elapsedNanos += unit.toNanos(time);
+            purgeCollected();
+            for (TimeListener listener
+                    : listeners.toArray(new TimeListener[listeners.size()])) {
+                if (listeners.contains(listener)
+                        && listener.timePassed(time, unit)) {
+                    listeners.remove(listener);
+                }
+            }
+        }
+
+        @Override
+        public void occupy(long time, TimeUnit unit) {
+            long nanos = unit.toNanos(time);
+            if (nanos < 0L) {
+                throw new IllegalArgumentException(
+                        "The time must not be negative, but was '"
+                                + time + "'.");
+            }
+            busyNanos += nanos;
+        }
+
+        /**
+         * Lets the time pass until the condition evaluates to true.
+         *
+         * <p>Unlike the default implementation this method does not
+         * spin forever if no TimeListener is registered anymore, since
+         * passing time can not change the condition then.
+         *
+         * @param condition the condition to wait until it evaluates to true
+         * @throws NullPointerException if condition is null
+         * @throws IllegalStateException if the condition evaluates to false
+         *         and no TimeListener is registered
+         */
+        @Override
+        public void letTimePassUntil(BooleanSupplier condition) {
+            while (!condition.getAsBoolean()) {
+                if (hasNoListeners()) {
+                    throw new IllegalStateException(
+                            standstillMessage(condition, this));
+                }
+                letTimePass(1L, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        /**
+         * Lets the time pass until the condition evaluates to true or
+         * the time out occurs.
+         *
+         * <p>If no TimeListener is registered anymore, the time out occurs
+         * immediately, since passing time can not change the condition then.
+         *
+         * @param condition the condition to wait until it evaluates to true
+         * @param time the maximum time to wait
+         * @param unit the TimeUnit of time
+         * @throws NullPointerException if condition or unit is null
+         * @throws TimeoutException if the condition is still false after
+         *         time passed or no TimeListener is registered
+         */
+        @Override
+        public void letTimePassUntil(
+                BooleanSupplier condition, long time, TimeUnit unit)
+                throws TimeoutException {
+            long timeInNanos = unit.toNanos(time);
+            long passedNanos = 0L;
+            while (!condition.getAsBoolean()) {
+                if (hasNoListeners()) {
+                    throw new TimeoutException(
+                            standstillMessage(condition, this));
+                }
+                if (passedNanos == timeInNanos) {
+                    throw new TimeoutException(
+                            "The condition did not evaluate to true in "
+                                    + time + ' ' + unit);
+                }
+                letTimePass(1L, TimeUnit.NANOSECONDS);
+                passedNanos++;
+            }
         }
 
         @Override
         public void register(TimeListener listener) {
-            listeners.add(Objects.requireNonNull(listener));
+            Objects.requireNonNull(listener);
+            listeners.add(collected == null
+                    ? listener : new WeakTimeListener(listener, this));
         }
 
         @Override
         public void unregister(TimeListener listener) {
-            listeners.remove(Objects.requireNonNull(listener));
+            Objects.requireNonNull(listener);
+            listeners.remove(collected == null
+                    ? listener : new WeakTimeListener(listener, null));
+        }
+
+        @Override
+        public long getPurgedListenerCount() {
+            purgeCollected();
+            return purgedCount;
+        }
+
+        @Override
+        public void reset() {
+            purgeCollected();
+            listeners.clear();
+            busyNanos = 0L;
+            withheldNanos = 0L;
+            purgedCount = 0L;
+            elapsedNanos = 0L;
+        }
+
+        @Override
+        public long getElapsedTime(TimeUnit unit) {
+            return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
         }
 
         @Override
@@ -132,6 +466,20 @@ public final class TimeControllers {
         super();
     }
 
+    /**
+     * Returns the message for a condition which can never become true.
+     *
+     * @param condition the condition which is still false
+     * @param timeController the TimeController without TimeListeners
+     * @return a message describing condition and timeController
+     */
+    static String standstillMessage(
+            BooleanSupplier condition, TimeController timeController) {
+        return "The condition " + condition + " can never evaluate to true,"
+                + " since no TimeListener is registered to "
+                + timeController + '.';
+    }
+
     /**
      * Returns a TimeController which does absolutely nothing.
      * @return a nop implementation of the TimeController interface
@@ -140,13 +488,43 @@ public final class TimeControllers {
         return NOP_TIME_CONTROLLER;
     }
 
+    /**
+     * Returns a TimeController, which lets time pass from deadline to
+     * deadline and runs scheduled tasks in order of their deadlines.
+     *
+     * @return a new earliest-deadline-first TimeController
+     * @see EarliestDeadlineFirstTimeController
+     */
+    public static TimeController getEarliestDeadlineFirst() {
+        return new EarliestDeadlineFirstTimeController();
+    }
+
     /**
      * Returns a TimeController not optimized for speed.
      * @return an API conform implementation of TimeController
      * @see TimeControllerImpl
      */
     public static TimeController getInstance() {
-        return new TimeControllerImpl();
+        return new TimeControllerImpl(false);
+    }
+
+    /**
+     * Returns a TimeController not optimized for speed, which references
+     * its TimeListeners weakly.
+     *
+     * <p>Scheduled futures, which became unreachable without being
+     * cancelled, are unregistered automatically instead of being
+     * notified forever. Their number is returned by
+     * {@link TimeController#getPurgedListenerCount()}. TimeListeners,
+     * which are only referenced by the TimeController, may be purged
+     * at any time.
+     *
+     * @return an API conform implementation of TimeController
+     *         referencing its TimeListeners weakly
+     * @see TimeControllerImpl
+     */
+    public static TimeController getWeakInstance() {
+        return new TimeControllerImpl(true);
     }
 
 }
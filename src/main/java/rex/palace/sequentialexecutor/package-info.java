@@ -49,11 +49,16 @@
  * can be obtained by {@link rex.palace.sequentialexecutor.TimeControllers}, which
  * simulates a real time flow deterministically.
  *
+ * <p>{@link rex.palace.sequentialexecutor.OrderedParallelExecutorService}
+ * runs its tasks in parallel, but completes their futures in submission
+ * order, which keeps results deterministic.
+ *
  * @see rex.palace.sequentialexecutor.SequentialExecutorService
  * @see rex.palace.sequentialexecutor.SequentialScheduledExecutorService
  * @see rex.palace.sequentialexecutor.TimeController
  * @see rex.palace.sequentialexecutor.TimeControllers
  * @see rex.palace.sequentialexecutor.ExecutorServiceState
+ * @see rex.palace.sequentialexecutor.OrderedParallelExecutorService
  */
 package rex.palace.sequentialexecutor;
 
@@ -0,0 +1,273 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests the BlockingSequentialFuture class.
+ */
+public class BlockingSequentialFutureTest {
+
+    /**
+     * Empty constructor.
+     */
+    public BlockingSequentialFutureTest() {
+        super();
+    }
+
+    /**
+     * Starts a Thread calling get() on future and waits until it is parked.
+     *
+     * @param future the future to wait for
+     * @param outcome receives the result or the Throwable of get()
+     * @return the started Thread
+     */
+    private static Thread startWaiting(
+            Future<?> future, AtomicReference<Object> outcome) {
+        Thread thread = new Thread(() -> {
+            try {
+                outcome.set(future.get());
+            } catch (Throwable throwable) {
+                outcome.set(throwable);
+            }
+        });
+        thread.start();
+        while (thread.getState() != Thread.State.WAITING) {
+            Thread.yield();
+        }
+        return thread;
+    }
+
+    @Test(timeOut = 5000L)
+    public void get_waitsForRun() throws Exception {
+        SequentialFuture<String> future
+                = SequentialFutures.getBlocking(() -> "result");
+        AtomicReference<Object> outcome = new AtomicReference<>();
+        Thread thread = startWaiting(future, outcome);
+
+        future.run();
+        thread.join();
+
+        Assert.assertEquals(outcome.get(), "result");
+    }
+
+    @Test(timeOut = 5000L)
+    public void get_severalWaiters() throws Exception {
+        SequentialFuture<String> future
+                = SequentialFutures.getBlocking(() -> "result");
+        AtomicReference<Object> first = new AtomicReference<>();
+        AtomicReference<Object> second = new AtomicReference<>();
+        Thread firstThread = startWaiting(future, first);
+        Thread secondThread = startWaiting(future, second);
+
+        future.run();
+        firstThread.join();
+        secondThread.join();
+
+        Assert.assertEquals(first.get(), "result");
+        Assert.assertEquals(second.get(), "result");
+    }
+
+    @Test(timeOut = 5000L)
+    public void get_cancelled() throws Exception {
+        SequentialFuture<String> future
+                = SequentialFutures.getBlocking(() -> "result");
+        AtomicReference<Object> outcome = new AtomicReference<>();
+        Thread thread = startWaiting(future, outcome);
+
+        Assert.assertTrue(future.cancel(false));
+        thread.join();
+
+        Assert.assertTrue(outcome.get() instanceof CancellationException);
+    }
+
+    @Test(timeOut = 5000L)
+    public void get_interrupted() throws Exception {
+        SequentialFuture<String> future
+                = SequentialFutures.getBlocking(() -> "result");
+        AtomicReference<Object> outcome = new AtomicReference<>();
+        Thread thread = startWaiting(future, outcome);
+
+        thread.interrupt();
+        thread.join();
+
+        Assert.assertTrue(outcome.get() instanceof InterruptedException);
+        Assert.assertFalse(future.isDone());
+    }
+
+    @Test(timeOut = 5000L)
+    public void run_throwingListenerBeforeWaiter() throws Exception {
+        SequentialFuture<String> future
+                = SequentialFutures.getBlocking(() -> "result");
+        List<Throwable> uncaught = new ArrayList<>();
+        StringBuilder order = new StringBuilder();
+        future.addListener(() -> {
+            throw new IllegalStateException();
+        }, Runnable::run);
+        AtomicReference<Object> outcome = new AtomicReference<>();
+        Thread thread = startWaiting(future, outcome);
+        future.addListener(() -> order.append(2), Runnable::run);
+
+        Thread current = Thread.currentThread();
+        Thread.UncaughtExceptionHandler handler
+                = current.getUncaughtExceptionHandler();
+        current.setUncaughtExceptionHandler((t, e) -> uncaught.add(e));
+        try {
+            future.run();
+        } finally {
+            current.setUncaughtExceptionHandler(handler);
+        }
+        thread.join();
+
+        Assert.assertEquals(outcome.get(), "result");
+        Assert.assertEquals(order.toString(), "2");
+        Assert.assertEquals(uncaught.size(), 1);
+        Assert.assertTrue(uncaught.get(0) instanceof IllegalStateException);
+    }
+
+    @Test(timeOut = 5000L)
+    public void get_timeout_unlinksWaiter() throws Exception {
+        BlockingSequentialFuture<String> future
+                = new BlockingSequentialFuture<>(() -> "result");
+        future.whenCompleted(() -> { });
+        for (int i = 0; i < 100; i++) {
+            try {
+                future.get(1L, TimeUnit.MICROSECONDS);
+                Assert.fail("TimeoutException expected");
+            } catch (TimeoutException expected) {
+            }
+        }
+
+        Assert.assertEquals(future.getWaiterCount(), 1);
+    }
+
+    @Test(timeOut = 5000L)
+    public void get_interrupted_unlinksWaiter() throws Exception {
+        BlockingSequentialFuture<String> future
+                = new BlockingSequentialFuture<>(() -> "result");
+        AtomicReference<Object> outcome = new AtomicReference<>();
+        Thread thread = startWaiting(future, outcome);
+
+        Assert.assertEquals(future.getWaiterCount(), 1);
+
+        thread.interrupt();
+        thread.join();
+
+        Assert.assertEquals(future.getWaiterCount(), 0);
+    }
+
+    @Test(timeOut = 5000L, expectedExceptions = TimeoutException.class)
+    public void get_timeout() throws Exception {
+        SequentialFutures.getBlocking(() -> "result")
+                .get(10L, TimeUnit.MILLISECONDS);
+    }
+
+    @Test(expectedExceptions = ExecutionException.class)
+    public void get_exception() throws Exception {
+        SequentialFuture<Object> future = SequentialFutures.getBlocking(() -> {
+            throw new IllegalStateException();
+        });
+        future.run();
+
+        Assert.assertTrue(future.isExceptionHappened());
+        future.get();
+    }
+
+    @Test
+    public void run_once() {
+        AtomicInteger count = new AtomicInteger(0);
+        SequentialFuture<Integer> future
+                = SequentialFutures.getBlocking(count::incrementAndGet);
+        future.run();
+        future.run();
+
+        Assert.assertEquals(count.get(), 1);
+        Assert.assertTrue(future.hasRun());
+    }
+
+    @Test(expectedExceptions = CancellationException.class)
+    public void run_cancelled() {
+        SequentialFuture<Object> future = SequentialFutures.getBlocking(() -> null);
+        future.cancel(true);
+        future.run();
+    }
+
+    @Test
+    public void whenCompleted() {
+        SequentialFuture<Object> future = SequentialFutures.getBlocking(() -> null);
+        StringBuilder order = new StringBuilder();
+        future.whenCompleted(() -> order.append(1));
+        future.whenCompleted(() -> order.append(2));
+
+        Assert.assertEquals(order.toString(), "");
+
+        future.run();
+        future.whenCompleted(() -> order.append(3));
+
+        Assert.assertEquals(order.toString(), "123");
+    }
+
+    @Test
+    public void toString_test() {
+        Callable<Object> callable = () -> null;
+        SequentialFuture<Object> future = SequentialFutures.getBlocking(callable);
+
+        Assert.assertEquals(future.toString(), "BlockingSequentialFuture[task="
+                + callable + ",state=running]");
+
+        future.run();
+
+        Assert.assertEquals(future.toString(), "BlockingSequentialFuture[task="
+                + callable + ",state=done result: null]");
+    }
+
+    @Test(timeOut = 5000L)
+    public void blockingStrategy_drainedByOtherThread() throws Exception {
+        SequentialExecutorService service = new SequentialExecutorService();
+        service.setFutureStrategy(FutureStrategies.blocking());
+        Future<String> future = service.submit(() -> "result");
+        Thread driver = new Thread(service::drain);
+
+        driver.start();
+
+        Assert.assertEquals(future.get(), "result");
+        driver.join();
+    }
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
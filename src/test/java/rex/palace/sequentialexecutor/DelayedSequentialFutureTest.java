@@ -142,6 +142,18 @@ public class DelayedSequentialFutureTest {
         Assert.assertEquals(integerFuture.get(11L, TimeUnit.MICROSECONDS), Integer.valueOf(5));
     }
 
+    @Test(timeOut = 1000L)
+    public void get_neverDone() throws ExecutionException, InterruptedException {
+        SequentialScheduledFuture<Void> neverDone = SequentialScheduledFutures.getDelayed(
+                () -> null, 10L, TimeUnit.NANOSECONDS, TimeControllers.getNop());
+        try {
+            neverDone.get();
+            Assert.fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage().contains(neverDone.toString()));
+        }
+    }
+
     @Test
     public void toString_running() {
         StringBuilder regexPattern = new StringBuilder();
@@ -0,0 +1,268 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the EarliestDeadlineFirstTimeController class.
+ */
+public class EarliestDeadlineFirstTimeControllerTest {
+
+    /**
+     * A mock TimeListener which just counts the passed time.
+     */
+    private static class TimeListenerMock implements TimeListener {
+
+        /**
+         * The passed time in nano seconds.
+         */
+        public long passedTimeInNanos = 0L;
+
+        /**
+         * Creates a new TimeListenerMock.
+         */
+        TimeListenerMock() {
+            super();
+        }
+
+        @Override
+        public boolean timePassed(long time, TimeUnit unit) {
+            passedTimeInNanos += unit.toNanos(time);
+            return false;
+        }
+
+    }
+
+    /**
+     * The TimeController this' tests can use.
+     */
+    private TimeController timeController;
+
+    /**
+     * The SequentialScheduledExecutorService this' tests can use.
+     */
+    private SequentialScheduledExecutorService executorService;
+
+    /**
+     * Empty constructor.
+     */
+    public EarliestDeadlineFirstTimeControllerTest() {
+        super();
+    }
+
+    /**
+     * Initializes the instance variables.
+     */
+    @BeforeMethod
+    public void initializeInstanceVariables() {
+        timeController = TimeControllers.getEarliestDeadlineFirst();
+        executorService = new SequentialScheduledExecutorService(timeController);
+    }
+
+    @Test
+    public void letTimePass_deadlineOrder() {
+        List<String> order = new ArrayList<>();
+        executorService.schedule(() -> order.add("c"), 30L, TimeUnit.MILLISECONDS);
+        executorService.schedule(() -> {
+            executorService.schedule(() -> order.add("b"), 5L, TimeUnit.MILLISECONDS);
+            order.add("a");
+        }, 10L, TimeUnit.MILLISECONDS);
+        executorService.schedule(() -> order.add("tie"), 30L, TimeUnit.MILLISECONDS);
+
+        timeController.letTimePass(1L, TimeUnit.SECONDS);
+
+        Assert.assertEquals(order, Arrays.asList("a", "b", "c", "tie"));
+    }
+
+    @Test(timeOut = 5000L)
+    public void letTimePass_manyTasks() {
+        int tasks = 50000;
+        AtomicInteger count = new AtomicInteger(0);
+        for (int i = tasks; i > 0; i--) {
+            int expected = i - 1;
+            executorService.schedule(() -> {
+                if (count.get() == expected) {
+                    count.incrementAndGet();
+                }
+            }, i, TimeUnit.MILLISECONDS);
+        }
+
+        timeController.letTimePass(tasks, TimeUnit.MILLISECONDS);
+
+        Assert.assertEquals(count.get(), tasks);
+    }
+
+    @Test
+    public void letTimePass_periodic() {
+        AtomicInteger count = new AtomicInteger(0);
+        executorService.scheduleAtFixedRate(
+                count::incrementAndGet, 10L, 10L, TimeUnit.MILLISECONDS);
+
+        timeController.letTimePass(100L, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(count.get(), 10);
+
+        timeController.letTimePass(5L, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(count.get(), 10);
+
+        timeController.letTimePass(5L, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(count.get(), 11);
+    }
+
+    @Test
+    public void letTimePass_notDelayedListener() {
+        TimeListenerMock listener = new TimeListenerMock();
+        timeController.register(listener);
+        executorService.schedule(() -> null, 10L, TimeUnit.NANOSECONDS);
+
+        timeController.letTimePass(25L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(listener.passedTimeInNanos, 25L);
+    }
+
+    @Test
+    public void unregister() {
+        TimeListenerMock listener = new TimeListenerMock();
+        timeController.register(listener);
+        timeController.letTimePass(10L, TimeUnit.NANOSECONDS);
+        timeController.unregister(listener);
+
+        timeController.letTimePass(10L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(listener.passedTimeInNanos, 10L);
+    }
+
+    @Test
+    public void cancel_beforeDeadline() {
+        Future<?> future = executorService.schedule(
+                () -> Assert.fail(), 10L, TimeUnit.NANOSECONDS);
+        future.cancel(false);
+
+        timeController.letTimePass(20L, TimeUnit.NANOSECONDS);
+
+        Assert.assertTrue(future.isCancelled());
+    }
+
+    @Test(timeOut = 1000L)
+    public void letTimePassUntil_jumpsToDeadline() {
+        Future<?> future = executorService.schedule(() -> null, 1L, TimeUnit.DAYS);
+
+        timeController.letTimePassUntil(future::isDone);
+
+        Assert.assertTrue(future.isDone());
+    }
+
+    @Test(timeOut = 1000L)
+    public void letTimePassUntil_limited() throws TimeoutException {
+        Future<?> future = executorService.schedule(() -> null, 1L, TimeUnit.DAYS);
+
+        timeController.letTimePassUntil(future::isDone, 2L, TimeUnit.DAYS);
+
+        Assert.assertTrue(future.isDone());
+    }
+
+    @Test(timeOut = 1000L, expectedExceptions = TimeoutException.class)
+    public void letTimePassUntil_limited_timeout() throws TimeoutException {
+        Future<?> future = executorService.schedule(() -> null, 2L, TimeUnit.DAYS);
+
+        timeController.letTimePassUntil(future::isDone, 1L, TimeUnit.DAYS);
+    }
+
+    @Test
+    public void occupy_delaysLaterDeadlines() {
+        List<Long> runs = new ArrayList<>();
+        TimeListenerMock listener = new TimeListenerMock();
+        executorService.schedule(() -> {
+            runs.add(timeController.getElapsedTime(TimeUnit.NANOSECONDS));
+            timeController.occupy(15L, TimeUnit.NANOSECONDS);
+        }, 10L, TimeUnit.NANOSECONDS);
+        executorService.schedule(() -> runs.add(
+                timeController.getElapsedTime(TimeUnit.NANOSECONDS)),
+                20L, TimeUnit.NANOSECONDS);
+        executorService.schedule(() -> runs.add(
+                timeController.getElapsedTime(TimeUnit.NANOSECONDS)),
+                12L, TimeUnit.NANOSECONDS);
+        timeController.register(listener);
+
+        timeController.letTimePass(22L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(runs, Arrays.asList(10L));
+        Assert.assertEquals(listener.passedTimeInNanos, 10L);
+
+        timeController.letTimePass(78L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(runs, Arrays.asList(10L, 25L, 25L));
+        Assert.assertEquals(listener.passedTimeInNanos, 100L);
+    }
+
+    @Test(timeOut = 1000L)
+    public void occupy_letTimePassUntil() {
+        Future<?> first = executorService.schedule(() -> timeController
+                .occupy(1L, TimeUnit.DAYS), 1L, TimeUnit.NANOSECONDS);
+        Future<?> second = executorService.schedule(
+                () -> null, 2L, TimeUnit.NANOSECONDS);
+
+        timeController.letTimePassUntil(second::isDone);
+
+        Assert.assertTrue(first.isDone());
+        Assert.assertEquals(timeController.getElapsedTime(TimeUnit.DAYS), 1L);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void occupy_negative() {
+        timeController.occupy(-1L, TimeUnit.NANOSECONDS);
+    }
+
+    @Test(timeOut = 1000L, expectedExceptions = IllegalStateException.class)
+    public void letTimePassUntil_noListeners() {
+        timeController.letTimePassUntil(() -> false);
+    }
+
+    @Test(timeOut = 1000L, expectedExceptions = TimeoutException.class)
+    public void letTimePassUntil_limited_noListeners() throws TimeoutException {
+        timeController.letTimePassUntil(() -> false, 1L, TimeUnit.DAYS);
+    }
+
+    @Test(timeOut = 1000L, expectedExceptions = IllegalStateException.class)
+    public void reset() {
+        executorService.schedule(() -> null, 2L, TimeUnit.DAYS);
+
+        timeController.reset();
+
+        timeController.letTimePassUntil(() -> false);
+    }
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
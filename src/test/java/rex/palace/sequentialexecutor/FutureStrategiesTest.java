@@ -0,0 +1,224 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Tests the FutureStrategies class.
+ */
+public class FutureStrategiesTest {
+
+    /**
+     * A SequentialExecutorService instance used by the tests.
+     */
+    private SequentialExecutorService executorService;
+
+    /**
+     * Empty constructor.
+     */
+    public FutureStrategiesTest() {
+        super();
+    }
+
+    /**
+     * Initializes the instance variables.
+     */
+    @BeforeMethod
+    public void initializeInstanceVariables() {
+        executorService = new SequentialExecutorService();
+    }
+
+    @Test
+    public void onCall() throws Exception {
+        executorService.setFutureStrategy(FutureStrategies.onCall());
+        Future<String> future = executorService.submit(() -> "result");
+
+        Assert.assertFalse(future.isDone());
+        Assert.assertEquals(future.get(), "result");
+        Assert.assertEquals(executorService.drain(), 0);
+    }
+
+    @Test
+    public void onDrain() throws Exception {
+        executorService.setFutureStrategy(FutureStrategies.onDrain());
+        List<Integer> order = new ArrayList<>();
+        Future<?> first = executorService.submit(() -> order.add(1));
+        executorService.execute(() -> order.add(2));
+
+        Assert.assertTrue(order.isEmpty());
+        Assert.assertEquals(executorService.drain(), 2);
+        Assert.assertEquals(order, Arrays.asList(1, 2));
+        Assert.assertEquals(first.get(), Boolean.TRUE);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void onDrain_get() throws Exception {
+        executorService.setFutureStrategy(FutureStrategies.onDrain());
+        executorService.submit(() -> null).get();
+    }
+
+    @Test
+    public void afterSubmissions() {
+        executorService.setFutureStrategy(FutureStrategies.afterSubmissions(2));
+        List<Integer> order = new ArrayList<>();
+        Future<?> first = executorService.submit(() -> order.add(1));
+        executorService.submit(() -> order.add(2));
+
+        Assert.assertFalse(first.isDone());
+
+        executorService.submit(() -> order.add(3));
+
+        Assert.assertTrue(first.isDone());
+        Assert.assertEquals(order, Arrays.asList(1));
+        Assert.assertEquals(executorService.drain(), 2);
+        Assert.assertEquals(order, Arrays.asList(1, 2, 3));
+    }
+
+    @Test
+    public void afterSubmissions_zero() {
+        executorService.setFutureStrategy(FutureStrategies.afterSubmissions(0));
+        Future<?> future = executorService.submit(() -> null);
+
+        Assert.assertTrue(future.isDone());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void afterSubmissions_negative() {
+        FutureStrategies.afterSubmissions(-1);
+    }
+
+    @Test
+    public void failing_reproducible() {
+        List<Boolean> first = failures(42L);
+        List<Boolean> second = failures(42L);
+
+        Assert.assertEquals(first, second);
+        Assert.assertTrue(first.contains(Boolean.TRUE));
+        Assert.assertTrue(first.contains(Boolean.FALSE));
+    }
+
+    @Test
+    public void failing_never() throws Exception {
+        executorService.setFutureStrategy(
+                FutureStrategies.failing(FutureStrategies.onCall(), 0.0, 1L));
+
+        Assert.assertEquals(executorService.submit(() -> "result").get(), "result");
+    }
+
+    @Test(expectedExceptions = ExecutionException.class)
+    public void failing_always() throws Exception {
+        executorService.setFutureStrategy(
+                FutureStrategies.failing(FutureStrategies.onCall(), 1.0, 1L));
+        executorService.submit(() -> "result").get();
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void failing_probabilityTooHigh() {
+        FutureStrategies.failing(FutureStrategies.onCall(), 1.5, 1L);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void failing_probabilityNaN() {
+        FutureStrategies.failing(FutureStrategies.onCall(), Double.NaN, 1L);
+    }
+
+    @Test(expectedExceptions = NullPointerException.class)
+    public void failing_nullStrategy() {
+        FutureStrategies.failing(null, 0.5, 1L);
+    }
+
+    @Test
+    public void counters() {
+        FutureStrategy strategy = FutureStrategies.onDrain();
+        executorService.setFutureStrategy(strategy);
+        executorService.submitAll(Arrays.asList(() -> 1, () -> 2));
+        executorService.setFutureStrategy(FutureStrategies.onCall());
+        executorService.submit(() -> 3);
+
+        Assert.assertEquals(executorService.getSubmittedTaskCount(strategy), 2);
+        Assert.assertEquals(executorService.getSubmittedTaskCount(
+                FutureStrategies.onCall()), 1);
+        Assert.assertEquals(executorService.getPendingTaskCount(), 3);
+
+        executorService.drain();
+
+        Assert.assertEquals(executorService.getPendingTaskCount(), 0);
+    }
+
+    @Test
+    public void setExecutorServiceState_resetsStrategy() {
+        executorService.setFutureStrategy(FutureStrategies.onDrain());
+        executorService.setExecutorServiceState(ExecutorServiceState.IMMEDIATELY);
+
+        Assert.assertNull(executorService.getFutureStrategy());
+        Assert.assertTrue(executorService.submit(() -> null).isDone());
+    }
+
+    @Test
+    public void shutdownNow() {
+        executorService.setFutureStrategy(FutureStrategies.onDrain());
+        executorService.submit(() -> null);
+
+        Assert.assertEquals(executorService.shutdownNow().size(), 1);
+    }
+
+    /**
+     * Submits tasks failing randomly and returns which of them failed.
+     *
+     * @param seed the seed of the random generator
+     * @return if the tasks failed in submission order
+     */
+    private static List<Boolean> failures(long seed) {
+        SequentialExecutorService service = new SequentialExecutorService();
+        service.setFutureStrategy(
+                FutureStrategies.failing(FutureStrategies.onCall(), 0.5, seed));
+        return IntStream.range(0, 20)
+                .mapToObj(i -> service.submit(() -> i))
+                .map(future -> {
+                    try {
+                        future.get();
+                        return Boolean.FALSE;
+                    } catch (ExecutionException expected) {
+                        return Boolean.TRUE;
+                    } catch (InterruptedException e) {
+                        throw new AssertionError(e);
+                    }
+                })
+                .collect(Collectors.toList());
+    }
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
@@ -0,0 +1,230 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the KeyedSequentialExecutor class.
+ */
+public class KeyedSequentialExecutorTest {
+
+    /**
+     * The pool the tested executor runs on.
+     */
+    private ExecutorService pool;
+
+    /**
+     * The KeyedSequentialExecutor to be tested.
+     */
+    private KeyedSequentialExecutor<Integer> executor;
+
+    /**
+     * Empty constructor.
+     */
+    public KeyedSequentialExecutorTest() {
+        super();
+    }
+
+    /**
+     * Initializes the instance variables.
+     */
+    @BeforeMethod
+    public void initializeInstanceVariables() {
+        pool = Executors.newFixedThreadPool(4);
+        executor = new KeyedSequentialExecutor<>(pool, 2);
+    }
+
+    /**
+     * Shuts the pool down.
+     */
+    @AfterMethod
+    public void shutdownPool() {
+        pool.shutdownNow();
+    }
+
+    @Test(timeOut = 10000L)
+    public void sequentialPerKey() throws ExecutionException, InterruptedException {
+        List<List<Integer>> seen = new ArrayList<>();
+        List<AtomicInteger> running = new ArrayList<>();
+        for (int key = 0; key < 4; key++) {
+            seen.add(new ArrayList<>());
+            running.add(new AtomicInteger(0));
+        }
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            int key = i % 4;
+            int value = i;
+            futures.add(executor.submit(key, () -> {
+                Assert.assertEquals(running.get(key).incrementAndGet(), 1);
+                seen.get(key).add(value);
+                running.get(key).decrementAndGet();
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        for (int key = 0; key < 4; key++) {
+            List<Integer> values = seen.get(key);
+            Assert.assertEquals(values.size(), 250);
+            for (int i = 0; i < values.size(); i++) {
+                Assert.assertEquals(values.get(i), Integer.valueOf(i * 4 + key));
+            }
+        }
+    }
+
+    @Test(timeOut = 30000L)
+    public void sequentialPerKey_concurrentSubmitters() throws Exception {
+        int keys = 4;
+        int tasksPerKey = 5000;
+        AtomicInteger overlaps = new AtomicInteger(0);
+        List<List<Integer>> seen = new ArrayList<>();
+        List<AtomicInteger> running = new ArrayList<>();
+        for (int key = 0; key < keys; key++) {
+            seen.add(Collections.synchronizedList(new ArrayList<>()));
+            running.add(new AtomicInteger(0));
+        }
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> submitters = new ArrayList<>();
+        List<Future<?>> lastFutures = Collections.synchronizedList(new ArrayList<>());
+        for (int k = 0; k < keys; k++) {
+            int key = k;
+            Thread submitter = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                Future<?> future = null;
+                for (int i = 0; i < tasksPerKey; i++) {
+                    int value = i;
+                    future = executor.submit(key, () -> {
+                        if (running.get(key).incrementAndGet() != 1) {
+                            overlaps.incrementAndGet();
+                        }
+                        seen.get(key).add(value);
+                        running.get(key).decrementAndGet();
+                    });
+                    if (i % 8 == 0) {
+                        // lets the queue of the key run empty now and then
+                        Thread.yield();
+                    }
+                }
+                lastFutures.add(future);
+            });
+            submitter.setDaemon(true);
+            submitters.add(submitter);
+            submitter.start();
+        }
+        start.countDown();
+        for (Thread submitter : submitters) {
+            submitter.join();
+        }
+        for (Future<?> future : lastFutures) {
+            future.get();
+        }
+
+        Assert.assertEquals(overlaps.get(), 0);
+        for (int key = 0; key < keys; key++) {
+            List<Integer> values = seen.get(key);
+            Assert.assertEquals(values.size(), tasksPerKey);
+            for (int i = 0; i < tasksPerKey; i++) {
+                Assert.assertEquals(values.get(i), Integer.valueOf(i));
+            }
+        }
+    }
+
+    @Test(timeOut = 10000L)
+    public void idleKeysAreRemoved() throws ExecutionException, InterruptedException {
+        executor.submit(1, () -> 1).get();
+        executor.submit(2, () -> 2).get();
+        pool.shutdown();
+        pool.awaitTermination(1L, TimeUnit.SECONDS);
+
+        Assert.assertEquals(executor.activeKeysCount(), 0);
+    }
+
+    @Test(timeOut = 10000L)
+    public void exceptionDoesNotStopKey() throws ExecutionException, InterruptedException {
+        executor.execute(1, () -> {
+            throw new IllegalStateException();
+        });
+        Assert.assertEquals(executor.submit(1, () -> 5).get(), Integer.valueOf(5));
+    }
+
+    @Test
+    public void execute_rejected_taskNotRun() {
+        List<String> ran = new ArrayList<>();
+        boolean[] reject = {true};
+        KeyedSequentialExecutor<Integer> rejecting
+                = new KeyedSequentialExecutor<>(command -> {
+                    if (reject[0]) {
+                        throw new RejectedExecutionException();
+                    }
+                    command.run();
+                });
+        try {
+            rejecting.execute(1, () -> ran.add("rejected"));
+            Assert.fail("The task has not been rejected.");
+        } catch (RejectedExecutionException expected) {
+            //expected
+        }
+
+        Assert.assertEquals(rejecting.activeKeysCount(), 0);
+
+        reject[0] = false;
+        rejecting.execute(1, () -> ran.add("accepted"));
+
+        Assert.assertEquals(ran, Collections.singletonList("accepted"));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void new_nonPositiveBatchSize() {
+        new KeyedSequentialExecutor<Integer>(pool, 0);
+    }
+
+    @Test(expectedExceptions = NullPointerException.class)
+    public void submit_nullKey() {
+        executor.submit(null, () -> null);
+    }
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
@@ -56,6 +56,17 @@ public class NopTimeControllerTest {
         nopTimeController.register((time, unit) -> false);
         nopTimeController.unregister((time, unit) -> false);
     }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void letTimePassUntil_neverTrue() {
+        nopTimeController.letTimePassUntil(() -> false);
+    }
+
+    @Test(expectedExceptions = TimeoutException.class)
+    public void letTimePassUntil_limited_neverTrue() throws TimeoutException {
+        nopTimeController.letTimePassUntil(() -> false, 1L, TimeUnit.DAYS);
+    }
+
 }
 
 /* vim:set shiftwidth=4 softtabstop=4 expandtab: */
@@ -0,0 +1,153 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Tests the OrderedParallelExecutorService class.
+ */
+public class OrderedParallelExecutorServiceTest {
+
+    /**
+     * The OrderedParallelExecutorService to be tested.
+     */
+    private OrderedParallelExecutorService service;
+
+    /**
+     * Empty constructor.
+     */
+    public OrderedParallelExecutorServiceTest() {
+        super();
+    }
+
+    /**
+     * Initializes the instance variables.
+     */
+    @BeforeMethod
+    public void initializeInstanceVariables() {
+        service = new OrderedParallelExecutorService(Executors.newFixedThreadPool(4));
+    }
+
+    /**
+     * Shuts the service down.
+     */
+    @AfterMethod
+    public void shutdownService() {
+        service.shutdownNow();
+    }
+
+    @Test(timeOut = 5000L)
+    public void laterTaskWaitsForEarlierTask()
+            throws ExecutionException, InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch secondRan = new CountDownLatch(1);
+        Future<Integer> first = service.submit(() -> {
+            release.await();
+            return 1;
+        });
+        Future<Integer> second = service.submit(() -> {
+            secondRan.countDown();
+            return 2;
+        });
+
+        secondRan.await();
+        Assert.assertFalse(second.isDone());
+        Assert.assertFalse(first.isDone());
+
+        release.countDown();
+        Assert.assertEquals(second.get(), Integer.valueOf(2));
+        Assert.assertTrue(first.isDone());
+        Assert.assertEquals(first.get(), Integer.valueOf(1));
+    }
+
+    @Test(timeOut = 5000L)
+    public void cancelledTaskDoesNotBlockLaterTasks()
+            throws ExecutionException, InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Integer> first = service.submit(() -> {
+            release.await();
+            return 1;
+        });
+        Future<Integer> second = service.submit(() -> 2);
+
+        Assert.assertTrue(first.cancel(true));
+        Assert.assertEquals(second.get(), Integer.valueOf(2));
+    }
+
+    @Test(timeOut = 5000L, expectedExceptions = ExecutionException.class)
+    public void exceptionIsPublished() throws ExecutionException, InterruptedException {
+        service.submit(() -> {
+            throw new IllegalStateException();
+        }).get();
+    }
+
+    @Test(timeOut = 5000L)
+    public void invokeAll() throws ExecutionException, InterruptedException {
+        List<Callable<Integer>> tasks = IntStream.range(0, 100)
+                .mapToObj(i -> (Callable<Integer>) () -> i * i)
+                .collect(Collectors.toList());
+        List<Future<Integer>> futures = service.invokeAll(tasks);
+
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(futures.get(i).get(), Integer.valueOf(i * i));
+        }
+    }
+
+    @Test(timeOut = 5000L)
+    public void defaultPool() throws ExecutionException, InterruptedException {
+        OrderedParallelExecutorService defaultService = new OrderedParallelExecutorService();
+        try {
+            Assert.assertEquals(defaultService.submit(() -> 5).get(), Integer.valueOf(5));
+        } finally {
+            defaultService.shutdown();
+        }
+    }
+
+    @Test(timeOut = 5000L)
+    public void shutdown() throws InterruptedException {
+        service.submit(() -> null);
+        service.shutdown();
+
+        Assert.assertTrue(service.isShutdown());
+        Assert.assertTrue(service.awaitTermination(1L, TimeUnit.SECONDS));
+        Assert.assertTrue(service.isTerminated());
+    }
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
@@ -315,6 +315,21 @@ public class PeriodicSequentialFutureTest {
         Assert.assertTrue(matcher.matches());
     }
 
+    @Test
+    public void addListener_firesOnCancelOnly() {
+        StringBuilder calls = new StringBuilder();
+        future.addListener(() -> calls.append('x'), Runnable::run);
+
+        timeController.letTimePass(100L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(calls.toString(), "");
+
+        future.cancel(false);
+        future.cancel(false);
+
+        Assert.assertEquals(calls.toString(), "x");
+    }
+
 }
 
 /* vim:set shiftwidth=4 softtabstop=4 expandtab: */
@@ -0,0 +1,168 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the RunHistory class.
+ */
+public class RunHistoryTest {
+
+    /**
+     * The RunHistory this' tests can use.
+     */
+    private RunHistory<Integer> history;
+
+    /**
+     * Empty constructor.
+     */
+    public RunHistoryTest() {
+        super();
+    }
+
+    /**
+     * Initializes the instance variables.
+     */
+    @BeforeMethod
+    public void initializeInstanceVariables() {
+        history = new RunHistory<>(3);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void constructor_notPositive() {
+        new RunHistory<>(0);
+    }
+
+    @Test
+    public void record_notFull() {
+        history.record(10L, 1, false);
+        history.record(20L, 2, false);
+
+        Assert.assertEquals(history.size(), 2);
+        Assert.assertEquals(history.capacity(), 3);
+        Assert.assertEquals(history.getResult(0), Integer.valueOf(1));
+        Assert.assertEquals(history.getTime(1, TimeUnit.NANOSECONDS), 20L);
+    }
+
+    @Test
+    public void record_overwritesOldest() {
+        for (int i = 1; i <= 5; i++) {
+            history.record(i, i, false);
+        }
+
+        Assert.assertEquals(history.size(), 3);
+        Assert.assertEquals(history.recordedCount(), 5L);
+        Assert.assertEquals(history.getResult(0), Integer.valueOf(3));
+        Assert.assertEquals(history.getResult(2), Integer.valueOf(5));
+    }
+
+    @Test
+    public void record_failure() {
+        Exception exception = new IllegalStateException();
+        history.record(1L, exception, true);
+
+        Assert.assertTrue(history.isFailure(0));
+        Assert.assertNull(history.getResult(0));
+        Assert.assertSame(history.getException(0), exception);
+    }
+
+    @Test(expectedExceptions = IndexOutOfBoundsException.class)
+    public void getResult_outOfBounds() {
+        history.record(1L, 1, false);
+        history.getResult(1);
+    }
+
+    @Test
+    public void clear() {
+        history.record(1L, 1, false);
+        history.clear();
+
+        Assert.assertEquals(history.size(), 0);
+        Assert.assertEquals(history.recordedCount(), 1L);
+    }
+
+    @Test
+    public void scheduleWithFixedDelay_records() {
+        TimeController timeController = TimeControllers.getInstance();
+        SequentialScheduledExecutorService service
+                = new SequentialScheduledExecutorService(timeController);
+        AtomicInteger count = new AtomicInteger(0);
+        service.scheduleWithFixedDelay(count::incrementAndGet,
+                10L, 10L, TimeUnit.MILLISECONDS, TaskCosts.none(), history);
+
+        timeController.letTimePass(45L, TimeUnit.MILLISECONDS);
+
+        Assert.assertEquals(history.recordedCount(), 4L);
+        Assert.assertEquals(history.getResult(0), Integer.valueOf(2));
+        Assert.assertEquals(history.getTime(0, TimeUnit.MILLISECONDS), 20L);
+        Assert.assertEquals(history.getTime(2, TimeUnit.MILLISECONDS), 40L);
+    }
+
+    @Test
+    public void scheduleWithFixedDelay_noInitialDelay() {
+        TimeController timeController = TimeControllers.getInstance();
+        SequentialScheduledExecutorService service
+                = new SequentialScheduledExecutorService(timeController);
+        service.scheduleWithFixedDelay(() -> 7,
+                0L, 10L, TimeUnit.NANOSECONDS, TaskCosts.none(), history);
+
+        timeController.letTimePass(10L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(history.size(), 2);
+        Assert.assertEquals(history.getTime(0, TimeUnit.NANOSECONDS), 0L);
+        Assert.assertEquals(history.getTime(1, TimeUnit.NANOSECONDS), 10L);
+    }
+
+    @Test
+    public void scheduleWithFixedDelay_failure() {
+        TimeController timeController = TimeControllers.getInstance();
+        SequentialScheduledExecutorService service
+                = new SequentialScheduledExecutorService(timeController);
+        AtomicInteger count = new AtomicInteger(0);
+        ScheduledFuture<Integer> future = service.scheduleWithFixedDelay(() -> {
+            if (count.incrementAndGet() == 2) {
+                throw new IllegalStateException();
+            }
+            return count.get();
+        }, 10L, 10L, TimeUnit.NANOSECONDS, TaskCosts.none(), history);
+
+        timeController.letTimePass(100L, TimeUnit.NANOSECONDS);
+
+        Assert.assertTrue(future.isDone());
+        Assert.assertEquals(history.size(), 2);
+        Assert.assertFalse(history.isFailure(0));
+        Assert.assertTrue(history.isFailure(1));
+        Assert.assertTrue(history.getException(1) instanceof IllegalStateException);
+    }
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
@@ -0,0 +1,214 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests the SequentialActor class.
+ */
+public class SequentialActorTest {
+
+    /**
+     * The SequentialExecutorService this' tests can use.
+     */
+    private SequentialExecutorService service;
+
+    /**
+     * The SequentialActor this' tests can use.
+     */
+    private SequentialActor actor;
+
+    /**
+     * Empty constructor.
+     */
+    public SequentialActorTest() {
+        super();
+    }
+
+    /**
+     * Initializes the instance variables.
+     */
+    @BeforeMethod
+    public void initializeInstanceVariables() {
+        service = new SequentialExecutorService();
+        actor = new SequentialActor(service);
+    }
+
+    @Test(expectedExceptions = NullPointerException.class)
+    public void constructor_null() {
+        new SequentialActor(null);
+    }
+
+    @Test
+    public void drain_submissionOrder() throws Exception {
+        List<Integer> order = new ArrayList<>();
+        Future<Boolean> first = actor.submit(() -> order.add(1));
+        actor.execute(() -> order.add(2));
+
+        Assert.assertFalse(first.isDone());
+        Assert.assertEquals(actor.drain(), 2);
+        Assert.assertEquals(order, Arrays.asList(1, 2));
+        Assert.assertEquals(first.get(), Boolean.TRUE);
+        Assert.assertEquals(actor.drain(), 0);
+    }
+
+    @Test(timeOut = 10000L)
+    public void submit_concurrently() throws Exception {
+        // timeOut runs this on another Thread, which must own the actor
+        SequentialActor actor = new SequentialActor(service);
+        int threads = 4;
+        int tasksPerThread = 1000;
+        List<String> order = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> submitters = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String name = "t" + t;
+            Thread submitter = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < tasksPerThread; i++) {
+                    String task = name + ':' + i;
+                    actor.submit(() -> order.add(task));
+                }
+            });
+            submitter.setDaemon(true);
+            submitter.start();
+            submitters.add(submitter);
+        }
+        start.countDown();
+        int passed = 0;
+        while (passed < threads * tasksPerThread) {
+            passed += actor.drain();
+            Thread.yield();
+        }
+        for (Thread submitter : submitters) {
+            submitter.join();
+        }
+
+        Assert.assertEquals(order.size(), threads * tasksPerThread);
+        Assert.assertEquals(actor.getSubmittedTaskCount(), threads * tasksPerThread);
+        Assert.assertEquals(actor.getPassedTaskCount(), threads * tasksPerThread);
+        for (int t = 0; t < threads; t++) {
+            String prefix = "t" + t + ':';
+            List<String> ofThread = new ArrayList<>();
+            for (String task : order) {
+                if (task.startsWith(prefix)) {
+                    ofThread.add(task);
+                }
+            }
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < tasksPerThread; i++) {
+                expected.add(prefix + i);
+            }
+            Assert.assertEquals(ofThread, expected);
+        }
+    }
+
+    @Test(timeOut = 5000L)
+    public void get_fromSubmitter() throws Exception {
+        // timeOut runs this on another Thread, which must own the actor
+        SequentialActor actor = new SequentialActor(service);
+        AtomicReference<Object> outcome = new AtomicReference<>();
+        CountDownLatch submitted = new CountDownLatch(1);
+        Thread submitter = new Thread(() -> {
+            Future<String> future = actor.submit(() -> "result");
+            submitted.countDown();
+            try {
+                outcome.set(future.get(5L, TimeUnit.SECONDS));
+            } catch (InterruptedException | ExecutionException
+                    | TimeoutException e) {
+                outcome.set(e);
+            }
+        });
+        submitter.setDaemon(true);
+        submitter.start();
+        submitted.await();
+
+        actor.drain();
+        submitter.join();
+
+        Assert.assertEquals(outcome.get(), "result");
+    }
+
+    @Test(timeOut = 5000L, expectedExceptions = IllegalStateException.class)
+    public void drain_notOwner() throws Throwable {
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        Thread other = new Thread(() -> {
+            try {
+                actor.drain();
+            } catch (Throwable throwable) {
+                thrown.set(throwable);
+            }
+        });
+        other.start();
+        other.join();
+        throw thrown.get();
+    }
+
+    @Test
+    public void drain_queuingState() {
+        service.setExecutorServiceState(ExecutorServiceState.TRAMPOLINE);
+        Future<?> future = actor.submit(() -> null);
+
+        actor.drain();
+
+        Assert.assertTrue(future.isDone());
+    }
+
+    @Test
+    public void drain_shutdown() throws Exception {
+        Future<?> future = actor.submit(() -> null);
+        service.shutdown();
+        actor.drain();
+
+        try {
+            future.get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        Assert.assertEquals(Collections.emptyList(), service.shutdownNow());
+    }
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
@@ -0,0 +1,289 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the SequentialCompletableFutures class.
+ */
+public class SequentialCompletableFuturesTest {
+
+    /**
+     * The TimeController this' tests can use.
+     */
+    private TimeController timeController;
+
+    /**
+     * The SequentialScheduledExecutorService this' tests can use.
+     */
+    private SequentialScheduledExecutorService service;
+
+    /**
+     * Empty constructor.
+     */
+    public SequentialCompletableFuturesTest() {
+        super();
+    }
+
+    /**
+     * Initializes the instance variables.
+     */
+    @BeforeMethod
+    public void initializeInstanceVariables() {
+        timeController = TimeControllers.getInstance();
+        service = new SequentialScheduledExecutorService(timeController);
+    }
+
+    @Test
+    public void of_scheduled_dependentsRunOnCompletion() {
+        List<String> events = new ArrayList<>();
+        CompletableFuture<Integer> future = SequentialCompletableFutures.of(
+                service.schedule(() -> 20, 10L, TimeUnit.NANOSECONDS));
+        future.thenApply(i -> i + 1).thenAccept(i -> events.add("first " + i));
+        future.thenRun(() -> events.add("second"));
+
+        timeController.letTimePass(9L, TimeUnit.NANOSECONDS);
+
+        Assert.assertFalse(future.isDone());
+        Assert.assertTrue(events.isEmpty());
+
+        timeController.letTimePass(1L, TimeUnit.NANOSECONDS);
+
+        Assert.assertTrue(future.isDone());
+        Assert.assertEquals(new HashSet<>(events),
+                new HashSet<>(Arrays.asList("first 21", "second")));
+    }
+
+    @Test
+    public void of_exception() {
+        IOException exception = new IOException();
+        CompletableFuture<Object> future = SequentialCompletableFutures.of(
+                service.schedule(() -> {
+                    throw exception;
+                }, 10L, TimeUnit.NANOSECONDS));
+        CompletableFuture<Throwable> failure
+                = future.handle((result, throwable) -> throwable);
+
+        timeController.letTimePass(10L, TimeUnit.NANOSECONDS);
+
+        Assert.assertTrue(future.isCompletedExceptionally());
+        Assert.assertSame(failure.join(), exception);
+    }
+
+    @Test
+    public void of_sourceCancelled() {
+        ScheduledFuture<Integer> scheduled
+                = service.schedule(() -> 20, 10L, TimeUnit.NANOSECONDS);
+        CompletableFuture<Integer> future
+                = SequentialCompletableFutures.of(scheduled);
+
+        scheduled.cancel(false);
+
+        Assert.assertTrue(future.isCancelled());
+    }
+
+    @Test(expectedExceptions = CancellationException.class)
+    public void cancel_cancelsSource() {
+        ScheduledFuture<Integer> scheduled
+                = service.schedule(() -> 20, 10L, TimeUnit.NANOSECONDS);
+
+        Assert.assertTrue(SequentialCompletableFutures.of(scheduled)
+                .cancel(false));
+        Assert.assertTrue(scheduled.isCancelled());
+
+        timeController.letTimePass(10L, TimeUnit.NANOSECONDS);
+        SequentialCompletableFutures.of(scheduled).join();
+    }
+
+    @Test
+    public void join_letsTimePass() {
+        CompletableFuture<Integer> future = SequentialCompletableFutures.of(
+                service.schedule(() -> 20, 10L, TimeUnit.NANOSECONDS));
+
+        Assert.assertEquals(future.join(), Integer.valueOf(20));
+    }
+
+    @Test
+    public void of_completingThreadInterrupted() {
+        CompletableFuture<Integer> future = SequentialCompletableFutures.of(
+                service.schedule(() -> 20, 10L, TimeUnit.NANOSECONDS));
+
+        boolean stillInterrupted;
+        Thread.currentThread().interrupt();
+        try {
+            timeController.letTimePass(10L, TimeUnit.NANOSECONDS);
+        } finally {
+            stillInterrupted = Thread.interrupted();
+        }
+
+        Assert.assertTrue(stillInterrupted);
+        Assert.assertEquals(future.getNow(null), Integer.valueOf(20));
+    }
+
+    @Test
+    public void join_interruptedAfterCompletion() {
+        CompletableFuture<Integer> future = SequentialCompletableFutures.of(
+                service.schedule(() -> 20, 10L, TimeUnit.NANOSECONDS));
+        timeController.letTimePass(10L, TimeUnit.NANOSECONDS);
+
+        Integer result;
+        Thread.currentThread().interrupt();
+        try {
+            result = future.join();
+        } finally {
+            Thread.interrupted();
+        }
+
+        Assert.assertEquals(result, Integer.valueOf(20));
+    }
+
+    @Test
+    public void get_runsOnCallTask() throws Exception {
+        SequentialExecutorService executorService
+                = new SequentialExecutorService();
+        executorService.setExecutorServiceState(ExecutorServiceState.ONCALL);
+        CompletableFuture<String> future = SequentialCompletableFutures.of(
+                executorService.submit(() -> "result"));
+
+        Assert.assertFalse(future.isDone());
+        Assert.assertEquals(future.get(), "result");
+    }
+
+    @Test
+    public void dependent_doesNotRunOnCallTask() {
+        SequentialExecutorService executorService
+                = new SequentialExecutorService();
+        executorService.setExecutorServiceState(ExecutorServiceState.ONCALL);
+        CompletableFuture<String> future = SequentialCompletableFutures.of(
+                executorService.submit(() -> "result"));
+        CompletableFuture<Integer> dependent = future.thenApply(String::length);
+
+        Assert.assertNull(dependent.getNow(null));
+        Assert.assertFalse(future.isDone());
+
+        future.join();
+
+        Assert.assertEquals(dependent.getNow(null), Integer.valueOf(6));
+    }
+
+    @Test
+    public void dependent_doesNotLetTimePass() {
+        CompletableFuture<Integer> future = SequentialCompletableFutures.of(
+                service.schedule(() -> 20, 10L, TimeUnit.NANOSECONDS));
+        CompletableFuture<Integer> dependent = future.thenApply(i -> i + 1);
+
+        Assert.assertNull(dependent.getNow(null));
+        Assert.assertEquals(timeController.getElapsedTime(
+                TimeUnit.NANOSECONDS), 0L);
+
+        future.join();
+
+        Assert.assertEquals(dependent.getNow(null), Integer.valueOf(21));
+    }
+
+    @Test
+    public void of_immediately() {
+        SequentialExecutorService executorService
+                = new SequentialExecutorService();
+        CompletableFuture<String> future = SequentialCompletableFutures.of(
+                executorService.submit(() -> "result"));
+
+        Assert.assertEquals(future.getNow(null), "result");
+    }
+
+    @Test
+    public void of_batch() throws Exception {
+        SequentialExecutorService executorService
+                = new SequentialExecutorService();
+        executorService.setExecutorServiceState(ExecutorServiceState.ONCALL);
+        List<Future<Integer>> futures = executorService.submitAll(
+                Arrays.asList(() -> 1, () -> 2));
+        CompletableFuture<Integer> first
+                = SequentialCompletableFutures.of(futures.get(0));
+        CompletableFuture<Integer> sum = first.thenCombine(
+                SequentialCompletableFutures.of(futures.get(1)), Integer::sum);
+
+        Assert.assertFalse(sum.isDone());
+
+        futures.get(1).get();
+        first.get();
+
+        Assert.assertEquals(sum.getNow(null), Integer.valueOf(3));
+    }
+
+    @Test
+    public void of_periodic_completesOnException() {
+        int[] runs = new int[1];
+        ScheduledFuture<?> periodic = service.scheduleAtFixedRate(() -> {
+            if (++runs[0] == 3) {
+                throw new IllegalStateException();
+            }
+        }, 10L, 10L, TimeUnit.NANOSECONDS);
+        CompletableFuture<?> future = SequentialCompletableFutures.of(periodic);
+
+        timeController.letTimePass(20L, TimeUnit.NANOSECONDS);
+
+        Assert.assertFalse(future.isDone());
+
+        timeController.letTimePass(10L, TimeUnit.NANOSECONDS);
+
+        Assert.assertTrue(future.isCompletedExceptionally());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void of_foreignFuture() {
+        SequentialCompletableFutures.of(new FutureTask<>(() -> null));
+    }
+
+    @Test(expectedExceptions = NullPointerException.class)
+    public void of_null() {
+        SequentialCompletableFutures.of(null);
+    }
+
+    @Test(expectedExceptions = ExecutionException.class)
+    public void get_exception() throws Exception {
+        SequentialCompletableFutures.of(service.schedule(() -> {
+            throw new IOException();
+        }, 10L, TimeUnit.NANOSECONDS)).get();
+    }
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
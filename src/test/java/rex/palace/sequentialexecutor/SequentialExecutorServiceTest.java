@@ -28,13 +28,18 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 import rex.palace.testhelp.TestThread;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
@@ -81,6 +86,104 @@ public class SequentialExecutorServiceTest {
         }
     }
 
+    @Test
+    public void submitAll_onCall() throws ExecutionException, InterruptedException {
+        executorService.setExecutorServiceState(ExecutorServiceState.ONCALL);
+        AtomicInteger count = new AtomicInteger(0);
+        Callable<Integer> callable = count::getAndIncrement;
+        List<Callable<Integer>> list =
+                Stream.generate(() -> callable).limit(10L).collect(Collectors.toList());
+        List<Future<Integer>> futures = executorService.submitAll(list);
+
+        Assert.assertEquals(futures.size(), 10);
+        Assert.assertEquals(count.get(), 0);
+        Assert.assertFalse(futures.get(3).isDone());
+        Assert.assertEquals(futures.get(3).get(), Integer.valueOf(0));
+        Assert.assertTrue(futures.get(3).isDone());
+        Assert.assertEquals(executorService.shutdownNow().size(), 9);
+    }
+
+    @Test
+    public void submitAll_cancel() {
+        executorService.setExecutorServiceState(ExecutorServiceState.ONCALL);
+        List<Future<Void>> futures = executorService.submitAll(
+                Stream.<Callable<Void>>generate(() -> () -> null).limit(3L)
+                        .collect(Collectors.toList()));
+
+        Assert.assertTrue(futures.get(1).cancel(true));
+        Assert.assertTrue(futures.get(1).isCancelled());
+        Assert.assertTrue(futures.get(1).isDone());
+        Assert.assertFalse(futures.get(1).cancel(true));
+        Assert.assertFalse(futures.get(0).isDone());
+    }
+
+    @Test
+    public void submitAll_manyListeners() throws Exception {
+        executorService.setExecutorServiceState(ExecutorServiceState.ONCALL);
+        ListenableFuture<Void> future = (ListenableFuture<Void>)
+                executorService.submitAll(Collections.<Callable<Void>>singletonList(
+                        () -> null)).get(0);
+        int[] calls = new int[1];
+        for (int i = 0; i < 100000; i++) {
+            future.addListener(() -> calls[0]++, Runnable::run);
+        }
+        future.get();
+
+        Assert.assertEquals(calls[0], 100000);
+    }
+
+    @Test
+    public void submitAll_throwingListenerIsolated() {
+        executorService.setExecutorServiceState(ExecutorServiceState.ONCALL);
+        ListenableFuture<Void> future = (ListenableFuture<Void>)
+                executorService.submitAll(Collections.<Callable<Void>>singletonList(
+                        () -> null)).get(0);
+        StringBuilder order = new StringBuilder();
+        List<Throwable> uncaught = new ArrayList<>();
+        future.addListener(() -> {
+            throw new IllegalStateException();
+        }, Runnable::run);
+        future.addListener(() -> order.append(2), Runnable::run);
+        Thread thread = Thread.currentThread();
+        Thread.UncaughtExceptionHandler handler
+                = thread.getUncaughtExceptionHandler();
+        thread.setUncaughtExceptionHandler((t, e) -> uncaught.add(e));
+        try {
+            Assert.assertTrue(future.cancel(false));
+            future.addListener(() -> {
+                throw new IllegalStateException();
+            }, Runnable::run);
+        } finally {
+            thread.setUncaughtExceptionHandler(handler);
+        }
+
+        Assert.assertEquals(order.toString(), "2");
+        Assert.assertEquals(uncaught.size(), 2);
+    }
+
+    @Test(expectedExceptions = ClassNotFoundException.class)
+    public void submitAll_awaitTermination_thrown() throws Throwable {
+        executorService.setExecutorServiceState(ExecutorServiceState.AWAIT_TERMINATION);
+        List<Callable<Integer>> list = new ArrayList<>();
+        list.add(() -> 5);
+        list.add(() -> { throw new ClassNotFoundException(); });
+        List<Future<Integer>> futures = executorService.submitAll(list);
+        executorService.shutdown();
+
+        Assert.assertTrue(executorService.awaitTermination(1L, null));
+        Assert.assertEquals(futures.get(0).get(), Integer.valueOf(5));
+        try {
+            futures.get(1).get();
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Test(expectedExceptions = NullPointerException.class)
+    public void submitAll_nullCallable() {
+        executorService.submitAll(Collections.<Callable<Void>>singletonList(null));
+    }
+
     @Test(expectedExceptions = RejectedExecutionException.class)
     public void invokeAll_Shutdown() throws ExecutionException, InterruptedException {
         Assert.assertFalse(executorService.isShutdown());
@@ -103,7 +206,8 @@ public class SequentialExecutorServiceTest {
     }
 
     @Test
-    public void invokeAny_Callable() throws ExecutionException, InterruptedException {
+    public void invokeAny_Callable()
+            throws ExecutionException, InterruptedException, TimeoutException {
         AtomicInteger count = new AtomicInteger(0);
         Callable<Integer> callable = count::getAndIncrement;
         List<Callable<Integer>> list =
@@ -114,7 +218,8 @@ public class SequentialExecutorServiceTest {
     }
 
     @Test
-    public void invokeAny_Callable_Exception() throws ExecutionException, InterruptedException {
+    public void invokeAny_Callable_Exception()
+            throws ExecutionException, InterruptedException, TimeoutException {
         AtomicInteger count = new AtomicInteger(0);
         Callable<Integer> callable = count::getAndIncrement;
         List<Callable<Integer>> list =
@@ -205,6 +310,268 @@ public class SequentialExecutorServiceTest {
         Assert.assertTrue(gotCalled.get());
     }
 
+    @Test
+    public void execute_trampoline() {
+        executorService.setExecutorServiceState(ExecutorServiceState.TRAMPOLINE);
+        List<Integer> order = new ArrayList<>();
+        executorService.execute(() -> {
+            executorService.execute(() -> order.add(3));
+            order.add(1);
+        });
+        executorService.execute(() -> order.add(2));
+
+        Assert.assertTrue(order.isEmpty());
+        Assert.assertEquals(executorService.drain(), 3);
+        Assert.assertEquals(order, Arrays.asList(1, 2, 3));
+        Assert.assertEquals(executorService.drain(), 0);
+    }
+
+    @Test(timeOut = 10000L)
+    public void drain_longCompletableFutureChain() {
+        executorService.setExecutorServiceState(ExecutorServiceState.TRAMPOLINE);
+        CompletableFuture<Integer> start = new CompletableFuture<>();
+        CompletableFuture<Integer> chain = start;
+        for (int i = 0; i < 100000; i++) {
+            chain = chain.thenApplyAsync(value -> value + 1, executorService);
+        }
+        start.complete(0);
+
+        Assert.assertFalse(chain.isDone());
+
+        executorService.drain();
+
+        Assert.assertEquals(chain.getNow(null), Integer.valueOf(100000));
+    }
+
+    @Test
+    public void submit_trampoline_get() throws Exception {
+        executorService.setExecutorServiceState(ExecutorServiceState.TRAMPOLINE);
+        Future<String> future = executorService.submit(() -> "result");
+
+        Assert.assertFalse(future.isDone());
+        Assert.assertEquals(future.get(), "result");
+        Assert.assertEquals(executorService.drain(), 0);
+    }
+
+    @Test
+    public void submitAll_trampoline() {
+        executorService.setExecutorServiceState(ExecutorServiceState.TRAMPOLINE);
+        List<Future<Integer>> futures = executorService.submitAll(
+                Arrays.asList(() -> 1, () -> 2));
+        futures.get(0).cancel(false);
+
+        Assert.assertEquals(executorService.drain(), 1);
+        Assert.assertTrue(futures.get(1).isDone());
+    }
+
+    @Test
+    public void awaitTermination_trampoline() throws Exception {
+        executorService.setExecutorServiceState(ExecutorServiceState.TRAMPOLINE);
+        Future<String> future = executorService.submit(() -> "result");
+        executorService.shutdown();
+
+        Assert.assertFalse(executorService.isTerminated());
+        Assert.assertTrue(executorService.awaitTermination(1L, TimeUnit.DAYS));
+        Assert.assertTrue(future.isDone());
+    }
+
+    @Test
+    public void submitWithPriority_drainOrder() {
+        executorService.setExecutorServiceState(ExecutorServiceState.PRIORITY);
+        List<String> order = new ArrayList<>();
+        executorService.submitWithPriority(() -> order.add("low"), -1);
+        executorService.submitWithPriority(() -> order.add("first"), 5);
+        executorService.submitWithPriority(() -> order.add("second"), 5);
+        executorService.submit(() -> order.add("default"));
+
+        Assert.assertTrue(order.isEmpty());
+        Assert.assertEquals(executorService.drain(), 4);
+        Assert.assertEquals(order, Arrays.asList("first", "second", "default", "low"));
+    }
+
+    @Test
+    public void submitWithPriority_get() throws Exception {
+        executorService.setExecutorServiceState(ExecutorServiceState.PRIORITY);
+        Future<String> future = executorService.submitWithPriority(() -> "result", 3);
+
+        Assert.assertFalse(future.isDone());
+        Assert.assertEquals(future.get(), "result");
+        Assert.assertEquals(executorService.drain(), 0);
+    }
+
+    @Test
+    public void submitWithPriority_cancelled() {
+        executorService.setExecutorServiceState(ExecutorServiceState.PRIORITY);
+        Future<?> cancelled = executorService.submitWithPriority(() -> null, 1);
+        Future<?> future = executorService.submitWithPriority(() -> null, 0);
+        cancelled.cancel(false);
+
+        Assert.assertEquals(executorService.drain(), 1);
+        Assert.assertTrue(future.isDone());
+    }
+
+    @Test
+    public void execute_priority() {
+        executorService.setExecutorServiceState(ExecutorServiceState.PRIORITY);
+        List<Integer> order = new ArrayList<>();
+        executorService.execute(() -> {
+            executorService.submitWithPriority(() -> order.add(2), 1);
+            order.add(1);
+        });
+        executorService.execute(() -> order.add(3));
+
+        Assert.assertEquals(executorService.drain(), 3);
+        Assert.assertEquals(order, Arrays.asList(1, 2, 3));
+    }
+
+    @Test(expectedExceptions = RejectedExecutionException.class)
+    public void capacity_abort() {
+        executorService.setExecutorServiceState(ExecutorServiceState.ONCALL);
+        executorService.setCapacity(2, RejectionPolicy.ABORT);
+        executorService.submit(() -> null);
+        executorService.submit(() -> null);
+
+        Assert.assertEquals(executorService.getPendingTaskCount(), 2);
+
+        try {
+            executorService.submit(() -> null);
+        } finally {
+            Assert.assertEquals(executorService.getRejectedTaskCount(), 1L);
+        }
+    }
+
+    @Test
+    public void capacity_runFreesCapacity() throws Exception {
+        executorService.setExecutorServiceState(ExecutorServiceState.ONCALL);
+        executorService.setCapacity(1, RejectionPolicy.ABORT);
+        executorService.submit(() -> null).get();
+        executorService.submit(() -> null).cancel(false);
+        executorService.submit(() -> null);
+
+        Assert.assertEquals(executorService.getPendingTaskCount(), 1);
+        Assert.assertEquals(executorService.getRejectedTaskCount(), 0L);
+    }
+
+    @Test
+    public void capacity_callerRuns() {
+        executorService.setExecutorServiceState(ExecutorServiceState.ONCALL);
+        executorService.setCapacity(1, RejectionPolicy.CALLER_RUNS);
+        Future<?> waiting = executorService.submit(() -> null);
+        Future<?> rejected = executorService.submit(() -> null);
+
+        Assert.assertFalse(waiting.isDone());
+        Assert.assertTrue(rejected.isDone());
+        Assert.assertEquals(executorService.getRejectedTaskCount(), 1L);
+    }
+
+    @Test
+    public void capacity_discard() {
+        executorService.setExecutorServiceState(ExecutorServiceState.ONCALL);
+        executorService.setCapacity(1, RejectionPolicy.DISCARD);
+        Future<?> waiting = executorService.submit(() -> null);
+        Future<?> rejected = executorService.submit(() -> null);
+
+        Assert.assertFalse(waiting.isDone());
+        Assert.assertTrue(rejected.isCancelled());
+        Assert.assertEquals(executorService.getPendingTaskCount(), 1);
+    }
+
+    @Test
+    public void capacity_discardOldest() {
+        executorService.setExecutorServiceState(ExecutorServiceState.ONCALL);
+        executorService.setCapacity(2, RejectionPolicy.DISCARD_OLDEST);
+        Future<?> oldest = executorService.submit(() -> null);
+        Future<?> older = executorService.submit(() -> null);
+        Future<?> newest = executorService.submit(() -> null);
+
+        Assert.assertTrue(oldest.isCancelled());
+        Assert.assertFalse(older.isDone());
+        Assert.assertFalse(newest.isDone());
+        Assert.assertEquals(executorService.getPendingTaskCount(), 2);
+        Assert.assertEquals(executorService.getRejectedTaskCount(), 1L);
+    }
+
+    @Test
+    public void capacity_blockUntilDrained() {
+        executorService.setExecutorServiceState(
+                ExecutorServiceState.AWAIT_TERMINATION);
+        executorService.setCapacity(2, RejectionPolicy.BLOCK_UNTIL_DRAINED);
+        List<Integer> ran = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            int index = i;
+            executorService.submit(() -> ran.add(index));
+        }
+
+        Assert.assertEquals(ran, Arrays.asList(0, 1, 2));
+        Assert.assertEquals(executorService.getPendingTaskCount(), 2);
+        Assert.assertEquals(executorService.getRejectedTaskCount(), 0L);
+    }
+
+    @Test
+    public void getPendingTaskCount_submitAll() throws Exception {
+        executorService.setExecutorServiceState(ExecutorServiceState.ONCALL);
+        List<Future<Object>> futures = executorService.submitAll(
+                Arrays.asList(() -> null, () -> null, () -> null));
+
+        Assert.assertEquals(executorService.getPendingTaskCount(), 3);
+
+        futures.get(1).get();
+
+        Assert.assertEquals(executorService.getPendingTaskCount(), 2);
+    }
+
+    @Test
+    public void capacity_countsEarlierSubmitAll() throws Exception {
+        executorService.setExecutorServiceState(ExecutorServiceState.ONCALL);
+        List<Future<Object>> futures = executorService.submitAll(
+                Arrays.asList(() -> null, () -> null));
+        executorService.setCapacity(2, RejectionPolicy.DISCARD_OLDEST);
+        Future<?> newest = executorService.submit(() -> null);
+
+        Assert.assertTrue(futures.get(0).isCancelled());
+        Assert.assertFalse(futures.get(1).isDone());
+        Assert.assertFalse(newest.isDone());
+        Assert.assertEquals(executorService.getPendingTaskCount(), 2);
+
+        futures.get(1).get();
+
+        Assert.assertEquals(executorService.getPendingTaskCount(), 1);
+    }
+
+    @Test
+    public void capacity_unlimited_tracksSubmitAll() {
+        executorService.setExecutorServiceState(ExecutorServiceState.ONCALL);
+        executorService.setCapacity(Integer.MAX_VALUE, RejectionPolicy.ABORT);
+        executorService.submitAll(Arrays.asList(() -> null, () -> null));
+
+        Assert.assertEquals(executorService.getPendingTaskCount(), 2);
+    }
+
+    @Test
+    public void capacity_submitAll() {
+        executorService.setExecutorServiceState(ExecutorServiceState.ONCALL);
+        executorService.setCapacity(2, RejectionPolicy.DISCARD);
+        List<Future<Object>> futures = executorService.submitAll(
+                Arrays.asList(() -> null, () -> null, () -> null));
+
+        Assert.assertTrue(futures.get(2).isCancelled());
+        Assert.assertEquals(executorService.getRejectedTaskCount(), 1L);
+    }
+
+    @Test
+    public void capacity_immediatelyUnlimited() {
+        executorService.setCapacity(1, RejectionPolicy.ABORT);
+        executorService.submit(() -> null);
+        executorService.submit(() -> null);
+
+        Assert.assertEquals(executorService.getPendingTaskCount(), 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void setCapacity_notPositive() {
+        executorService.setCapacity(0, RejectionPolicy.ABORT);
+    }
+
     @Test
     public void shutdownNow() {
         Callable<Void> callable = () -> null;
@@ -344,6 +711,141 @@ public class SequentialExecutorServiceTest {
         Assert.assertTrue(matcher.matches());
     }
 
+    @Test
+    public void submitTagged_groupCounts() {
+        executorService.setExecutorServiceState(ExecutorServiceState.ONCALL);
+        executorService.submitTagged("a", () -> 1);
+        executorService.submitTagged("a", () -> 2);
+        executorService.submitTagged("b", () -> 3);
+        executorService.submit(() -> 4);
+
+        TaskGroup group = executorService.getGroup("a");
+
+        Assert.assertEquals(group.size(), 2);
+        Assert.assertEquals(group.getPendingCount(), 2);
+        Assert.assertEquals(group.getFinishedCount(), 0);
+        Assert.assertEquals(executorService.getGroup("b").size(), 1);
+        Assert.assertEquals(executorService.getGroup("c").size(), 0);
+    }
+
+    @Test
+    public void cancelGroup() {
+        executorService.setExecutorServiceState(ExecutorServiceState.ONCALL);
+        Future<Integer> tagged = executorService.submitTagged("a", () -> 1);
+        Future<Integer> other = executorService.submitTagged("b", () -> 2);
+
+        Assert.assertEquals(executorService.cancelGroup("a", false), 1);
+        Assert.assertTrue(tagged.isCancelled());
+        Assert.assertFalse(other.isDone());
+        Assert.assertEquals(executorService.getGroup("a").getFinishedCount(), 1);
+        Assert.assertEquals(executorService.cancelGroup("a", false), 0);
+    }
+
+    @Test
+    public void awaitGroup() {
+        executorService.setExecutorServiceState(ExecutorServiceState.TRAMPOLINE);
+        Future<Integer> tagged = executorService.submitTagged("a", () -> 1);
+        Future<Integer> other = executorService.submitTagged("b", () -> 2);
+
+        Assert.assertTrue(executorService.awaitGroup("a"));
+        Assert.assertTrue(tagged.isDone());
+        Assert.assertFalse(other.isDone());
+        Assert.assertEquals(executorService.getGroup("a").getPendingCount(), 0);
+    }
+
+    @Test
+    public void awaitGroup_failedOrCancelled() {
+        executorService.setExecutorServiceState(ExecutorServiceState.ONCALL);
+        executorService.submitTagged("a", () -> {
+            throw new IllegalStateException();
+        });
+        executorService.submitTagged("b", () -> 1).cancel(false);
+
+        Assert.assertFalse(executorService.awaitGroup("a"));
+        Assert.assertFalse(executorService.awaitGroup("b"));
+        Assert.assertTrue(executorService.awaitGroup("c"));
+    }
+
+    @Test(expectedExceptions = NullPointerException.class)
+    public void submitTagged_nullTag() {
+        executorService.submitTagged(null, () -> 1);
+    }
+
+    @Test
+    public void submitCoalesced_coalesced() throws Exception {
+        executorService.setExecutorServiceState(ExecutorServiceState.ONCALL);
+        AtomicInteger loads = new AtomicInteger();
+        Callable<Integer> load = loads::incrementAndGet;
+
+        Future<Integer> first = executorService.submitCoalesced("key", load);
+        Future<Integer> second = executorService.submitCoalesced("key", load);
+        Future<Integer> other = executorService.submitCoalesced("other", load);
+
+        Assert.assertSame(second, first);
+        Assert.assertNotSame(other, first);
+        Assert.assertEquals(executorService.getCoalescedTaskCount(), 1L);
+        Assert.assertEquals(first.get(), Integer.valueOf(1));
+        Assert.assertEquals(loads.get(), 1);
+    }
+
+    @Test
+    public void submitCoalesced_afterCompletion() throws Exception {
+        executorService.setExecutorServiceState(ExecutorServiceState.ONCALL);
+        AtomicInteger loads = new AtomicInteger();
+        Callable<Integer> load = loads::incrementAndGet;
+
+        Future<Integer> first = executorService.submitCoalesced("key", load);
+        first.get();
+        Future<Integer> second = executorService.submitCoalesced("key", load);
+
+        Assert.assertNotSame(second, first);
+        Assert.assertEquals(second.get(), Integer.valueOf(2));
+        Assert.assertEquals(executorService.getCoalescedTaskCount(), 0L);
+    }
+
+    @Test
+    public void submitCoalesced_afterCancel() {
+        executorService.setExecutorServiceState(ExecutorServiceState.ONCALL);
+        Future<Integer> first = executorService.submitCoalesced("key", () -> 1);
+        first.cancel(false);
+
+        Assert.assertNotSame(executorService.submitCoalesced("key", () -> 1), first);
+    }
+
+    @Test
+    public void submitCoalesced_immediately() {
+        Future<Integer> first = executorService.submitCoalesced("key", () -> 1);
+
+        Assert.assertTrue(first.isDone());
+        Assert.assertNotSame(executorService.submitCoalesced("key", () -> 1), first);
+        Assert.assertEquals(executorService.getCoalescedTaskCount(), 0L);
+    }
+
+    @Test(expectedExceptions = NullPointerException.class)
+    public void submitCoalesced_nullKey() {
+        executorService.submitCoalesced(null, () -> 1);
+    }
+
+    @Test
+    public void reset_clearsKeyedTasks() {
+        executorService.setExecutorServiceState(ExecutorServiceState.ONCALL);
+        Future<Integer> first = executorService.submitCoalesced("key", () -> 1);
+        executorService.submitCoalesced("key", () -> 1);
+        executorService.reset();
+
+        Assert.assertEquals(executorService.getCoalescedTaskCount(), 0L);
+        executorService.setExecutorServiceState(ExecutorServiceState.ONCALL);
+        Assert.assertNotSame(executorService.submitCoalesced("key", () -> 1), first);
+    }
+
+    @Test
+    public void reset_clearsGroups() {
+        executorService.submitTagged("a", () -> 1);
+        executorService.reset();
+
+        Assert.assertEquals(executorService.getGroup("a").size(), 0);
+    }
+
 }
 
 /* vim:set shiftwidth=4 softtabstop=4 expandtab: */
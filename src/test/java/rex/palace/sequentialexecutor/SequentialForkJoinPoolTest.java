@@ -0,0 +1,159 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.LongStream;
+
+/**
+ * Tests the SequentialForkJoinPool class.
+ */
+public class SequentialForkJoinPoolTest {
+
+    /**
+     * A RecursiveTask recording the order its subtasks are computed in.
+     */
+    private static final class Fibonacci extends RecursiveTask<Integer> {
+
+        /**
+         * The serial version uid.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The index of the fibonacci number to compute.
+         */
+        private final int n;
+
+        /**
+         * The indices in the order they are computed.
+         */
+        private final List<Integer> order;
+
+        /**
+         * The Threads computing.
+         */
+        private final Set<Thread> threads;
+
+        /**
+         * Creates a new Fibonacci task.
+         *
+         * @param n the index of the fibonacci number
+         * @param order records the order of computation
+         * @param threads records the computing Threads
+         */
+        Fibonacci(int n, List<Integer> order, Set<Thread> threads) {
+            this.n = n;
+            this.order = order;
+            this.threads = threads;
+        }
+
+        @Override
+        protected Integer compute() {
+            order.add(n);
+            threads.add(Thread.currentThread());
+            if (n < 2) {
+                return n;
+            }
+            Fibonacci first = new Fibonacci(n - 1, order, threads);
+            first.fork();
+            Fibonacci second = new Fibonacci(n - 2, order, threads);
+            return second.compute() + first.join();
+        }
+
+    }
+
+    /**
+     * The SequentialForkJoinPool to be tested.
+     */
+    private SequentialForkJoinPool pool;
+
+    /**
+     * Empty constructor.
+     */
+    public SequentialForkJoinPoolTest() {
+        super();
+    }
+
+    /**
+     * Initializes the instance variables.
+     */
+    @BeforeMethod
+    public void initializeInstanceVariables() {
+        pool = new SequentialForkJoinPool();
+    }
+
+    /**
+     * Shuts the pool down.
+     */
+    @AfterMethod
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Test(timeOut = 10000L)
+    public void invoke_deterministicOrder() {
+        List<Integer> order = new ArrayList<>();
+        Set<Thread> threads = new HashSet<>();
+        List<Integer> otherOrder = new ArrayList<>();
+
+        Assert.assertEquals(pool.invoke(new Fibonacci(15, order, threads)),
+                Integer.valueOf(610));
+        pool.invoke(new Fibonacci(15, otherOrder, new HashSet<>()));
+
+        Assert.assertEquals(order, otherOrder);
+        Assert.assertEquals(threads.size(), 1);
+        Assert.assertEquals(pool.getParallelism(), 1);
+    }
+
+    @Test(timeOut = 10000L)
+    public void parallelStream_runsInPool() {
+        Set<String> threadNames = new HashSet<>();
+
+        long sum = pool.submit(() -> LongStream.range(0L, 10000L).parallel()
+                .peek(value -> {
+                    synchronized (threadNames) {
+                        threadNames.add(Thread.currentThread().getName());
+                    }
+                })
+                .sum()).join();
+
+        Assert.assertEquals(sum, 49995000L);
+        Assert.assertEquals(threadNames.size(), 1);
+        Assert.assertEquals(threadNames.iterator().next(),
+                "SequentialForkJoinPool-worker");
+    }
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
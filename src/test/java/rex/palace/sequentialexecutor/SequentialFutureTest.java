@@ -31,10 +31,13 @@ import rex.palace.testhelp.CallCounter;
 import rex.palace.testhelp.TestThread;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.regex.Matcher;
@@ -291,6 +294,134 @@ public class SequentialFutureTest {
         Assert.assertFalse(future.cancel(true));
     }
 
+    @Test(dataProvider = "cancellableFutureFactories",
+            expectedExceptions = CancellationException.class)
+    public void run_cancelled(FutureFactory factory) {
+        SequentialFuture<?> future = factory.build(callCounter);
+        future.cancel(false);
+        future.run();
+    }
+
+    @Test(dataProvider = "cancellableFutureFactories")
+    public void whenCompleted_registrationOrder(FutureFactory factory) {
+        SequentialFuture<?> future = factory.build(callCounter);
+        StringBuilder order = new StringBuilder();
+        future.whenCompleted(() -> order.append(1));
+        future.whenCompleted(() -> order.append(2));
+        future.whenCompleted(() -> order.append(3));
+        future.run();
+
+        Assert.assertEquals(order.toString(), "123");
+    }
+
+    @Test(dataProvider = "cancellableFutureFactories")
+    public void addListener_executor(FutureFactory factory) {
+        SequentialFuture<?> future = factory.build(callCounter);
+        StringBuilder order = new StringBuilder();
+        Executor executor = command -> {
+            order.append('[');
+            command.run();
+            order.append(']');
+        };
+        future.addListener(() -> order.append(1), executor);
+        future.addListener(() -> order.append(2), Runnable::run);
+        future.addListener(() -> order.append(3), executor);
+        future.run();
+
+        Assert.assertEquals(order.toString(), "[1]2[3]");
+    }
+
+    @Test(dataProvider = "cancellableFutureFactories")
+    public void addListener_manyListeners(FutureFactory factory) {
+        SequentialFuture<?> future = factory.build(callCounter);
+        int[] calls = new int[1];
+        for (int i = 0; i < 100000; i++) {
+            future.addListener(() -> calls[0]++, Runnable::run);
+        }
+        future.run();
+
+        Assert.assertEquals(calls[0], 100000);
+    }
+
+    @Test(dataProvider = "cancellableFutureFactories")
+    public void addListener_throwingListenerIsolated(FutureFactory factory) {
+        SequentialFuture<?> future = factory.build(callCounter);
+        StringBuilder order = new StringBuilder();
+        List<Throwable> uncaught = new ArrayList<>();
+        future.addListener(() -> {
+            throw new IllegalStateException("first");
+        }, Runnable::run);
+        future.addListener(() -> order.append(2), Runnable::run);
+        future.addListener(() -> {
+            throw new IllegalStateException("third");
+        }, Runnable::run);
+        future.addListener(() -> order.append(4), Runnable::run);
+        Thread thread = Thread.currentThread();
+        Thread.UncaughtExceptionHandler handler =
+                thread.getUncaughtExceptionHandler();
+        thread.setUncaughtExceptionHandler((t, e) -> uncaught.add(e));
+        try {
+            future.cancel(false);
+        } finally {
+            thread.setUncaughtExceptionHandler(handler);
+        }
+
+        Assert.assertEquals(order.toString(), "24");
+        Assert.assertEquals(uncaught.size(), 2);
+        Assert.assertEquals(uncaught.get(0).getMessage(), "first");
+        Assert.assertEquals(uncaught.get(1).getMessage(), "third");
+        Assert.assertTrue(future.isCancelled());
+    }
+
+    @Test(dataProvider = "cancellableFutureFactories")
+    public void addListener_onceOnCancel(FutureFactory factory) {
+        SequentialFuture<?> future = factory.build(callCounter);
+        StringBuilder calls = new StringBuilder();
+        future.addListener(() -> calls.append('x'), Runnable::run);
+        future.cancel(false);
+        future.cancel(true);
+
+        Assert.assertEquals(calls.toString(), "x");
+    }
+
+    @Test(dataProvider = "cancellableFutureFactories")
+    public void addListener_onException(FutureFactory factory) {
+        SequentialFuture<?> future = factory.build(() -> {
+            throw new SQLException();
+        });
+        StringBuilder calls = new StringBuilder();
+        future.addListener(() -> calls.append('x'), Runnable::run);
+        future.run();
+
+        Assert.assertEquals(calls.toString(), "x");
+    }
+
+    @Test(dataProvider = "futureFactories")
+    public void addListener_afterCompletion(FutureFactory factory) {
+        SequentialFuture<?> future = factory.build(callCounter);
+        future.cancel(false);
+        StringBuilder calls = new StringBuilder();
+        future.addListener(() -> calls.append('x'), Runnable::run);
+
+        Assert.assertEquals(calls.toString(), "x");
+    }
+
+    @Test(dataProvider = "futureFactories",
+            expectedExceptions = NullPointerException.class)
+    public void addListener_nullExecutor(FutureFactory factory) {
+        factory.build(callCounter).addListener(() -> { }, null);
+    }
+
+    @Test(dataProvider = "cancellableFutureFactories")
+    public void setException_afterResult(FutureFactory factory) {
+        SequentialFuture<Object> future = factory.build(() -> null);
+        future.setResult("result");
+        future.setException(new SQLException());
+
+        Assert.assertTrue(future.hasRun());
+        Assert.assertTrue(future.isExceptionHappened());
+    }
+
 }
 
 /* vim:set shiftwidth=4 softtabstop=4 expandtab: */
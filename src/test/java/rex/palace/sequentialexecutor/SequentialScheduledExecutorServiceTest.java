@@ -28,9 +28,21 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 import rex.palace.testhelp.TestThread;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Tests the SequentialScheduledExecutorService class.
@@ -63,6 +75,75 @@ public class SequentialScheduledExecutorServiceTest {
         service = new SequentialScheduledExecutorService(timeController);
     }
 
+    /**
+     * Returns a task which takes 5 simulated nanoseconds and counts its runs.
+     *
+     * @param count the counter to increment
+     * @return a task simulating its duration
+     */
+    private Callable<Integer> slowTask(AtomicInteger count) {
+        return () -> {
+            timeController.letTimePass(5L, TimeUnit.NANOSECONDS);
+            return count.incrementAndGet();
+        };
+    }
+
+    @Test
+    public void invokeAll_timeout() throws ExecutionException, InterruptedException {
+        AtomicInteger count = new AtomicInteger(0);
+        List<Callable<Integer>> tasks = Stream.generate(() -> slowTask(count))
+                .limit(5L).collect(Collectors.toList());
+        List<Future<Integer>> futures = service.invokeAll(tasks, 12L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(count.get(), 3);
+        Assert.assertTrue(futures.stream().allMatch(Future::isDone));
+        Assert.assertEquals(futures.get(2).get(), Integer.valueOf(3));
+        Assert.assertTrue(futures.get(3).isCancelled());
+        Assert.assertTrue(futures.get(4).isCancelled());
+    }
+
+    @Test
+    public void invokeAll_timeout_inTime() {
+        AtomicInteger count = new AtomicInteger(0);
+        List<Future<Integer>> futures = service.invokeAll(
+                Arrays.asList(slowTask(count), slowTask(count)), 1L, TimeUnit.SECONDS);
+
+        Assert.assertEquals(count.get(), 2);
+        Assert.assertFalse(futures.stream().anyMatch(Future::isCancelled));
+    }
+
+    @Test
+    public void invokeAny_timeout_success() throws Exception {
+        AtomicInteger count = new AtomicInteger(0);
+        Callable<Integer> failing = () -> {
+            timeController.letTimePass(5L, TimeUnit.NANOSECONDS);
+            throw new IllegalStateException();
+        };
+        Integer result = service.invokeAny(
+                Arrays.asList(failing, slowTask(count), slowTask(count)),
+                12L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(result, Integer.valueOf(1));
+        Assert.assertEquals(count.get(), 1);
+    }
+
+    @Test(expectedExceptions = TimeoutException.class)
+    public void invokeAny_timeout_expired() throws Exception {
+        Callable<Integer> failing = () -> {
+            timeController.letTimePass(5L, TimeUnit.NANOSECONDS);
+            throw new IllegalStateException();
+        };
+        service.invokeAny(Collections.nCopies(5, failing), 12L, TimeUnit.NANOSECONDS);
+    }
+
+    @Test(expectedExceptions = ExecutionException.class)
+    public void invokeAny_timeout_allFailed() throws Exception {
+        Callable<Integer> failing = () -> {
+            throw new IllegalStateException();
+        };
+        service.invokeAny(Collections.nCopies(5, failing), 12L, TimeUnit.NANOSECONDS);
+    }
+
     @Test
     public void schedule_Callable() {
         ScheduledFuture<Void> future = service.schedule(() -> null, 10L, TimeUnit.NANOSECONDS);
@@ -134,6 +215,50 @@ public class SequentialScheduledExecutorServiceTest {
         Assert.assertEquals(future.getDelay(TimeUnit.NANOSECONDS), 10L);
     }
 
+    @Test
+    public void scheduleWithFixedDelay_cost() {
+        AtomicInteger runs = new AtomicInteger();
+        service.scheduleWithFixedDelay(runs::incrementAndGet, 10L, 10L,
+                TimeUnit.NANOSECONDS,
+                TaskCosts.fixed(5L, TimeUnit.NANOSECONDS));
+
+        timeController.letTimePassUntil(() -> runs.get() == 1);
+        for (int i = 0; i < 14; i++) {
+            timeController.letTimePass(1L, TimeUnit.NANOSECONDS);
+        }
+
+        Assert.assertEquals(runs.get(), 1);
+
+        timeController.letTimePass(1L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(runs.get(), 2);
+    }
+
+    @Test
+    public void schedule_cost_delaysOtherTasks() {
+        service.schedule(() -> null, 10L, TimeUnit.NANOSECONDS,
+                TaskCosts.fixed(10L, TimeUnit.NANOSECONDS));
+        ScheduledFuture<?> later = service.schedule(
+                () -> null, 15L, TimeUnit.NANOSECONDS);
+
+        for (int i = 0; i < 15; i++) {
+            timeController.letTimePass(1L, TimeUnit.NANOSECONDS);
+        }
+
+        Assert.assertFalse(later.isDone());
+
+        for (int i = 0; i < 5; i++) {
+            timeController.letTimePass(1L, TimeUnit.NANOSECONDS);
+        }
+
+        Assert.assertTrue(later.isDone());
+    }
+
+    @Test(expectedExceptions = NullPointerException.class)
+    public void schedule_nullCost() {
+        service.schedule(() -> null, 10L, TimeUnit.NANOSECONDS, null);
+    }
+
     @Test(expectedExceptions = RejectedExecutionException.class)
     public void scheduleWithFixedDelay_shutdown() {
         service.shutdown();
@@ -182,6 +307,44 @@ public class SequentialScheduledExecutorServiceTest {
         Assert.assertFalse(service.awaitTermination(5L, TimeUnit.NANOSECONDS));
     }
 
+    @Test
+    public void awaitTermination_reportsPendingTasks() throws InterruptedException {
+        TimeController delegate = TimeControllers.getInstance();
+        List<String> conditions = new ArrayList<>();
+        TimeController recording = new TimeController() {
+            @Override
+            public void letTimePass(long time, TimeUnit unit) {
+                delegate.letTimePass(time, unit);
+            }
+
+            @Override
+            public void register(TimeListener listener) {
+                delegate.register(listener);
+            }
+
+            @Override
+            public void unregister(TimeListener listener) {
+                delegate.unregister(listener);
+            }
+
+            @Override
+            public void letTimePassUntil(BooleanSupplier condition, long time,
+                    TimeUnit unit) throws TimeoutException {
+                conditions.add(condition.toString());
+                delegate.letTimePassUntil(condition, time, unit);
+            }
+        };
+        SequentialScheduledExecutorService recorded
+                = new SequentialScheduledExecutorService(recording);
+        ScheduledFuture<?> future
+                = recorded.schedule(() -> null, 10L, TimeUnit.NANOSECONDS);
+        recorded.shutdown();
+        String expected = "DoneCondition[unsatisfied=[" + future + "]]";
+
+        Assert.assertFalse(recorded.awaitTermination(5L, TimeUnit.NANOSECONDS));
+        Assert.assertEquals(conditions, Collections.singletonList(expected));
+    }
+
     @Test
     public void shutdownNow_noLeftOverTasks() {
         Assert.assertTrue(service.shutdownNow().isEmpty());
@@ -201,6 +364,97 @@ public class SequentialScheduledExecutorServiceTest {
 
     }
 
+    @Test
+    public void reset() {
+        AtomicInteger ran = new AtomicInteger();
+        service.schedule(ran::incrementAndGet, 5L, TimeUnit.NANOSECONDS);
+        service.setExecutorServiceState(ExecutorServiceState.ONCALL);
+        service.submit(ran::incrementAndGet);
+        service.shutdown();
+
+        service.reset();
+        timeController.letTimePass(10L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(ran.get(), 0);
+        Assert.assertFalse(service.isShutdown());
+        Assert.assertEquals(service.getPendingTaskCount(), 0);
+        Assert.assertTrue(service.shutdownNow().isEmpty());
+        Assert.assertTrue(service.toString().contains("submittedTasks = 0"));
+    }
+
+    @Test
+    public void reset_reusable() throws Exception {
+        service.submit(() -> null);
+        service.reset();
+
+        Future<Integer> future = service.schedule(() -> 1, 5L, TimeUnit.NANOSECONDS);
+        timeController.letTimePass(5L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(future.get(), Integer.valueOf(1));
+        Assert.assertTrue(service.submit(() -> null).isDone());
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void reset_unsupportedTimeController() {
+        new SequentialScheduledExecutorService(new TimeController() {
+
+            @Override
+            public void letTimePass(long time, TimeUnit unit) {
+                //does nothing
+            }
+
+            @Override
+            public void register(TimeListener listener) {
+                //does nothing
+            }
+
+            @Override
+            public void unregister(TimeListener listener) {
+                //does nothing
+            }
+
+        }).reset();
+    }
+
+    @Test
+    public void scheduleTagged_latency() throws Exception {
+        service.scheduleTagged("a", () -> 1, 5L, TimeUnit.NANOSECONDS);
+        service.scheduleTagged("a", () -> 2, 10L, TimeUnit.NANOSECONDS);
+        service.scheduleTagged("a", () -> 3, 20L, TimeUnit.NANOSECONDS)
+                .cancel(false);
+        service.scheduleTagged("b", () -> 4, 30L, TimeUnit.NANOSECONDS);
+
+        Assert.assertFalse(service.awaitGroup("a"));
+        TaskGroup group = service.getGroup("a");
+
+        Assert.assertEquals(group.getPendingCount(), 0);
+        Assert.assertEquals(group.getLatencyCount(), 2L);
+        Assert.assertEquals(group.getMinLatency(TimeUnit.NANOSECONDS), 5L);
+        Assert.assertEquals(group.getMaxLatency(TimeUnit.NANOSECONDS), 10L);
+        Assert.assertEquals(group.getMeanLatency(TimeUnit.NANOSECONDS), 7L);
+        Assert.assertEquals(service.getGroup("b").getPendingCount(), 1);
+    }
+
+    @Test
+    public void scheduleTagged_lateRun() {
+        service.scheduleTagged("a", () -> 1, 5L, TimeUnit.NANOSECONDS);
+        timeController.occupy(8L, TimeUnit.NANOSECONDS);
+
+        Assert.assertTrue(service.awaitGroup("a"));
+        Assert.assertEquals(service.getGroup("a")
+                .getMaxLatency(TimeUnit.NANOSECONDS), 8L);
+    }
+
+    @Test
+    public void getThreadLocal() {
+        SequentialScheduledExecutorService local
+                = SequentialExecutorServices.getThreadLocal();
+        local.shutdown();
+
+        Assert.assertSame(SequentialExecutorServices.getThreadLocal(), local);
+        Assert.assertFalse(local.isShutdown());
+    }
+
 }
 
 /* vim:set shiftwidth=4 softtabstop=4 expandtab: */
@@ -0,0 +1,221 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the SimulatedIntervalPublisher class.
+ */
+public class SimulatedIntervalPublisherTest {
+
+    /**
+     * The TimeController this' tests can use.
+     */
+    private TimeController timeController;
+
+    /**
+     * The received items.
+     */
+    private List<Long> received;
+
+    /**
+     * The SimulatedIntervalPublisher to be tested.
+     */
+    private SimulatedIntervalPublisher<Long> publisher;
+
+    /**
+     * Empty constructor.
+     */
+    public SimulatedIntervalPublisherTest() {
+        super();
+    }
+
+    /**
+     * Initializes the instance variables.
+     */
+    @BeforeMethod
+    public void initializeInstanceVariables() {
+        timeController = TimeControllers.getInstance();
+        received = new ArrayList<>();
+        publisher = new SimulatedIntervalPublisher<>(timeController,
+                10L, TimeUnit.NANOSECONDS, Long::valueOf, 2);
+    }
+
+    @Test
+    public void noDemand_buffersAndDropsOldest() {
+        publisher.subscribe(received::add);
+
+        timeController.letTimePass(50L, TimeUnit.NANOSECONDS);
+
+        Assert.assertTrue(received.isEmpty());
+        Assert.assertEquals(publisher.getEmittedCount(), 5L);
+        Assert.assertEquals(publisher.getBufferedCount(), 2L);
+        Assert.assertEquals(publisher.getDroppedCount(), 3L);
+
+        publisher.request(10L);
+
+        Assert.assertEquals(received, Arrays.asList(3L, 4L));
+        Assert.assertEquals(publisher.getDemand(), 8L);
+    }
+
+    @Test
+    public void demand_deliversOnTime() {
+        publisher.subscribe(received::add);
+        publisher.request(3L);
+
+        timeController.letTimePass(19L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(received, Arrays.asList(0L));
+
+        timeController.letTimePass(41L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(received, Arrays.asList(0L, 1L, 2L));
+        Assert.assertEquals(publisher.getBufferedCount(), 2L);
+        Assert.assertEquals(publisher.getDroppedCount(), 1L);
+    }
+
+    @Test
+    public void requestWhileReceiving_noNesting() {
+        publisher.subscribe(item -> {
+            received.add(item);
+            publisher.request(1L);
+        });
+        publisher.request(1L);
+
+        timeController.letTimePass(1000L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(received.size(), 100);
+        Assert.assertEquals(publisher.getDroppedCount(), 0L);
+        Assert.assertEquals(publisher.getDemand(), 1L);
+    }
+
+    @Test(timeOut = 10000L)
+    public void millionsOfItems() {
+        SimulatedIntervalPublisher<Long> fast = new SimulatedIntervalPublisher<>(
+                timeController, 1L, TimeUnit.NANOSECONDS, Long::valueOf, 16);
+        long[] sum = new long[1];
+        fast.subscribe(item -> sum[0] += item);
+        fast.request(1000000L);
+
+        timeController.letTimePass(1L, TimeUnit.SECONDS);
+
+        Assert.assertEquals(fast.getDeliveredCount(), 1000000L);
+        Assert.assertEquals(sum[0], 999999L * 1000000L / 2L);
+        Assert.assertEquals(fast.getEmittedCount(), 1000000000L);
+        Assert.assertEquals(fast.getBufferedCount(), 16L);
+    }
+
+    @Test
+    public void cancel() {
+        publisher.subscribe(received::add);
+        timeController.letTimePass(20L, TimeUnit.NANOSECONDS);
+
+        publisher.cancel();
+        publisher.request(5L);
+        timeController.letTimePass(20L, TimeUnit.NANOSECONDS);
+
+        Assert.assertTrue(received.isEmpty());
+        Assert.assertEquals(publisher.getEmittedCount(), 2L);
+        Assert.assertEquals(publisher.getDroppedCount(), 2L);
+    }
+
+    @Test
+    public void cancel_bySubscriberWhileTimePasses() {
+        publisher.subscribe(item -> {
+            received.add(item);
+            publisher.cancel();
+        });
+        publisher.request(5L);
+
+        timeController.letTimePass(50L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(received, Arrays.asList(0L));
+        Assert.assertEquals(publisher.getEmittedCount(), 1L);
+    }
+
+    @Test(timeOut = 1000L, expectedExceptions = IllegalStateException.class)
+    public void cancel_unregistersClock() {
+        publisher.subscribe(received::add);
+        SequentialScheduledFutures.getDelayed(() -> {
+            publisher.cancel();
+            return null;
+        }, 5L, TimeUnit.NANOSECONDS, timeController);
+        timeController.letTimePass(5L, TimeUnit.NANOSECONDS);
+
+        timeController.letTimePassUntil(() -> false);
+    }
+
+    @Test
+    public void deliveryExecutor_batchesPerDrain() {
+        SequentialExecutorService service = new SequentialExecutorService();
+        service.setExecutorServiceState(ExecutorServiceState.TRAMPOLINE);
+        SimulatedIntervalPublisher<Long> ordered = new SimulatedIntervalPublisher<>(
+                timeController, 10L, TimeUnit.NANOSECONDS, Long::valueOf, 8, service);
+        ordered.subscribe(received::add);
+        ordered.request(4L);
+
+        timeController.letTimePass(30L, TimeUnit.NANOSECONDS);
+
+        Assert.assertTrue(received.isEmpty());
+        Assert.assertEquals(ordered.getBufferedCount(), 3L);
+
+        Assert.assertEquals(service.drain(), 1);
+        Assert.assertEquals(received, Arrays.asList(0L, 1L, 2L));
+        Assert.assertEquals(ordered.getDemand(), 1L);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void subscribe_twice() {
+        publisher.subscribe(received::add);
+        publisher.subscribe(received::add);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void request_noSubscriber() {
+        publisher.request(1L);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void request_notPositive() {
+        publisher.subscribe(received::add);
+        publisher.request(0L);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void constructor_periodNotPositive() {
+        new SimulatedIntervalPublisher<>(timeController,
+                0L, TimeUnit.NANOSECONDS, Long::valueOf, 2);
+    }
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
@@ -0,0 +1,238 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the SimulatedThreadPool class.
+ */
+public class SimulatedThreadPoolTest {
+
+    /**
+     * The TimeController driving the simulations.
+     */
+    private TimeController timeController;
+
+    /**
+     * Empty constructor.
+     */
+    public SimulatedThreadPoolTest() {
+        super();
+    }
+
+    /**
+     * Initializes the instance variables.
+     */
+    @BeforeMethod
+    public void initializeInstanceVariables() {
+        timeController = TimeControllers.getInstance();
+    }
+
+    @Test
+    public void queueingAndUtilization() throws ExecutionException, InterruptedException {
+        SimulatedThreadPool pool = new SimulatedThreadPool(
+                timeController, 2, 1, RejectionPolicy.ABORT);
+        AtomicInteger count = new AtomicInteger(0);
+        pool.submit(count::incrementAndGet, 10L, TimeUnit.NANOSECONDS);
+        pool.submit(count::incrementAndGet, 10L, TimeUnit.NANOSECONDS);
+        Future<Integer> queued = pool.submit(count::incrementAndGet, 10L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(pool.getActiveCount(), 2);
+        Assert.assertEquals(pool.getQueueSize(), 1);
+
+        timeController.letTimePass(10L, TimeUnit.NANOSECONDS);
+        Assert.assertEquals(count.get(), 2);
+        Assert.assertEquals(pool.getActiveCount(), 1);
+        Assert.assertFalse(queued.isDone());
+
+        Assert.assertEquals(queued.get(), Integer.valueOf(3));
+        Assert.assertEquals(pool.getElapsedTime(TimeUnit.NANOSECONDS), 20L);
+        Assert.assertEquals(pool.getCompletedTaskCount(), 3L);
+        Assert.assertEquals(pool.getTotalQueueingDelay(TimeUnit.NANOSECONDS), 10L);
+        Assert.assertEquals(pool.getMaxQueueingDelay(TimeUnit.NANOSECONDS), 10L);
+        Assert.assertEquals(pool.getUtilization(), 0.75, 1e-9);
+    }
+
+    @Test
+    public void idleTimeCounts() {
+        SimulatedThreadPool pool = new SimulatedThreadPool(
+                timeController, 1, 0, RejectionPolicy.ABORT);
+        pool.submit(() -> null, 10L, TimeUnit.NANOSECONDS);
+        timeController.letTimePass(10L, TimeUnit.NANOSECONDS);
+        timeController.letTimePass(90L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(pool.getElapsedTime(TimeUnit.NANOSECONDS), 100L);
+
+        pool.submit(() -> null, 10L, TimeUnit.NANOSECONDS);
+        timeController.letTimePass(10L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(pool.getElapsedTime(TimeUnit.NANOSECONDS), 110L);
+        Assert.assertEquals(pool.getUtilization(), 20.0 / 110.0, 1e-9);
+    }
+
+    @Test
+    public void idleTimeCounts_earliestDeadlineFirst() {
+        TimeController controller = TimeControllers.getEarliestDeadlineFirst();
+        SimulatedThreadPool pool = new SimulatedThreadPool(
+                controller, 1, 0, RejectionPolicy.ABORT);
+        controller.letTimePass(50L, TimeUnit.NANOSECONDS);
+        pool.submit(() -> null, 10L, TimeUnit.NANOSECONDS);
+        controller.letTimePass(50L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(pool.getElapsedTime(TimeUnit.NANOSECONDS), 100L);
+        Assert.assertEquals(pool.getUtilization(), 0.1, 1e-9);
+    }
+
+    @Test(timeOut = 1000L)
+    public void submit_fromScheduledTask() {
+        SequentialScheduledExecutorService service
+                = new SequentialScheduledExecutorService(timeController);
+        SimulatedThreadPool pool = new SimulatedThreadPool(
+                timeController, 1, 0, RejectionPolicy.ABORT);
+        AtomicInteger ticks = new AtomicInteger(0);
+        service.scheduleAtFixedRate(() -> {
+            if (pool.getActiveCount() == 0) {
+                pool.submit(() -> null, 3L, TimeUnit.NANOSECONDS);
+            }
+        }, 1L, 1L, TimeUnit.NANOSECONDS);
+        service.scheduleAtFixedRate(ticks::incrementAndGet,
+                1L, 1L, TimeUnit.NANOSECONDS);
+
+        for (int i = 0; i < 10; i++) {
+            timeController.letTimePass(1L, TimeUnit.NANOSECONDS);
+        }
+
+        Assert.assertEquals(ticks.get(), 10);
+        Assert.assertEquals(pool.getCompletedTaskCount(), 2L);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void idle_doesNotPreventStandstill() {
+        SimulatedThreadPool pool = new SimulatedThreadPool(
+                timeController, 1, 0, RejectionPolicy.ABORT);
+        pool.submit(() -> null, 10L, TimeUnit.NANOSECONDS);
+        timeController.letTimePass(10L, TimeUnit.NANOSECONDS);
+
+        timeController.letTimePassUntil(() -> false);
+    }
+
+    @Test(expectedExceptions = RejectedExecutionException.class)
+    public void reject_abort() {
+        SimulatedThreadPool pool = new SimulatedThreadPool(
+                timeController, 1, 0, RejectionPolicy.ABORT);
+        pool.submit(() -> null, 10L, TimeUnit.NANOSECONDS);
+        pool.submit(() -> null, 10L, TimeUnit.NANOSECONDS);
+    }
+
+    @Test
+    public void reject_discardOldest() {
+        SimulatedThreadPool pool = new SimulatedThreadPool(
+                timeController, 1, 1, RejectionPolicy.DISCARD_OLDEST);
+        pool.submit(() -> null, 10L, TimeUnit.NANOSECONDS);
+        Future<Void> oldest = pool.submit(() -> null, 10L, TimeUnit.NANOSECONDS);
+        Future<Void> newest = pool.submit(() -> null, 10L, TimeUnit.NANOSECONDS);
+
+        Assert.assertTrue(oldest.isCancelled());
+        Assert.assertFalse(newest.isDone());
+        Assert.assertEquals(pool.getRejectedTaskCount(), 1L);
+    }
+
+    @Test
+    public void reject_discard() {
+        SimulatedThreadPool pool = new SimulatedThreadPool(
+                timeController, 1, 0, RejectionPolicy.DISCARD);
+        pool.submit(() -> null, 10L, TimeUnit.NANOSECONDS);
+        Future<Void> discarded = pool.submit(() -> null, 10L, TimeUnit.NANOSECONDS);
+
+        Assert.assertTrue(discarded.isCancelled());
+        Assert.assertEquals(pool.getRejectedTaskCount(), 1L);
+    }
+
+    @Test
+    public void reject_callerRuns() throws ExecutionException, InterruptedException {
+        SimulatedThreadPool pool = new SimulatedThreadPool(
+                timeController, 1, 0, RejectionPolicy.CALLER_RUNS);
+        pool.submit(() -> null, 10L, TimeUnit.NANOSECONDS);
+        Future<Integer> callerRun = pool.submit(() -> 5, 10L, TimeUnit.NANOSECONDS);
+
+        Assert.assertTrue(callerRun.isDone());
+        Assert.assertEquals(callerRun.get(), Integer.valueOf(5));
+    }
+
+    @Test
+    public void reject_blockUntilDrained() {
+        SimulatedThreadPool pool = new SimulatedThreadPool(
+                timeController, 1, 1, RejectionPolicy.BLOCK_UNTIL_DRAINED);
+        Future<Void> first = pool.submit(() -> null, 10L, TimeUnit.NANOSECONDS);
+        pool.submit(() -> null, 10L, TimeUnit.NANOSECONDS);
+        pool.submit(() -> null, 10L, TimeUnit.NANOSECONDS);
+
+        Assert.assertTrue(first.isDone());
+        Assert.assertEquals(pool.getElapsedTime(TimeUnit.NANOSECONDS), 10L);
+        Assert.assertEquals(pool.getQueueSize(), 1);
+        Assert.assertEquals(pool.getRejectedTaskCount(), 0L);
+    }
+
+    @Test
+    public void zeroServiceTime() {
+        SimulatedThreadPool pool = new SimulatedThreadPool(
+                timeController, 1, 0, RejectionPolicy.ABORT);
+        Future<Void> future = pool.submit(() -> null, 0L, TimeUnit.NANOSECONDS);
+
+        Assert.assertTrue(future.isDone());
+        Assert.assertEquals(pool.getActiveCount(), 0);
+    }
+
+    @Test(timeOut = 10000L)
+    public void manyTasks() {
+        SimulatedThreadPool pool = new SimulatedThreadPool(
+                timeController, 8, 1000, RejectionPolicy.DISCARD);
+        for (int i = 0; i < 100000; i++) {
+            pool.submit(() -> null, 3L, TimeUnit.MICROSECONDS);
+            timeController.letTimePass(1L, TimeUnit.MICROSECONDS);
+        }
+        timeController.letTimePass(1L, TimeUnit.SECONDS);
+
+        Assert.assertEquals(pool.getCompletedTaskCount()
+                + pool.getRejectedTaskCount(), 100000L);
+        Assert.assertEquals(pool.getRejectedTaskCount(), 0L);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void new_noWorkers() {
+        new SimulatedThreadPool(timeController, 0, 0, RejectionPolicy.ABORT);
+    }
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
@@ -0,0 +1,93 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the TaskCosts class.
+ */
+public class TaskCostsTest {
+
+    /**
+     * Empty constructor.
+     */
+    public TaskCostsTest() {
+        super();
+    }
+
+    @Test
+    public void none() {
+        Assert.assertEquals(TaskCosts.none().nextNanos(), 0L);
+    }
+
+    @Test
+    public void fixed() {
+        TaskCost cost = TaskCosts.fixed(3L, TimeUnit.MICROSECONDS);
+
+        Assert.assertEquals(cost.nextNanos(), 3000L);
+        Assert.assertEquals(cost.nextNanos(), 3000L);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void fixed_negative() {
+        TaskCosts.fixed(-1L, TimeUnit.NANOSECONDS);
+    }
+
+    @Test
+    public void uniform() {
+        TaskCost cost = TaskCosts.uniform(5L, 10L, TimeUnit.NANOSECONDS, 42L);
+        TaskCost same = TaskCosts.uniform(5L, 10L, TimeUnit.NANOSECONDS, 42L);
+
+        for (int i = 0; i < 100; i++) {
+            long nanos = cost.nextNanos();
+            Assert.assertTrue(nanos >= 5L && nanos <= 10L);
+            Assert.assertEquals(same.nextNanos(), nanos);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void uniform_minGreaterMax() {
+        TaskCosts.uniform(10L, 5L, TimeUnit.NANOSECONDS, 42L);
+    }
+
+    @Test
+    public void exponential() {
+        TaskCost cost = TaskCosts.exponential(100L, TimeUnit.NANOSECONDS, 7L);
+        long sum = 0L;
+        for (int i = 0; i < 10000; i++) {
+            long nanos = cost.nextNanos();
+            Assert.assertTrue(nanos >= 0L);
+            sum += nanos;
+        }
+
+        Assert.assertTrue(Math.abs(sum / 10000L - 100L) < 10L);
+    }
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
@@ -0,0 +1,310 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the TaskGraph class and its submission.
+ */
+public class TaskGraphTest {
+
+    /**
+     * The keys of the tasks in the order they were run.
+     */
+    private List<String> ran;
+
+    /**
+     * The TaskGraph to be tested.
+     */
+    private TaskGraph<String> graph;
+
+    /**
+     * Empty constructor.
+     */
+    public TaskGraphTest() {
+        super();
+    }
+
+    /**
+     * Initializes the instance variables.
+     */
+    @BeforeMethod
+    public void initializeInstanceVariables() {
+        ran = new ArrayList<>();
+        graph = new TaskGraph<>();
+    }
+
+    /**
+     * Returns a task recording its key.
+     *
+     * @param key the key to record
+     * @return a task recording key
+     */
+    private Callable<String> task(String key) {
+        return () -> {
+            ran.add(key);
+            return key;
+        };
+    }
+
+    /**
+     * Adds the diamond a -> (b, c) -> d with durations.
+     */
+    private void addDiamond() {
+        graph.add("d", task("d"), 1L, TimeUnit.NANOSECONDS,
+                Arrays.asList("b", "c"));
+        graph.add("b", task("b"), 10L, TimeUnit.NANOSECONDS,
+                Collections.singleton("a"));
+        graph.add("c", task("c"), 5L, TimeUnit.NANOSECONDS,
+                Collections.singleton("a"));
+        graph.add("a", task("a"), 2L, TimeUnit.NANOSECONDS,
+                Collections.emptyList());
+    }
+
+    @Test
+    public void topologicalOrder() {
+        addDiamond();
+
+        Assert.assertEquals(graph.topologicalOrder(),
+                Arrays.asList("a", "b", "c", "d"));
+    }
+
+    @Test
+    public void topologicalOrder_insertionOrder() {
+        graph.add("a", task("a"), Collections.emptyList());
+        graph.add("b", task("b"), Collections.singleton("a"));
+        graph.add("c", task("c"), Collections.emptyList());
+
+        Assert.assertEquals(graph.topologicalOrder(),
+                Arrays.asList("a", "b", "c"));
+    }
+
+    @Test
+    public void topologicalOrder_lowestReadyFirst() {
+        graph.add("e", task("e"), Collections.singleton("d"));
+        graph.add("a", task("a"), Collections.emptyList());
+        graph.add("c", task("c"), Collections.singleton("a"));
+        graph.add("b", task("b"), Collections.emptyList());
+        graph.add("d", task("d"), Collections.emptyList());
+        graph.add("f", task("f"), Collections.singleton("b"));
+
+        Assert.assertEquals(graph.topologicalOrder(),
+                Arrays.asList("a", "c", "b", "d", "e", "f"));
+    }
+
+    @Test
+    public void criticalPath() {
+        addDiamond();
+
+        Assert.assertEquals(graph.criticalPath(), Arrays.asList("a", "b", "d"));
+        Assert.assertEquals(
+                graph.criticalPathLength(TimeUnit.NANOSECONDS), 13L);
+    }
+
+    @Test
+    public void criticalPath_empty() {
+        Assert.assertTrue(graph.criticalPath().isEmpty());
+        Assert.assertEquals(graph.criticalPathLength(TimeUnit.NANOSECONDS), 0L);
+    }
+
+    @Test
+    public void cycle() {
+        graph.add("a", task("a"), Collections.singleton("c"));
+        graph.add("b", task("b"), Collections.singleton("a"));
+        graph.add("c", task("c"), Collections.singleton("b"));
+        graph.add("d", task("d"), Collections.singleton("a"));
+
+        try {
+            graph.topologicalOrder();
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals(e.getMessage(),
+                    "The tasks contain a cycle: [a, b, c, a]");
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void missingPrerequisite() {
+        graph.add("a", task("a"), Collections.singleton("b"));
+        graph.topologicalOrder();
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void add_duplicateKey() {
+        graph.add("a", task("a"), Collections.emptyList());
+        graph.add("a", task("a"), Collections.emptyList());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void add_negativeDuration() {
+        graph.add("a", task("a"), -1L, TimeUnit.NANOSECONDS,
+                Collections.emptyList());
+    }
+
+    @Test
+    public void submitGraph_immediately() throws Exception {
+        addDiamond();
+        Map<String, Future<?>> futures
+                = new SequentialExecutorService().submitGraph(graph);
+
+        Assert.assertEquals(ran, Arrays.asList("a", "b", "c", "d"));
+        Assert.assertEquals(futures.get("d").get(), "d");
+    }
+
+    @Test
+    public void submitGraph_onCall() throws Exception {
+        addDiamond();
+        SequentialExecutorService service = new SequentialExecutorService();
+        service.setExecutorServiceState(ExecutorServiceState.ONCALL);
+        Map<String, Future<?>> futures = service.submitGraph(graph);
+
+        Assert.assertTrue(ran.isEmpty());
+
+        futures.get("c").get();
+
+        Assert.assertEquals(ran, Arrays.asList("a", "b", "c"));
+    }
+
+    @Test
+    public void submitGraph_failedPrerequisite() throws Exception {
+        graph.add("a", () -> {
+            throw new IllegalStateException();
+        }, Collections.emptyList());
+        graph.add("b", task("b"), Collections.singleton("a"));
+        Map<String, Future<?>> futures
+                = new SequentialExecutorService().submitGraph(graph);
+
+        Assert.assertTrue(ran.isEmpty());
+        try {
+            futures.get("b").get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertEquals(e.getCause().getClass().getSimpleName(),
+                    "CancellationException");
+        }
+    }
+
+    @Test(timeOut = 20000L)
+    public void submitGraph_longChain() throws Exception {
+        int size = 1000000;
+        TaskGraph<Integer> chain = new TaskGraph<>();
+        int[] count = new int[1];
+        for (int i = size - 1; i >= 0; i--) {
+            chain.add(i, () -> count[0]++, i == 0
+                    ? Collections.emptyList() : Collections.singleton(i - 1));
+        }
+        SequentialExecutorService service = new SequentialExecutorService();
+        service.setExecutorServiceState(ExecutorServiceState.ONCALL);
+        Map<Integer, Future<?>> futures = service.submitGraph(chain);
+
+        Assert.assertEquals(futures.get(size - 1).get(), size - 1);
+        Assert.assertEquals(count[0], size);
+    }
+
+    @Test
+    public void scheduleGraph() {
+        addDiamond();
+        TimeController timeController = TimeControllers.getInstance();
+        SequentialScheduledExecutorService service
+                = new SequentialScheduledExecutorService(timeController);
+        Map<String, Future<?>> futures = service.scheduleGraph(graph);
+
+        timeController.letTimePass(7L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(ran, Arrays.asList("a", "c"));
+
+        timeController.letTimePass(5L, TimeUnit.NANOSECONDS);
+
+        Assert.assertFalse(futures.get("d").isDone());
+
+        timeController.letTimePass(1L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(ran, Arrays.asList("a", "c", "b", "d"));
+    }
+
+    @Test
+    public void scheduleGraph_singleStep() {
+        addDiamond();
+        TimeController timeController = TimeControllers.getInstance();
+        SequentialScheduledExecutorService service
+                = new SequentialScheduledExecutorService(timeController);
+        service.scheduleGraph(graph);
+
+        timeController.letTimePass(100L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(ran, Arrays.asList("a", "c", "b", "d"));
+    }
+
+    @Test
+    public void scheduleGraph_noTime() {
+        graph.add("c", task("c"), 2L, TimeUnit.NANOSECONDS,
+                Collections.singleton("b"));
+        graph.add("b", task("b"), Collections.singleton("a"));
+        graph.add("a", task("a"), Collections.emptyList());
+        TimeController timeController = TimeControllers.getInstance();
+        Map<String, Future<?>> futures
+                = new SequentialScheduledExecutorService(timeController)
+                        .scheduleGraph(graph);
+
+        Assert.assertEquals(ran, Arrays.asList("a", "b"));
+        Assert.assertTrue(futures.get("b").isDone());
+
+        timeController.letTimePass(2L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(ran, Arrays.asList("a", "b", "c"));
+    }
+
+    @Test
+    public void scheduleGraph_equalFinishKeepsTopologicalOrder() {
+        graph.add("b", task("b"), 0L, TimeUnit.NANOSECONDS,
+                Collections.singleton("a"));
+        graph.add("a", task("a"), 3L, TimeUnit.NANOSECONDS,
+                Collections.emptyList());
+        graph.add("c", task("c"), 3L, TimeUnit.NANOSECONDS,
+                Collections.emptyList());
+        TimeController timeController = TimeControllers.getInstance();
+        new SequentialScheduledExecutorService(timeController)
+                .scheduleGraph(graph);
+
+        timeController.letTimePass(3L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(ran, Arrays.asList("a", "b", "c"));
+    }
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
@@ -0,0 +1,120 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This file is part of SequentialExecutorService.
+ *
+ * SequentialExecutorService contains non-parallel implementations
+ * for Java's ExecutorService and ScheduledExecutorService.
+ * Copyright (C) 2015 Matthias Johannes Reimchen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rex.palace.sequentialexecutor;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the TaskGroup class.
+ */
+public class TaskGroupTest {
+
+    @Test
+    public void latency_empty() {
+        TaskGroup group = new TaskGroup("tag");
+
+        Assert.assertEquals(group.getLatencyCount(), 0L);
+        Assert.assertEquals(group.getMinLatency(TimeUnit.NANOSECONDS), 0L);
+        Assert.assertEquals(group.getMaxLatency(TimeUnit.NANOSECONDS), 0L);
+        Assert.assertEquals(group.getMeanLatency(TimeUnit.NANOSECONDS), 0L);
+    }
+
+    @Test
+    public void latency_converted() {
+        TaskGroup group = new TaskGroup("tag");
+        group.recordLatency(TimeUnit.MILLISECONDS.toNanos(2L));
+        group.recordLatency(TimeUnit.MILLISECONDS.toNanos(4L));
+
+        Assert.assertEquals(group.getMinLatency(TimeUnit.MILLISECONDS), 2L);
+        Assert.assertEquals(group.getMaxLatency(TimeUnit.MILLISECONDS), 4L);
+        Assert.assertEquals(group.getMeanLatency(TimeUnit.MILLISECONDS), 3L);
+    }
+
+    @Test
+    public void add_doneFuturesDropped() {
+        TaskGroup group = new TaskGroup("tag");
+        for (int i = 0; i < 1000; i++) {
+            SequentialFuture<Integer> future
+                    = SequentialFutures.getOnCall(() -> 1);
+            group.add(future);
+            future.run();
+        }
+        SequentialFuture<Integer> pending
+                = SequentialFutures.getOnCall(() -> 1);
+        group.add(pending);
+
+        Assert.assertEquals(group.size(), 1001);
+        Assert.assertEquals(group.getPendingCount(), 1);
+        Assert.assertEquals(group.getFinishedCount(), 1000);
+        Assert.assertTrue(group.await());
+        Assert.assertTrue(pending.isDone());
+        Assert.assertEquals(group.getPendingCount(), 0);
+    }
+
+    @Test
+    public void await_failedBeforeDropped() {
+        TaskGroup group = new TaskGroup("tag");
+        SequentialFuture<Integer> future = SequentialFutures.getOnCall(() -> {
+            throw new IllegalStateException();
+        });
+        group.add(future);
+        future.run();
+
+        Assert.assertEquals(group.getPendingCount(), 0);
+        Assert.assertFalse(group.await());
+    }
+
+    @Test
+    public void add_notListenable() {
+        TaskGroup group = new TaskGroup("tag");
+        FutureTask<Integer> future = new FutureTask<>(() -> 1);
+        group.add(future);
+
+        Assert.assertEquals(group.getPendingCount(), 1);
+
+        future.run();
+
+        Assert.assertEquals(group.getPendingCount(), 0);
+        Assert.assertEquals(group.getFinishedCount(), 1);
+        Assert.assertEquals(group.size(), 1);
+    }
+
+    @Test(expectedExceptions = NullPointerException.class)
+    public void constructor_nullTag() {
+        new TaskGroup(null);
+    }
+
+    @Test
+    public void toString_test() {
+        Assert.assertEquals(new TaskGroup("tag").toString(),
+                "TaskGroup[tag=tag, size=0, pending=0]");
+    }
+
+}
+
+/* vim:set shiftwidth=4 softtabstop=4 expandtab: */
@@ -27,9 +27,13 @@ import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class TaskOrganizerTest {
 
@@ -80,6 +84,158 @@ public class TaskOrganizerTest {
         Assert.assertEquals(taskOrganizer.notFinishedTasks().count(), 0L);
     }
 
+    @Test
+    public void submitAll_never() {
+        Callable<Void> callable = () -> null;
+        taskOrganizer.submitAll(ExecutorServiceState.NEVER,
+                Arrays.asList(callable, callable));
+        Assert.assertEquals(taskOrganizer.submittedTasksCount(), 2);
+        Assert.assertEquals(taskOrganizer.notFinishedTasksCount(), 2);
+    }
+
+    @Test
+    public void submitAll_immediately() {
+        Callable<Void> callable = () -> null;
+        List<Future<Void>> futures = taskOrganizer.submitAll(
+                ExecutorServiceState.IMMEDIATELY, Arrays.asList(callable, callable));
+        Assert.assertTrue(futures.get(0).isDone());
+        Assert.assertEquals(taskOrganizer.finishedTasksCount(), 2);
+    }
+
+    @Test
+    public void submit_concurrently() throws InterruptedException {
+        int threads = 4;
+        int perThread = 1000;
+        AtomicInteger ran = new AtomicInteger();
+        Callable<Void> callable = () -> {
+            ran.incrementAndGet();
+            return null;
+        };
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] submitters = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            ExecutorServiceState state = i % 2 == 0
+                    ? ExecutorServiceState.ONCALL
+                    : ExecutorServiceState.TRAMPOLINE;
+            submitters[i] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+                for (int j = 0; j < perThread; j++) {
+                    taskOrganizer.submit(state, callable);
+                }
+            });
+            submitters[i].start();
+        }
+        start.countDown();
+        for (Thread submitter : submitters) {
+            submitter.join();
+        }
+
+        int total = threads * perThread;
+        Assert.assertEquals(taskOrganizer.submittedTasksCount(), total);
+        Assert.assertEquals(taskOrganizer.notFinishedTasksCount(), total);
+        Assert.assertEquals(taskOrganizer.pendingTasksCount(), total);
+        Assert.assertEquals(taskOrganizer.drain(), total / 2);
+        Assert.assertEquals(ran.get(), total / 2);
+        Assert.assertEquals(taskOrganizer.pendingTasksCount(), total / 2);
+    }
+
+    @Test
+    public void pendingTasksCount_untracked() {
+        Callable<Void> callable = () -> null;
+        taskOrganizer.submit(ExecutorServiceState.ONCALL, callable);
+        taskOrganizer.submit(ExecutorServiceState.NEVER, callable);
+        taskOrganizer.submit(ExecutorServiceState.IMMEDIATELY, callable);
+        taskOrganizer.submit(ExecutorServiceState.TRAMPOLINE, callable);
+
+        Assert.assertEquals(taskOrganizer.pendingTasksCount(), 2);
+
+        taskOrganizer.trackPending();
+
+        Assert.assertEquals(taskOrganizer.pendingTasksCount(), 2);
+
+        taskOrganizer.drain();
+
+        Assert.assertEquals(taskOrganizer.pendingTasksCount(), 1);
+    }
+
+    @Test
+    public void submit_capacity() {
+        Callable<Void> callable = () -> null;
+        taskOrganizer.trackPending();
+
+        Assert.assertNotNull(taskOrganizer.submit(
+                ExecutorServiceState.TRAMPOLINE, callable, 0, 1));
+        Assert.assertNull(taskOrganizer.submit(
+                ExecutorServiceState.TRAMPOLINE, callable, 0, 1));
+        Assert.assertNotNull(taskOrganizer.submit(
+                ExecutorServiceState.IMMEDIATELY, callable, 0, 1));
+        Assert.assertEquals(taskOrganizer.submittedTasksCount(), 2);
+    }
+
+    @Test(timeOut = 20000L)
+    public void submit_concurrentDrain_pendingReleased()
+            throws InterruptedException {
+        taskOrganizer.trackPending();
+        int total = 20000;
+        Callable<Void> callable = () -> null;
+        Thread submitter = new Thread(() -> {
+            for (int j = 0; j < total; j++) {
+                taskOrganizer.submit(ExecutorServiceState.TRAMPOLINE,
+                        callable, 0, Integer.MAX_VALUE);
+            }
+        });
+        submitter.setDaemon(true);
+        submitter.start();
+        int ran = 0;
+        while (ran < total) {
+            ran += taskOrganizer.drain();
+            Thread.yield();
+        }
+        submitter.join();
+
+        Assert.assertEquals(taskOrganizer.pendingTasksCount(), 0);
+    }
+
+    @Test(timeOut = 20000L)
+    public void submit_concurrently_capacity() throws InterruptedException {
+        int threads = 4;
+        int perThread = 1000;
+        int capacity = 100;
+        taskOrganizer.trackPending();
+        AtomicInteger accepted = new AtomicInteger();
+        Callable<Void> callable = () -> null;
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] submitters = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            submitters[i] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+                for (int j = 0; j < perThread; j++) {
+                    if (taskOrganizer.submit(ExecutorServiceState.ONCALL,
+                            callable, 0, capacity) != null) {
+                        accepted.incrementAndGet();
+                    }
+                }
+            });
+            submitters[i].start();
+        }
+        start.countDown();
+        for (Thread submitter : submitters) {
+            submitter.join();
+        }
+
+        Assert.assertEquals(accepted.get(), capacity);
+        Assert.assertEquals(taskOrganizer.pendingTasksCount(), capacity);
+        Assert.assertEquals(taskOrganizer.submittedTasksCount(), capacity);
+    }
+
 }
 
 /* vim:set shiftwidth=4 softtabstop=4 expandtab: */
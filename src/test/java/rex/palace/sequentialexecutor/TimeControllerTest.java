@@ -27,8 +27,10 @@ import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.lang.ref.WeakReference;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -96,6 +98,73 @@ public class TimeControllerTest {
         Assert.assertEquals(timeListenerMock.passedTimeInNanos, 10L);
     }
 
+    @Test(timeOut = 1000L)
+    public void occupy() {
+        timeController.occupy(5L, TimeUnit.NANOSECONDS);
+        timeController.letTimePass(3L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(timeListenerMock.passedTimeInNanos, 0L);
+
+        timeController.letTimePass(3L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(timeListenerMock.passedTimeInNanos, 6L);
+    }
+
+    @Test(timeOut = 1000L)
+    public void occupy_byListener_delaysLaterSteps() {
+        TimeController controller = TimeControllers.getInstance();
+        StringBuilder order = new StringBuilder();
+        controller.register((time, unit) -> {
+            order.append('a');
+            controller.occupy(5L, TimeUnit.NANOSECONDS);
+            return false;
+        });
+        controller.register((time, unit) -> {
+            order.append('b').append(unit.toNanos(time));
+            return false;
+        });
+
+        controller.letTimePass(2L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(order.toString(), "ab2");
+
+        controller.letTimePass(3L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(order.toString(), "ab2");
+
+        controller.letTimePass(2L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(order.toString(), "ab2ab5");
+    }
+
+    @Test
+    public void register_whileNotified() {
+        TimeController controller = TimeControllers.getInstance();
+        TimeListenerMock registered = new TimeListenerMock();
+        TimeListenerMock later = new TimeListenerMock();
+        controller.register((time, unit) -> {
+            controller.register(registered);
+            controller.unregister(later);
+            return true;
+        });
+        controller.register(later);
+
+        controller.letTimePass(2L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(registered.passedTimeInNanos, 0L);
+        Assert.assertEquals(later.passedTimeInNanos, 0L);
+
+        controller.letTimePass(3L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(registered.passedTimeInNanos, 3L);
+        Assert.assertEquals(later.passedTimeInNanos, 0L);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void occupy_negative() {
+        timeController.occupy(-1L, TimeUnit.NANOSECONDS);
+    }
+
     @Test(timeOut = 1000L)
     public void letTimePassUntil() {
         TimeListenerMock timeListenerMock2 = new TimeListenerMock();
@@ -125,6 +194,31 @@ public class TimeControllerTest {
         Assert.assertEquals(timeListenerMock2.passedTimeInNanos, 100L);
     }
 
+    @Test(timeOut = 1000L, expectedExceptions = IllegalStateException.class)
+    public void letTimePassUntil_noListeners() {
+        timeController.unregister(timeListenerMock);
+        timeController.letTimePassUntil(() -> false);
+    }
+
+    @Test(timeOut = 1000L)
+    public void letTimePassUntil_lastListenerDone() {
+        timeController.unregister(timeListenerMock);
+        SequentialScheduledFuture<Void> future = SequentialScheduledFutures.getDelayed(
+                () -> null, 10L, TimeUnit.NANOSECONDS, timeController);
+        try {
+            timeController.letTimePassUntil(() -> false);
+            Assert.fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(future.isDone());
+        }
+    }
+
+    @Test(timeOut = 1000L, expectedExceptions = TimeoutException.class)
+    public void letTimePassUntil_limited_noListeners() throws TimeoutException {
+        timeController.unregister(timeListenerMock);
+        timeController.letTimePassUntil(() -> false, 1L, TimeUnit.DAYS);
+    }
+
     @Test
     public void unregister() {
         timeController.letTimePass(10L, TimeUnit.NANOSECONDS);
@@ -136,6 +230,81 @@ public class TimeControllerTest {
 
     }
 
+    @Test
+    public void weak_registeredListenerNotified() {
+        TimeController weakController = TimeControllers.getWeakInstance();
+        weakController.register(timeListenerMock);
+        weakController.letTimePass(10L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(timeListenerMock.passedTimeInNanos, 10L);
+
+        weakController.unregister(timeListenerMock);
+        weakController.letTimePass(10L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(timeListenerMock.passedTimeInNanos, 10L);
+        Assert.assertEquals(weakController.getPurgedListenerCount(), 0L);
+    }
+
+    @Test(timeOut = 10000L)
+    public void weak_unreachableFuturePurged() throws InterruptedException {
+        TimeController weakController = TimeControllers.getWeakInstance();
+        WeakReference<?> reference = new WeakReference<>(
+                SequentialScheduledFutures.getPeriodic(() -> null, 1L,
+                        TimeUnit.NANOSECONDS, weakController));
+        while (reference.get() != null) {
+            System.gc();
+            Thread.sleep(10L);
+        }
+        weakController.letTimePass(1L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(weakController.getPurgedListenerCount(), 1L);
+        try {
+            weakController.letTimePassUntil(() -> false);
+            Assert.fail("IllegalStateException expected");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void getElapsedTime() {
+        timeController.letTimePass(10L, TimeUnit.NANOSECONDS);
+        timeController.occupy(5L, TimeUnit.NANOSECONDS);
+        timeController.letTimePass(3L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(timeController.getElapsedTime(TimeUnit.NANOSECONDS), 10L);
+
+        timeController.letTimePass(3L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(timeController.getElapsedTime(TimeUnit.NANOSECONDS), 16L);
+    }
+
+    @Test(timeOut = 10000L)
+    public void weak_unreachableServiceFuturePurged() throws InterruptedException {
+        TimeController weakController = TimeControllers.getWeakInstance();
+        SequentialScheduledExecutorService service
+                = new SequentialScheduledExecutorService(weakController);
+        AtomicInteger runs = new AtomicInteger(0);
+        WeakReference<?> reference = new WeakReference<>(service.scheduleAtFixedRate(
+                runs::incrementAndGet, 1L, 1L, TimeUnit.NANOSECONDS));
+        weakController.letTimePass(1L, TimeUnit.NANOSECONDS);
+        Assert.assertEquals(runs.get(), 1);
+
+        while (reference.get() != null) {
+            System.gc();
+            Thread.sleep(10L);
+        }
+        weakController.letTimePass(10L, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(weakController.getPurgedListenerCount(), 1L);
+        Assert.assertEquals(runs.get(), 1);
+        Assert.assertFalse(service.isShutdown());
+    }
+
+    @Test
+    public void getPurgedListenerCount_strong() {
+        Assert.assertEquals(timeController.getPurgedListenerCount(), 0L);
+    }
+
     @Test
     public void toString_test() {
         TimeController testController = TimeControllers.getInstance();
@@ -40,8 +40,10 @@ public class UtilityTest {
     public Iterator<Object[]> getUtilityClasses() {
         return ArgumentConverter.convert(
                 ExecutorServiceHelper.class,
+                SequentialCompletableFutures.class,
                 SequentialFutures.class,
                 SequentialScheduledFutures.class,
+                TaskCosts.class,
                 TimeControllers.class);
     }
 